@@ -7,7 +7,13 @@ public enum Errors {
   IMU_IO_ERROR("Unable to read IMU over SPI"),
   MAX14830_IO_ERROR("Unable to access /dev/spix.x via Pi4J"),
   LPS22HD_INITIALIZATION_ERROR("Unable to write from i2cDevice IO Exception"),
-  LPS22HD_PRESSURE_IO_ERROR("Unable to read Pressure from i2cDevice IO Exception");
+  LPS22HD_PRESSURE_IO_ERROR("Unable to read Pressure from i2cDevice IO Exception"),
+  LOOP_OVERRUN("Main loop tick took longer than its period"),
+  SCM_FRAMING_ERROR("Received data that does not form a valid SCM packet"),
+  NMEA_CHECKSUM_ERROR("Received an NMEA sentence with a missing or wrong checksum"),
+  SERIAL_TX_OVERFLOW("Serial transmit queue is full, outgoing data was dropped"),
+  SERIAL_CAPTURE_IO_ERROR("Unable to write the serial capture file, capture stopped"),
+  NMEA_OVERFLOW_ERROR("Received an NMEA sentence too long to be parsed");
   
   private String errorMessage;
   
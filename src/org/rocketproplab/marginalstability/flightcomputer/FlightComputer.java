@@ -1,22 +1,40 @@
 package org.rocketproplab.marginalstability.flightcomputer;
 
+import java.util.concurrent.locks.LockSupport;
+
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
 import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.Subsystem;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.Telemetry;
 
 public class FlightComputer {
-  private Telemetry telemetry;
-  private Time      time;
-  private Looper    looper;
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private Telemetry                  telemetry;
+  private Time                       time;
+  private Looper                     looper;
+  private Looper.LooperErrorListener errorListener;
+  private LoopStatistics             loopStatistics;
+  private volatile boolean           running;
 
 
   public FlightComputer(Telemetry telemetry, Time time) {
-    this.telemetry = telemetry;
-    this.time      = time;
-    this.looper    = new Looper(time);
+    this.telemetry      = telemetry;
+    this.time           = time;
+    this.looper         = new Looper(time);
+    this.errorListener  = this::onLooperError;
+    this.loopStatistics = new LoopStatistics();
+    this.running        = false;
   }
 
+  /**
+   * Register the subsystem with the looper, giving it an id to track commands
+   * using it, and let it prepare its events.
+   *
+   * @param subsystem the subsystem to register
+   */
   public void registerSubsystem(Subsystem subsystem) {
+    this.looper.registerSubsystem(subsystem);
     subsystem.prepare(this.looper);
   }
 
@@ -24,14 +42,131 @@ public class FlightComputer {
     return time;
   }
 
-  public void tick() {
-    this.looper.tick((tag, from, exception) -> {
-      try {
-        this.telemetry.reportError(Errors.TOP_LEVEL_EXCEPTION);
-      } catch (Exception e) {
-        System.err.println("Unable to log errors!");
-        e.printStackTrace();
+  /**
+   * @return the timing statistics of the loop started by {@link #run(double)}
+   */
+  public LoopStatistics getLoopStatistics() {
+    return loopStatistics;
+  }
+
+  /**
+   * @return if {@link #run(double)} is currently ticking the flight computer
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Make {@link #run(double)} return after the current tick finishes. Can be
+   * called from any thread or from inside a tick.
+   */
+  public void stop() {
+    this.running = false;
+  }
+
+  /**
+   * Tick the flight computer at a fixed rate until {@link #stop()} is called.
+   * Between ticks the thread parks until shortly before the next tick and then
+   * spins for the last {@link Settings#LOOP_SPIN_TIME} seconds to start the
+   * tick on time. The duration and jitter of each tick are recorded in
+   * {@link #getLoopStatistics()}. A tick that finishes after the next tick
+   * should have started is an overrun, the next tick starts immediately without
+   * trying to catch up on missed ticks. The first overrun is reported to
+   * telemetry as an error, after that the overrun count is sent every
+   * {@link Settings#LOOP_OVERRUN_REPORT_INTERVAL} seconds while it grows.
+   *
+   * @param rateHz how many times per second to tick
+   */
+  public void run(double rateHz) {
+    if (!(rateHz > 0) || Double.isInfinite(rateHz)) {
+      throw new IllegalArgumentException("Loop rate must be positive and finite, was " + rateHz);
+    }
+    long    period          = Math.max(1, Math.round(NANOS_PER_SECOND / rateHz));
+    long    spinTime        = Math.round(Settings.LOOP_SPIN_TIME * NANOS_PER_SECOND);
+    long    reportInterval  = Math.round(Settings.LOOP_OVERRUN_REPORT_INTERVAL * NANOS_PER_SECOND);
+    boolean overrunReported = false;
+    long    reportedCount   = 0;
+    long    nextReport      = 0;
+    long    tickStart       = System.nanoTime();
+    this.running = true;
+    while (this.running) {
+      long actualStart = System.nanoTime();
+      this.tick();
+      long    end       = System.nanoTime();
+      long    nextStart = tickStart + period;
+      boolean overrun   = end - nextStart > 0;
+      this.loopStatistics.recordTick(actualStart - tickStart, end - actualStart, overrun);
+      if (overrun) {
+        if (!overrunReported) {
+          this.reportOverrun();
+          overrunReported = true;
+          reportedCount   = this.loopStatistics.getOverrunCount();
+          nextReport      = end + reportInterval;
+        }
+        nextStart = end;
       }
-    });
+      if (overrunReported && end - nextReport >= 0) {
+        long overrunCount = this.loopStatistics.getOverrunCount();
+        if (overrunCount > reportedCount) {
+          this.reportOverrunCount(overrunCount);
+          reportedCount = overrunCount;
+        }
+        nextReport = end + reportInterval;
+      }
+      tickStart = nextStart;
+      waitUntil(tickStart, spinTime);
+    }
+  }
+
+  /**
+   * Block until System.nanoTime reaches the deadline. Parks the thread while
+   * more than spinTime remains and busy waits for the rest.
+   *
+   * @param deadline the System.nanoTime value to wait for
+   * @param spinTime how many nanoseconds before the deadline to start spinning
+   */
+  private static void waitUntil(long deadline, long spinTime) {
+    long remaining = deadline - System.nanoTime();
+    while (remaining > spinTime) {
+      LockSupport.parkNanos(remaining - spinTime);
+      remaining = deadline - System.nanoTime();
+    }
+    while (deadline - System.nanoTime() > 0) {
+      // Spin until the deadline
+    }
+  }
+
+  private void reportOverrun() {
+    try {
+      this.telemetry.reportError(Errors.LOOP_OVERRUN);
+    } catch (Exception e) {
+      System.err.println("Unable to log errors!");
+      e.printStackTrace();
+    }
+  }
+
+  private void reportOverrunCount(long overrunCount) {
+    try {
+      this.telemetry.reportTelemetry(SCMPacketType.LO, (int) Math.min(overrunCount, Integer.MAX_VALUE));
+    } catch (Exception e) {
+      System.err.println("Unable to log errors!");
+      e.printStackTrace();
+    }
+  }
+
+  public void tick() {
+    this.looper.tick(this.errorListener);
+  }
+
+  /**
+   * Report an exception thrown by an event to telemetry.
+   */
+  private void onLooperError(Object tag, Looper from, Exception exception) {
+    try {
+      this.telemetry.reportError(Errors.TOP_LEVEL_EXCEPTION);
+    } catch (Exception e) {
+      System.err.println("Unable to log errors!");
+      e.printStackTrace();
+    }
   }
 }
@@ -0,0 +1,138 @@
+package org.rocketproplab.marginalstability.flightcomputer;
+
+/**
+ * Timing statistics for the fixed rate main loop of the
+ * {@link FlightComputer}. All durations are in nanoseconds.<br>
+ * <br>
+ * The jitter of a tick is how late it started compared to when it was
+ * scheduled to start. A tick overruns if it finishes after the next tick was
+ * supposed to start.
+ */
+public class LoopStatistics {
+  private long tickCount;
+  private long overrunCount;
+
+  private long lastDuration;
+  private long minDuration;
+  private long maxDuration;
+  private long totalDuration;
+
+  private long lastJitter;
+  private long maxJitter;
+  private long totalJitter;
+
+  /**
+   * Create a new set of statistics with no ticks recorded.
+   */
+  public LoopStatistics() {
+    this.reset();
+  }
+
+  /**
+   * Clear all recorded ticks.
+   */
+  public synchronized void reset() {
+    this.tickCount     = 0;
+    this.overrunCount  = 0;
+    this.lastDuration  = 0;
+    this.minDuration   = Long.MAX_VALUE;
+    this.maxDuration   = 0;
+    this.totalDuration = 0;
+    this.lastJitter    = 0;
+    this.maxJitter     = 0;
+    this.totalJitter   = 0;
+  }
+
+  /**
+   * Record the timing of a single tick.
+   *
+   * @param jitter   how late the tick started in nanoseconds
+   * @param duration how long the tick took in nanoseconds
+   * @param overrun  if the tick finished after the next tick should have
+   *                 started
+   */
+  public synchronized void recordTick(long jitter, long duration, boolean overrun) {
+    this.tickCount++;
+    if (overrun) {
+      this.overrunCount++;
+    }
+
+    this.lastDuration   = duration;
+    this.minDuration    = Math.min(this.minDuration, duration);
+    this.maxDuration    = Math.max(this.maxDuration, duration);
+    this.totalDuration += duration;
+
+    this.lastJitter   = jitter;
+    this.maxJitter    = Math.max(this.maxJitter, jitter);
+    this.totalJitter += jitter;
+  }
+
+  /**
+   * @return how many ticks have been recorded
+   */
+  public synchronized long getTickCount() {
+    return this.tickCount;
+  }
+
+  /**
+   * @return how many ticks finished after the next tick should have started
+   */
+  public synchronized long getOverrunCount() {
+    return this.overrunCount;
+  }
+
+  /**
+   * @return duration of the most recent tick in nanoseconds
+   */
+  public synchronized long getLastDuration() {
+    return this.lastDuration;
+  }
+
+  /**
+   * @return shortest tick duration in nanoseconds, 0 if no ticks recorded
+   */
+  public synchronized long getMinDuration() {
+    return this.tickCount == 0 ? 0 : this.minDuration;
+  }
+
+  /**
+   * @return longest tick duration in nanoseconds
+   */
+  public synchronized long getMaxDuration() {
+    return this.maxDuration;
+  }
+
+  /**
+   * @return mean tick duration in nanoseconds, NaN if no ticks recorded
+   */
+  public synchronized double getMeanDuration() {
+    if (this.tickCount == 0) {
+      return Double.NaN;
+    }
+    return (double) this.totalDuration / this.tickCount;
+  }
+
+  /**
+   * @return jitter of the most recent tick in nanoseconds
+   */
+  public synchronized long getLastJitter() {
+    return this.lastJitter;
+  }
+
+  /**
+   * @return largest jitter seen in nanoseconds
+   */
+  public synchronized long getMaxJitter() {
+    return this.maxJitter;
+  }
+
+  /**
+   * @return mean jitter in nanoseconds, NaN if no ticks recorded
+   */
+  public synchronized double getMeanJitter() {
+    if (this.tickCount == 0) {
+      return Double.NaN;
+    }
+    return (double) this.totalJitter / this.tickCount;
+  }
+}
@@ -3,6 +3,7 @@ package org.rocketproplab.marginalstability.flightcomputer;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRouter;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketSources;
 import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.*;
 
 /**
@@ -51,9 +52,7 @@ public class Main {
     Main.registerSubsystems(flightComputer);
     Main.registerPacketListeners();
 
-//    while(true) {
-//      flightComputer.tick();
-//    }
+    flightComputer.run(Settings.LOOP_RATE);
   }
 
   private static void registerSubsystems(FlightComputer flightComputer) {
@@ -61,6 +60,14 @@ public class Main {
 
     telemetry.logInfo(Info.INIT_SUBSYSTEMS_START);
 
+    TelemetryScheduler telemetryScheduler = new TelemetryScheduler(PacketRouter.getInstance(),
+        flightComputer.getTime(), Settings.TELEMETRY_LINK_BUDGET, Settings.TELEMETRY_BURST_SIZE);
+    telemetry.setRelay(telemetryScheduler);
+    telemetry.setTime(flightComputer.getTime());
+    flightComputer.registerSubsystem(telemetryScheduler);
+    flightComputer.registerSubsystem(telemetry);
+    Main.setTelemetryDeadbands(telemetry);
+
     flightComputer.registerSubsystem(ParachuteSubsystem.getInstance());
     ValveStateSubsystem.getInstance();
 
@@ -74,6 +81,21 @@ public class Main {
     telemetry.logInfo(Info.FINISH_SUBSYSTEM_START);
   }
 
+  private static void setTelemetryDeadbands(Telemetry telemetry) {
+    SCMPacketType[] thermocouples = { SCMPacketType.T0, SCMPacketType.T1, SCMPacketType.T2,
+        SCMPacketType.T3, SCMPacketType.T4 };
+    SCMPacketType[] pressures     = { SCMPacketType.P0, SCMPacketType.P1, SCMPacketType.P2,
+        SCMPacketType.P3, SCMPacketType.P4, SCMPacketType.P5, SCMPacketType.P6, SCMPacketType.P7,
+        SCMPacketType.P8, SCMPacketType.P9, SCMPacketType.PA, SCMPacketType.PB, SCMPacketType.PC,
+        SCMPacketType.PD, SCMPacketType.PE, SCMPacketType.PF };
+    for (SCMPacketType type : thermocouples) {
+      telemetry.setDeadband(type, Settings.THERMOCOUPLE_DEADBAND, Settings.TELEMETRY_KEEPALIVE);
+    }
+    for (SCMPacketType type : pressures) {
+      telemetry.setDeadband(type, Settings.PRESSURE_DEADBAND, Settings.TELEMETRY_KEEPALIVE);
+    }
+  }
+
   private static void addSensors(SensorSubsystem sensorSubsystem) {
     Telemetry telemetry = Telemetry.getInstance();
 
@@ -49,11 +49,39 @@ public class Settings {
    */
   public static final double EQUALS_EPSILON = 0.00000001;
 
+  @SettingSectionHeader(name = "Main Loop Settings")
+
+  @UserSetting(comment = "Rate at which the main loop ticks the flight computer", units = "Hz")
+  public static double LOOP_RATE = 100;
+
+  @UserSetting(comment = "Time before each tick during which the main loop busy waits instead of sleeping", units = "s")
+  public static double LOOP_SPIN_TIME = 0.0002;
+
+  @UserSetting(comment = "Interval at which the loop overrun count is sent once the main loop has overrun", units = "s")
+  public static double LOOP_OVERRUN_REPORT_INTERVAL = 1;
+
   @SettingSectionHeader(name = "Heartbeat Settings")
 
   @UserSetting(comment = "Threshold for periodic heart beat signal", units = "s")
   public static double HEARTBEAT_THRESHOLD = 1;
 
+  @SettingSectionHeader(name = "Telemetry Settings")
+
+  @UserSetting(comment = "Bytes per second the radio link to the command box can carry", units = "B/s")
+  public static double TELEMETRY_LINK_BUDGET = 960;
+
+  @UserSetting(comment = "Bytes which can be sent at once after the radio link was idle", units = "B")
+  public static double TELEMETRY_BURST_SIZE = 120;
+
+  @UserSetting(comment = "Change in temperature before a thermocouple is sent again", units = "C")
+  public static double THERMOCOUPLE_DEADBAND = 0.5;
+
+  @UserSetting(comment = "Change in pressure before a pressure transducer is sent again", units = "PSI")
+  public static double PRESSURE_DEADBAND = 1;
+
+  @UserSetting(comment = "Longest time between two packets of a channel with a deadband", units = "s")
+  public static double TELEMETRY_KEEPALIVE = 1;
+
   @SettingSectionHeader(name = "PT Quadratic Regression")
 
   @UserSetting(comment = "'a' constant for quadratic regression for pressure transducers", units = "hPa / V^2")
@@ -76,6 +104,15 @@ public class Settings {
   @UserSetting(comment = "Frequency of reference oscillator for the MAX14830, currently a LFXTAL003260 labeled X1 in the schematic.", units = "Hz")
   public static int MAX14830_F_REF = 3686400;
 
+  @UserSetting(comment = "Bytes queued per MAX14830 UART waiting for room in the TX FIFO, more is dropped", units = "B")
+  public static int MAX14830_TX_QUEUE_SIZE = 1024;
+
+  @UserSetting(comment = "RX FIFO fill level which raises a MAX14830 interrupt, rounded down to a multiple of 8", units = "B")
+  public static int MAX14830_RX_TRIGGER_LEVEL = 32;
+
+  @UserSetting(comment = "How long received data waits in the MAX14830 RX FIFO before raising an interrupt", units = "character times")
+  public static int MAX14830_RX_TIMEOUT = 4;
+
   @SettingSectionHeader(name = "LSM9DS1 settings")
 
   public static double LSM9DS1_SENSITIVITY_ACCELEROMETER_2G     = 0.00006103;
@@ -1,21 +1,83 @@
 package org.rocketproplab.marginalstability.flightcomputer;
 
 /**
- * A class to get the current rocket time. At the moment its implementation
- * passed through to System.currentTimeMillis but this might change.
- * 
+ * A class to get the current rocket time. The time is measured with
+ * System.nanoTime so it is monotonic and has sub millisecond resolution. It is
+ * offset so that it starts at the wall clock time (in seconds since the epoch)
+ * when the Time was created.<br>
+ * <br>
+ * During a {@link org.rocketproplab.marginalstability.flightcomputer.looper.Looper
+ * Looper} tick the time is latched, all calls to {@link #getSystemTime()} from
+ * the thread running the tick return the same value. This keeps everything in
+ * a tick consistent and avoids reading the clock over and over. Other threads
+ * are not affected by the latch.
+ *
  * @author Max Apodaca
  *
  */
 public class Time {
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final long   originNanos;
+  private final double originTime;
+
+  private Thread latchOwner;
+  private double latchedTime;
+
+  /**
+   * Create a new time starting at the current wall clock time.
+   */
+  public Time() {
+    this.originNanos = System.nanoTime();
+    this.originTime  = System.currentTimeMillis() / Settings.MS_PER_SECOND;
+    this.latchOwner  = null;
+    this.latchedTime = Double.NaN;
+  }
 
   /**
    * Get the rocket time, this might change at some point in the future. This
-   * value should be used for all interpolations.
-   * 
-   * @return the current rocket time
+   * value should be used for all interpolations. If the time is latched by the
+   * current thread the latched value is returned.
+   *
+   * @return the current rocket time in seconds
    */
   public double getSystemTime() {
-    return System.currentTimeMillis() / Settings.MS_PER_SECOND;
+    if (this.latchOwner == Thread.currentThread()) {
+      return this.latchedTime;
+    }
+    return this.readClock();
+  }
+
+  /**
+   * Read the clock ignoring any latched value.
+   *
+   * @return the current rocket time in seconds
+   */
+  protected double readClock() {
+    return this.originTime + (System.nanoTime() - this.originNanos) / NANOS_PER_SECOND;
+  }
+
+  /**
+   * Read the clock once and return that value from {@link #getSystemTime()} on
+   * the current thread until {@link #unlatch()} is called.
+   */
+  public void latch() {
+    this.latchedTime = this.readClock();
+    this.latchOwner  = Thread.currentThread();
+  }
+
+  /**
+   * Stop returning the latched time, {@link #getSystemTime()} reads the clock
+   * again.
+   */
+  public void unlatch() {
+    this.latchOwner = null;
+  }
+
+  /**
+   * @return if the time is currently latched by the calling thread
+   */
+  public boolean isLatched() {
+    return this.latchOwner == Thread.currentThread();
   }
 }
@@ -0,0 +1,229 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
+
+/**
+ * Decouples a slow {@link PacketListener} from the thread dispatching packets.
+ * Packets are stored in a bounded single producer, single consumer ring and
+ * handed to the wrapped listener when the ring is drained, either by an
+ * {@link Executor} or by a {@link Looper} event. <br>
+ * <br>
+ * Only one thread may dispatch packets to a listener and only one thread may
+ * drain it at a time. When the ring is full the {@link OverflowPolicy} decides
+ * which packet is lost.
+ *
+ * @param <E> The type of packet to listen for
+ */
+public class AsyncPacketListener<E> implements PacketListener<E> {
+
+  /**
+   * What to do with a packet that arrives while the ring is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * Discard the oldest queued packet to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the new packet.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Wait on the dispatching thread until the listener has caught up. Must not
+     * be used when the ring is drained on the dispatching thread.
+     */
+    BLOCK
+  }
+
+  private static final long BLOCK_PARK_NANOS = 10_000;
+
+  private final PacketListener<E>            listener;
+  private final OverflowPolicy               policy;
+  private final AtomicReferenceArray<Object> packets;
+  private final PacketDirection[]            directions;
+  private final int                          mask;
+  private final AtomicLong                   head;
+  private final AtomicLong                   tail;
+  private final AtomicLong                   drops;
+  private final AtomicLong                   delivered;
+  private final AtomicBoolean                drainScheduled;
+  private final Runnable                     drainTask;
+  private volatile Executor                  executor;
+
+  /**
+   * Create a new asynchronous listener.
+   *
+   * @param listener the listener to hand the packets to
+   * @param capacity how many packets can be queued, rounded up to a power of
+   *                 two
+   * @param policy   what to do when a packet arrives while the ring is full
+   */
+  public AsyncPacketListener(PacketListener<E> listener, int capacity, OverflowPolicy policy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be at least one");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.listener       = listener;
+    this.policy         = policy;
+    this.packets        = new AtomicReferenceArray<>(size);
+    this.directions     = new PacketDirection[size];
+    this.mask           = size - 1;
+    this.head           = new AtomicLong();
+    this.tail           = new AtomicLong();
+    this.drops          = new AtomicLong();
+    this.delivered      = new AtomicLong();
+    this.drainScheduled = new AtomicBoolean();
+    this.drainTask      = this::runDrainTask;
+    this.executor       = null;
+  }
+
+  @Override
+  public void onPacket(PacketDirection direction, E packet) {
+    long currentTail = this.tail.get();
+    while (currentTail - this.head.get() >= this.packets.length()) {
+      if (this.policy == OverflowPolicy.DROP_NEWEST) {
+        this.drops.incrementAndGet();
+        return;
+      } else if (this.policy == OverflowPolicy.DROP_OLDEST) {
+        long currentHead = this.head.get();
+        if (currentTail - currentHead >= this.packets.length()
+                && this.head.compareAndSet(currentHead, currentHead + 1)) {
+          this.drops.incrementAndGet();
+        }
+      } else {
+        this.scheduleDrain();
+        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+      }
+    }
+    int index = (int) (currentTail & this.mask);
+    this.packets.set(index, packet);
+    this.directions[index] = direction;
+    this.tail.set(currentTail + 1);
+    this.scheduleDrain();
+  }
+
+  /**
+   * Hand all queued packets to the wrapped listener on the calling thread.
+   *
+   * @return how many packets were handed to the listener
+   */
+  @SuppressWarnings("unchecked")
+  public int drain() {
+    int count = 0;
+    while (true) {
+      long currentHead = this.head.get();
+      if (currentHead >= this.tail.get()) {
+        return count;
+      }
+      int             index     = (int) (currentHead & this.mask);
+      Object          packet    = this.packets.get(index);
+      PacketDirection direction = this.directions[index];
+      // Clear the slot so the ring does not keep delivered packets alive. If the
+      // producer already replaced the packet it was dropped while we read it
+      if (!this.packets.compareAndSet(index, packet, null)) {
+        continue;
+      }
+      if (!this.head.compareAndSet(currentHead, currentHead + 1)) {
+        // Dropped after all, put back the same packet in case the producer
+        // had already queued it again into this slot
+        this.packets.compareAndSet(index, null, packet);
+        continue;
+      }
+      this.delivered.incrementAndGet();
+      this.listener.onPacket(direction, (E) packet);
+      count++;
+    }
+  }
+
+  /**
+   * Drain the ring on the given executor whenever packets arrive. At most one
+   * drain task is submitted at a time.
+   *
+   * @param drainExecutor the executor to drain on
+   */
+  public void drainOn(Executor drainExecutor) {
+    this.executor = drainExecutor;
+    this.scheduleDrain();
+  }
+
+  /**
+   * Drain the ring on every tick of the Looper in which packets are queued.
+   *
+   * @param looper the Looper to drain on
+   * @param tag    to identify the event draining the ring
+   */
+  public void drainOn(Looper looper, Object tag) {
+    looper.emitIf(tag, () -> this.getDepth() > 0, (eventTag, from) -> this.drain());
+  }
+
+  private void scheduleDrain() {
+    Executor current = this.executor;
+    if (current != null && this.getDepth() > 0 && this.drainScheduled.compareAndSet(false, true)) {
+      current.execute(this.drainTask);
+    }
+  }
+
+  private void runDrainTask() {
+    try {
+      this.drain();
+    } finally {
+      this.drainScheduled.set(false);
+    }
+    // Packets that arrived after the last check would otherwise wait
+    this.scheduleDrain();
+  }
+
+  /**
+   * @return how many packets are queued
+   */
+  public int getDepth() {
+    return (int) Math.max(0, this.tail.get() - this.head.get());
+  }
+
+  /**
+   * @return how many packets fit in the ring
+   */
+  public int getCapacity() {
+    return this.packets.length();
+  }
+
+  /**
+   * @return how many packets were discarded because the ring was full
+   */
+  public long getDropCount() {
+    return this.drops.get();
+  }
+
+  /**
+   * @return how many packets were handed to the wrapped listener
+   */
+  public long getDeliveredCount() {
+    return this.delivered.get();
+  }
+
+  /**
+   * @return what happens to packets arriving while the ring is full
+   */
+  public OverflowPolicy getPolicy() {
+    return this.policy;
+  }
+
+  /**
+   * @return the listener packets are handed to
+   */
+  public PacketListener<E> getListener() {
+    return this.listener;
+  }
+}
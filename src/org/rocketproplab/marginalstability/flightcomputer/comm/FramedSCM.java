@@ -1,5 +1,6 @@
 package org.rocketproplab.marginalstability.flightcomputer.comm;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -21,17 +22,47 @@ import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
  * SCMPacket in flight at a time. This means we need to ack with a
  * {@link SCMPacketType#XB} in response to the {@link SCMPacketType#XS} and
  * {@link SCMPacketType#X1} types and with a {@link SCMPacketType#XA} in
- * response to the {@link SCMPacketType#X0} type.
+ * response to the {@link SCMPacketType#X0} type.<br>
+ * <br>
+ * Newer ground software can use a windowed mode which does not have to wait
+ * for an ack after each frame. The message is sent in the same format, four
+ * characters per frame, in {@link SCMPacketType#XT} and
+ * {@link SCMPacketType#XW} packets. The first character of each frame is its
+ * sequence number, a digit or upper case letter counting from 0 to Z and then
+ * wrapping around. XT starts a new message at any sequence number, XW
+ * continues it. Every frame is answered with a cumulative
+ * {@link SCMPacketType#XC} ack carrying the sequence number of the last frame
+ * received in order. Frames which arrive early but within the window are
+ * held until the frames before them arrive, so the ground can keep up to the
+ * window size frames in flight and only has to resend frames after the last
+ * ack. The window can be at most {@link #MAX_WINDOW_SIZE} so that old and new
+ * sequence numbers can not be confused. Both modes can be used on the same
+ * link.
  *
  * @author Max Apodaca
  */
 public class FramedSCM implements PacketListener<SCMPacket> {
+  public static final int SEQUENCE_MODULUS    = 36;
+  public static final int MAX_WINDOW_SIZE     = SEQUENCE_MODULUS / 2;
+  public static final int DEFAULT_WINDOW_SIZE = 8;
+
+  private static final int    WINDOWED_DATA_LENGTH = SCMPacket.DATA_LENGTH - 1;
+  private static final int    MESSAGE_CAPACITY     = 256;
+  private static final String LENGTH_SEPARATOR    = "|";
+
   private Queue<String>            outputQueue;
-  private String                   activeString;
+  private StringBuilder            activeString;
   private int                      frameLength;
   private PacketRelay              sCMOutput;
   private FramedPacketProcessor    framedPacketOutput;
 
+  private final int           windowSize;
+  private final StringBuilder windowedMessage;
+  private final char[][]      windowFrames;
+  private final boolean[]     windowReceived;
+  private int                 expectedSequence;
+  private boolean             windowedActive;
+
   /**
    * Create a new SCM de-framer. SCMOutput is used to send replied to incoming SCM
    * packets while framedOutput
@@ -40,11 +71,33 @@ public class FramedSCM implements PacketListener<SCMPacket> {
    * @param framedOutput the callback to output framed packets to
    */
   public FramedSCM(PacketRelay sCMOutput, FramedPacketProcessor framedOutput) {
-    this.outputQueue   = new LinkedList<String>();
-    this.activeString  = "";
-    this.frameLength   = -1;
-    framedPacketOutput = framedOutput;
-    this.sCMOutput     = sCMOutput;
+    this(sCMOutput, framedOutput, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Create a new SCM de-framer with the given window for the windowed mode.
+   *
+   * @param sCMOutput    the packet relay to send acks to
+   * @param framedOutput the callback to output framed packets to
+   * @param windowSize   how many frames the ground may send ahead of the last
+   *                     ack, between 1 and {@link #MAX_WINDOW_SIZE}
+   */
+  public FramedSCM(PacketRelay sCMOutput, FramedPacketProcessor framedOutput, int windowSize) {
+    if (windowSize < 1 || windowSize > MAX_WINDOW_SIZE) {
+      throw new IllegalArgumentException("Window size " + windowSize + " is not between 1 and "
+              + MAX_WINDOW_SIZE);
+    }
+    this.outputQueue      = new LinkedList<String>();
+    this.activeString     = new StringBuilder(MESSAGE_CAPACITY);
+    this.frameLength      = -1;
+    framedPacketOutput    = framedOutput;
+    this.sCMOutput        = sCMOutput;
+    this.windowSize       = windowSize;
+    this.windowedMessage  = new StringBuilder(MESSAGE_CAPACITY);
+    this.windowFrames     = new char[SEQUENCE_MODULUS][WINDOWED_DATA_LENGTH];
+    this.windowReceived   = new boolean[SEQUENCE_MODULUS];
+    this.expectedSequence = 0;
+    this.windowedActive   = false;
   }
 
   @Override
@@ -79,19 +132,22 @@ public class FramedSCM implements PacketListener<SCMPacket> {
     if (!incomingPacket.isValid()) {
       return null;
     }
-    if (incomingPacket.getID() == SCMPacketType.XS) {
+    if (incomingPacket.getID() == SCMPacketType.XT
+            || incomingPacket.getID() == SCMPacketType.XW) {
+      return processWindowedPacket(incomingPacket);
+    } else if (incomingPacket.getID() == SCMPacketType.XS) {
       returnpacket = processXSPacket(incomingPacket);
       completed    = false;
     } else if (incomingPacket.getID() == SCMPacketType.X0) {
       returnpacket = processX0Packet(incomingPacket);
 
     } else {
-      activeString += incomingPacket.getData().trim();
+      activeString.append(incomingPacket.getData().trim());
       returnpacket = new SCMPacket(SCMPacketType.XB, "     ");
     }
 
     if ((activeString.length() == frameLength) && (!completed)) {
-      finalmessage = activeString;
+      finalmessage = activeString.toString();
       this.outputQueue.add(finalmessage);
     }
     return returnpacket;
@@ -102,15 +158,16 @@ public class FramedSCM implements PacketListener<SCMPacket> {
     int lengthofframeleft = frameLength - activeString.length();
     if (frameLength == -1) {
       String[] SCMmessagesplit = incomingPacket.getData().split("\\|");
-      activeString += SCMmessagesplit[0];
-      frameLength  = Integer.parseInt(activeString);
-      activeString = SCMmessagesplit[1];
+      activeString.append(SCMmessagesplit[0]);
+      frameLength = Integer.parseInt(activeString.toString());
+      activeString.setLength(0);
+      activeString.append(SCMmessagesplit[1]);
       // TODO Similar to XS, where if the frameLength is still less than 0 or 
       // does not split into several indices
     } else if (lengthofframeleft < incomingPacket.getData().length()) {
-      activeString += incomingPacket.getData().substring(0, lengthofframeleft);
+      activeString.append(incomingPacket.getData(), 0, lengthofframeleft);
     } else {
-      activeString += incomingPacket.getData().trim();
+      activeString.append(incomingPacket.getData().trim());
     }
     return new SCMPacket(SCMPacketType.XA, "     ");
   }
@@ -126,21 +183,90 @@ public class FramedSCM implements PacketListener<SCMPacket> {
       if (SCMmessagesplit.length == 2) {
         if (frameLength < 0) {
           return null;
-        } else if (frameLength < SCMmessagesplit[1].length()) {
-          activeString = SCMmessagesplit[1].substring(0, frameLength);
-        } else {
-          activeString = SCMmessagesplit[1];
         }
+        activeString.setLength(0);
+        activeString.append(SCMmessagesplit[1], 0, Math.min(frameLength, SCMmessagesplit[1].length()));
       }
     } else {
       String getint = incomingPacket.getData();
-      activeString = "" + Integer.parseInt(getint);
-      frameLength  = -1;
+      int    prefix = Integer.parseInt(getint);
+      activeString.setLength(0);
+      activeString.append(prefix);
+      frameLength = -1;
     }
 
     return new SCMPacket(SCMPacketType.XB, "     ");
   }
 
+  /**
+   * Process a frame of the windowed mode and build the cumulative ack for it.
+   *
+   * @param incomingPacket the XT or XW packet
+   * @return the ack to reply with, null if the frame is malformed
+   */
+  private SCMPacket processWindowedPacket(SCMPacket incomingPacket) {
+    String data     = incomingPacket.getData();
+    int    sequence = Character.digit(data.charAt(0), SEQUENCE_MODULUS);
+    if (sequence < 0 || Character.isLowerCase(data.charAt(0))) {
+      return null;
+    }
+    if (incomingPacket.getID() == SCMPacketType.XT) {
+      this.windowedMessage.setLength(0);
+      Arrays.fill(this.windowReceived, false);
+      this.expectedSequence = sequence;
+      this.windowedActive   = true;
+    }
+    int distance = Math.floorMod(sequence - this.expectedSequence, SEQUENCE_MODULUS);
+    if (this.windowedActive && distance < this.windowSize) {
+      // Frames are held by sequence number, the window never spans more than
+      // half the sequence space so an in window sequence has a unique slot
+      data.getChars(1, SCMPacket.DATA_LENGTH, this.windowFrames[sequence], 0);
+      this.windowReceived[sequence] = true;
+      this.appendReceivedFrames();
+    }
+    int  lastInOrder = Math.floorMod(this.expectedSequence - 1, SEQUENCE_MODULUS);
+    char ackChar     = Character.toUpperCase(Character.forDigit(lastInOrder, SEQUENCE_MODULUS));
+    return new SCMPacket(SCMPacketType.XC, ackChar + "    ");
+  }
+
+  /**
+   * Move the frames which are now in order from the window into the message
+   * and finish the message once it is complete.
+   */
+  private void appendReceivedFrames() {
+    while (this.windowedActive && this.windowReceived[this.expectedSequence]) {
+      this.windowReceived[this.expectedSequence] = false;
+      this.windowedMessage.append(this.windowFrames[this.expectedSequence]);
+      this.expectedSequence = (this.expectedSequence + 1) % SEQUENCE_MODULUS;
+      this.checkWindowedMessage();
+    }
+  }
+
+  private void checkWindowedMessage() {
+    int separator = this.windowedMessage.indexOf(LENGTH_SEPARATOR);
+    if (separator < 0) {
+      return;
+    } else if (separator == 0) {
+      this.windowedActive = false;
+      return;
+    }
+    int length = 0;
+    for (int i = 0; i < separator; i++) {
+      int digit = Character.digit(this.windowedMessage.charAt(i), 10);
+      if (digit < 0 || length > (Integer.MAX_VALUE - digit) / 10) {
+        this.windowedActive = false;
+        return;
+      }
+      length = length * 10 + digit;
+    }
+    int start = separator + 1;
+    if (this.windowedMessage.length() - start < length) {
+      return;
+    }
+    this.outputQueue.add(this.windowedMessage.substring(start, start + length));
+    this.windowedActive = false;
+  }
+
   /**
    * Determines if there is a completed message in the output queue.
    *
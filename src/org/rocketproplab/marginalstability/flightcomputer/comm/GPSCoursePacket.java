@@ -0,0 +1,78 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import org.rocketproplab.marginalstability.flightcomputer.Settings;
+
+/**
+ * The ground speed and course over ground reported by the GPS in an RMC or VTG
+ * sentence.
+ */
+public class GPSCoursePacket {
+
+  private double groundSpeed;
+  private double course;
+  private double time;
+
+  /**
+   * Create a new course packet.
+   * 
+   * @param groundSpeed the speed over ground in m/s
+   * @param course      the course over ground in degrees from true north
+   * @param time        the UTC time of the last fix in hhmmss.ss format
+   */
+  public GPSCoursePacket(double groundSpeed, double course, double time) {
+    this.groundSpeed = groundSpeed;
+    this.course      = course;
+    this.time        = time;
+  }
+
+  /**
+   * @return the speed over ground in m/s
+   */
+  public double getGroundSpeed() {
+    return this.groundSpeed;
+  }
+
+  /**
+   * @return the course over ground in degrees from true north, NaN if the GPS
+   *         did not report one
+   */
+  public double getCourse() {
+    return this.course;
+  }
+
+  /**
+   * @return the UTC time of the last fix in hhmmss.ss format
+   */
+  public double getTime() {
+    return this.time;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof GPSCoursePacket)) {
+      return false;
+    }
+    GPSCoursePacket other = (GPSCoursePacket) o;
+    boolean         equal = Math.abs(this.groundSpeed - other.groundSpeed) < Settings.EQUALS_EPSILON;
+    equal &= Math.abs(this.course - other.course) < Settings.EQUALS_EPSILON
+            || Double.isNaN(this.course) && Double.isNaN(other.course);
+    equal &= Math.abs(this.time - other.time) < Settings.EQUALS_EPSILON
+            || Double.isNaN(this.time) && Double.isNaN(other.time);
+    return equal;
+  }
+
+  /**
+   * Packets which are equal may still differ by up to
+   * {@link Settings#EQUALS_EPSILON} in every value, so only a hash which
+   * ignores the values is consistent with {@link #equals(Object)}.
+   */
+  @Override
+  public int hashCode() {
+    return GPSCoursePacket.class.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "Course " + this.groundSpeed + " m/s " + this.course + " deg at " + this.time;
+  }
+}
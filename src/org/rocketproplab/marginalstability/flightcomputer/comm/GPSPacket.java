@@ -34,6 +34,26 @@ public class GPSPacket {
     this.nema = nEMA;
   }
 
+  /**
+   * Create a new valid GPS Packet from already parsed GGA values.
+   * 
+   * @param time      the UTC time of the fix in hhmmss.ss format
+   * @param latitude  the latitude in ddmm.mmmm format
+   * @param longitude the longitude in dddmm.mmmm format
+   * @param altitude  the altitude above mean sea level in m
+   * @param sVCount   the number of satellite vehicles used for the fix
+   */
+  public GPSPacket(double time, double latitude, double longitude,
+                   double altitude, int sVCount) {
+    this.valid     = true;
+    this.time      = time;
+    this.latitude  = latitude;
+    this.longitude = longitude;
+    this.altitude  = altitude;
+    this.sVCount   = sVCount;
+    this.nema      = null;
+  }
+
   /**
    * Internally parses the NEMA for the packet
    * 
@@ -126,6 +146,10 @@ public class GPSPacket {
 
   @Override
   public String toString() {
+    if (this.nema == null) {
+      return "GGA " + this.time + " " + this.latitude + " " + this.longitude
+              + " " + this.altitude + " " + this.sVCount;
+    }
     return this.nema;
   }
 
@@ -2,18 +2,28 @@ package org.rocketproplab.marginalstability.flightcomputer.comm;
 
 import org.rocketproplab.marginalstability.flightcomputer.ErrorReporter;
 import org.rocketproplab.marginalstability.flightcomputer.Errors;
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialByteListener;
 import org.rocketproplab.marginalstability.flightcomputer.events.SerialListener;
 
 /**
  * A class to handle the sending and receiving information from the GPS. It will
- * Listener to a serial port and every time a valid full NMEA packet is received
- * it will parse the packet and send it to the packet router.
+ * Listener to a serial port and feed the received data to a streaming
+ * {@link NMEAParser}. Every GGA sentence with a fix is sent to the packet
+ * router as a {@link GPSPacket}, every valid RMC and VTG sentence as a
+ * {@link GPSCoursePacket}. Sentences without a fix or with a VTG mode of not
+ * valid are dropped. Sentences may be split across serial reads. Bad checksums
+ * and sentences too long to parse are reported as separate errors.
  * 
  * @author Max Apodaca
  *
  */
-public class GPSTransceiver implements SerialListener {
+public class GPSTransceiver implements SerialListener, SerialByteListener {
+  private static final int NO_FIX = 0;
+
   private PacketRouter router;
+  private NMEAParser   parser;
+  private long         reportedChecksumErrors;
+  private long         reportedOverflows;
 
   /**
    * Create a new GPS Transceiver that
@@ -22,19 +32,78 @@ public class GPSTransceiver implements SerialListener {
    */
   public GPSTransceiver(PacketRouter router) {
     this.router = router;
+    this.parser = new NMEAParser(this::onSentence);
   }
 
   @Override
   public void onSerialData(String data) {
-    GPSPacket packet = new GPSPacket(data);
-    if (packet.isValid()) {
-      router.recivePacket(packet, PacketSources.GPS);
-    } else {
-      ErrorReporter errorReporter = ErrorReporter.getInstance();
-      String errorMsg = "Got invalid packet " + data + "!\"";
-      errorReporter.reportError(errorMsg);
+    this.parser.accept(data);
+    this.checkErrors();
+  }
+
+  /**
+   * Feed raw bytes read from the GPS serial port.
+   * 
+   * @param data   the array holding the bytes
+   * @param offset the index of the first byte
+   * @param count  how many bytes to feed
+   */
+  @Override
+  public void onSerialData(byte[] data, int offset, int count) {
+    this.parser.accept(data, offset, count);
+    this.checkErrors();
+  }
+
+  private void onSentence(NMEAParser.SentenceType type, NMEAParser parser) {
+    switch (type) {
+      case GGA:
+        if (parser.getFixQuality() == NO_FIX) {
+          break;
+        }
+        GPSPacket packet = new GPSPacket(parser.getTime(), parser.getLatitude(),
+                parser.getLongitude(), parser.getAltitude(), parser.getSVCount());
+        this.router.recivePacket(packet, PacketSources.GPS);
+        break;
+      case RMC:
+        // A valid RMC carries the same course data as VTG
+        if (parser.isFixValid()) {
+          this.routeCourse(parser);
+        }
+        break;
+      case VTG:
+        if (parser.isCourseValid()) {
+          this.routeCourse(parser);
+        }
+        break;
     }
+  }
+
+  private void routeCourse(NMEAParser parser) {
+    GPSCoursePacket course = new GPSCoursePacket(parser.getGroundSpeed(),
+            parser.getCourse(), parser.getTime());
+    this.router.recivePacket(course, PacketSources.GPS);
+  }
 
+  private void checkErrors() {
+    long checksumErrors = this.parser.getChecksumErrorCount();
+    if (checksumErrors != this.reportedChecksumErrors) {
+      this.reportedChecksumErrors = checksumErrors;
+      ErrorReporter.getInstance().reportError(Errors.NMEA_CHECKSUM_ERROR, null,
+              checksumErrors + " sentences with a bad checksum from the GPS");
+    }
+    long overflows = this.parser.getOverflowCount();
+    if (overflows != this.reportedOverflows) {
+      this.reportedOverflows = overflows;
+      ErrorReporter.getInstance().reportError(Errors.NMEA_OVERFLOW_ERROR, null,
+              overflows + " sentences too long to parse from the GPS");
+    }
+  }
+
+  /**
+   * @return the parser which holds the latest values and counters
+   */
+  public NMEAParser getParser() {
+    return this.parser;
   }
 
 }
@@ -0,0 +1,434 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+/**
+ * A streaming parser for NMEA 0183 sentences from a GNSS receiver. Bytes can be
+ * fed in chunks of any size, sentences are assembled in a fixed buffer, their
+ * checksum is validated and their numeric fields are parsed in place. The
+ * parser does not allocate after construction. <br>
+ * <br>
+ * GGA, RMC and VTG sentences from any talker are understood, all others are
+ * skipped. After a sentence has been parsed the listener is notified and can
+ * read the values with the getters of the parser. Values which are not part of
+ * the sentence keep the value of the last sentence which had them, empty
+ * fields are NaN. <br>
+ * A sentence is complete once the two checksum digits after the {@code *} are
+ * received, the trailing CR LF is not required. Latitude and longitude are in
+ * the ddmm.mmmm format of the sentence without applying the hemisphere, the
+ * same as {@link GPSPacket}.
+ */
+public class NMEAParser {
+
+  /**
+   * The kinds of sentences the parser understands.
+   */
+  public enum SentenceType {
+    /**
+     * Fix data, time, position, altitude and number of satellites.
+     */
+    GGA,
+
+    /**
+     * Recommended minimum data, time, position, ground speed and course.
+     */
+    RMC,
+
+    /**
+     * Course and ground speed.
+     */
+    VTG
+  }
+
+  /**
+   * Notified each time a sentence has been parsed.
+   */
+  @FunctionalInterface
+  public interface SentenceListener {
+    void onSentence(SentenceType type, NMEAParser parser);
+  }
+
+  /**
+   * Longest sentence allowed by the standard without the $ and CR LF.
+   */
+  public static final int MAX_SENTENCE_LENGTH = 80;
+
+  private static final int    MAX_FIELDS          = 32;
+  private static final int    ADDRESS_LENGTH      = 5;
+  private static final double METERS_PER_KNOT     = 1852.0 / 3600.0;
+  private static final double METERS_PER_KM_HOUR  = 1000.0 / 3600.0;
+  private static final int    MAX_DIGITS          = 18;
+  private static final double[] POWERS_OF_TEN     = new double[MAX_DIGITS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private enum State {
+    WAIT_START, BODY, CHECKSUM_HIGH, CHECKSUM_LOW
+  }
+
+  private final SentenceListener listener;
+  private final byte[]           sentence;
+  private final int[]            fieldStarts;
+
+  private State state;
+  private int   length;
+  private int   fieldCount;
+  private int   checksum;
+  private int   receivedChecksum;
+
+  private long sentences;
+  private long checksumErrors;
+  private long overflows;
+
+  private double  time;
+  private double  latitude;
+  private double  longitude;
+  private double  altitude;
+  private int     sVCount;
+  private int     fixQuality;
+  private boolean fixValid;
+  private boolean courseValid;
+  private double  groundSpeed;
+  private double  course;
+
+  /**
+   * Create a new parser.
+   *
+   * @param listener to notify of every parsed sentence
+   */
+  public NMEAParser(SentenceListener listener) {
+    this.listener    = listener;
+    this.sentence    = new byte[MAX_SENTENCE_LENGTH];
+    this.fieldStarts = new int[MAX_FIELDS + 1];
+    this.state       = State.WAIT_START;
+    this.time        = Double.NaN;
+    this.latitude    = Double.NaN;
+    this.longitude   = Double.NaN;
+    this.altitude    = Double.NaN;
+    this.groundSpeed = Double.NaN;
+    this.course      = Double.NaN;
+  }
+
+  /**
+   * Feed characters received from the GNSS receiver.
+   *
+   * @param data the received characters
+   */
+  public void accept(CharSequence data) {
+    for (int i = 0; i < data.length(); i++) {
+      this.accept((byte) data.charAt(i));
+    }
+  }
+
+  /**
+   * Feed bytes received from the GNSS receiver.
+   *
+   * @param data   the array holding the bytes
+   * @param offset the index of the first byte
+   * @param count  how many bytes to feed
+   */
+  public void accept(byte[] data, int offset, int count) {
+    for (int i = offset; i < offset + count; i++) {
+      this.accept(data[i]);
+    }
+  }
+
+  /**
+   * Feed a single byte received from the GNSS receiver.
+   *
+   * @param b the received byte
+   */
+  public void accept(byte b) {
+    if (b == '$') {
+      this.startSentence();
+      return;
+    }
+    switch (this.state) {
+      case WAIT_START:
+        break;
+      case BODY:
+        this.acceptBody(b);
+        break;
+      case CHECKSUM_HIGH:
+        this.acceptChecksumDigit(b, State.CHECKSUM_LOW);
+        break;
+      case CHECKSUM_LOW:
+        this.acceptChecksumDigit(b, State.WAIT_START);
+        if (this.state == State.WAIT_START) {
+          this.finishSentence();
+        }
+        break;
+    }
+  }
+
+  private void startSentence() {
+    this.state            = State.BODY;
+    this.length           = 0;
+    this.fieldCount       = 1;
+    this.fieldStarts[0]   = 0;
+    this.checksum         = 0;
+    this.receivedChecksum = 0;
+  }
+
+  private void acceptBody(byte b) {
+    if (b == '*') {
+      this.fieldStarts[this.fieldCount] = this.length + 1;
+      this.state = State.CHECKSUM_HIGH;
+      return;
+    }
+    if (b == '\r' || b == '\n') {
+      // Sentences without a checksum are not trusted
+      this.checksumErrors++;
+      this.state = State.WAIT_START;
+      return;
+    }
+    if (this.length == this.sentence.length || (b == ',' && this.fieldCount == MAX_FIELDS)) {
+      this.overflows++;
+      this.state = State.WAIT_START;
+      return;
+    }
+    this.checksum ^= b;
+    this.sentence[this.length++] = b;
+    if (b == ',') {
+      this.fieldStarts[this.fieldCount++] = this.length;
+    }
+  }
+
+  private void acceptChecksumDigit(byte b, State next) {
+    int digit = Character.digit(b, 16);
+    if (digit < 0) {
+      this.checksumErrors++;
+      this.state = State.WAIT_START;
+      return;
+    }
+    this.receivedChecksum = this.receivedChecksum * 16 + digit;
+    this.state            = next;
+  }
+
+  private void finishSentence() {
+    if (this.receivedChecksum != this.checksum) {
+      this.checksumErrors++;
+      return;
+    }
+    this.sentences++;
+    if (this.getFieldLength(0) != ADDRESS_LENGTH) {
+      return;
+    }
+    SentenceType type = this.getSentenceType();
+    if (type == null) {
+      return;
+    }
+    switch (type) {
+      case GGA:
+        this.time       = this.parseDouble(1);
+        this.latitude   = this.parseDouble(2);
+        this.longitude  = this.parseDouble(4);
+        this.fixQuality = this.parseInt(6);
+        this.sVCount    = this.parseInt(7);
+        this.altitude   = this.parseDouble(9);
+        break;
+      case RMC:
+        this.time        = this.parseDouble(1);
+        this.fixValid    = this.fieldEquals(2, 'A');
+        this.latitude    = this.parseDouble(3);
+        this.longitude   = this.parseDouble(5);
+        this.groundSpeed = this.parseDouble(7) * METERS_PER_KNOT;
+        this.course      = this.parseDouble(8);
+        break;
+      case VTG:
+        // The mode indicator was added in NMEA 2.3, older sentences have none
+        this.courseValid = !this.fieldEquals(9, 'N');
+        this.course      = this.parseDouble(1);
+        double kmPerHour = this.parseDouble(7);
+        if (Double.isNaN(kmPerHour)) {
+          this.groundSpeed = this.parseDouble(5) * METERS_PER_KNOT;
+        } else {
+          this.groundSpeed = kmPerHour * METERS_PER_KM_HOUR;
+        }
+        break;
+    }
+    this.listener.onSentence(type, this);
+  }
+
+  private SentenceType getSentenceType() {
+    byte first  = this.sentence[2];
+    byte second = this.sentence[3];
+    byte third  = this.sentence[4];
+    if (first == 'G' && second == 'G' && third == 'A') {
+      return SentenceType.GGA;
+    } else if (first == 'R' && second == 'M' && third == 'C') {
+      return SentenceType.RMC;
+    } else if (first == 'V' && second == 'T' && third == 'G') {
+      return SentenceType.VTG;
+    }
+    return null;
+  }
+
+  private int getFieldLength(int field) {
+    return this.fieldStarts[field + 1] - this.fieldStarts[field] - 1;
+  }
+
+  private boolean fieldEquals(int field, char c) {
+    return field < this.fieldCount && this.getFieldLength(field) == 1
+            && this.sentence[this.fieldStarts[field]] == c;
+  }
+
+  /**
+   * Parse a decimal field in place.
+   *
+   * @param field the index of the field, 0 is the address
+   * @return the value of the field, NaN if it is missing, empty or malformed
+   */
+  private double parseDouble(int field) {
+    if (field >= this.fieldCount) {
+      return Double.NaN;
+    }
+    int start = this.fieldStarts[field];
+    int end   = start + this.getFieldLength(field);
+    if (start == end) {
+      return Double.NaN;
+    }
+    boolean negative = false;
+    if (this.sentence[start] == '-' || this.sentence[start] == '+') {
+      negative = this.sentence[start] == '-';
+      start++;
+    }
+    long    mantissa       = 0;
+    int     digits         = 0;
+    int     fractionDigits = 0;
+    boolean fraction       = false;
+    for (int i = start; i < end; i++) {
+      byte b = this.sentence[i];
+      if (b == '.' && !fraction) {
+        fraction = true;
+      } else if (b >= '0' && b <= '9') {
+        if (digits == MAX_DIGITS) {
+          // Further digits are below the precision of a double
+          if (!fraction) {
+            return Double.NaN;
+          }
+          continue;
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (fraction) {
+          fractionDigits++;
+        }
+      } else {
+        return Double.NaN;
+      }
+    }
+    if (digits == 0) {
+      return Double.NaN;
+    }
+    double value = mantissa / POWERS_OF_TEN[fractionDigits];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse an integer field in place.
+   *
+   * @param field the index of the field, 0 is the address
+   * @return the value of the field, 0 if it is missing, empty or malformed
+   */
+  private int parseInt(int field) {
+    double value = this.parseDouble(field);
+    return Double.isNaN(value) ? 0 : (int) value;
+  }
+
+  /**
+   * @return the UTC time of the last GGA or RMC sentence in hhmmss.ss format
+   */
+  public double getTime() {
+    return this.time;
+  }
+
+  /**
+   * @return the latitude of the last GGA or RMC sentence in ddmm.mmmm format
+   */
+  public double getLatitude() {
+    return this.latitude;
+  }
+
+  /**
+   * @return the longitude of the last GGA or RMC sentence in dddmm.mmmm format
+   */
+  public double getLongitude() {
+    return this.longitude;
+  }
+
+  /**
+   * @return the altitude above mean sea level of the last GGA sentence in m
+   */
+  public double getAltitude() {
+    return this.altitude;
+  }
+
+  /**
+   * @return the number of satellites used in the last GGA sentence
+   */
+  public int getSVCount() {
+    return this.sVCount;
+  }
+
+  /**
+   * @return the fix quality of the last GGA sentence, 0 if there is no fix
+   */
+  public int getFixQuality() {
+    return this.fixQuality;
+  }
+
+  /**
+   * @return if the last RMC sentence reported valid data
+   */
+  public boolean isFixValid() {
+    return this.fixValid;
+  }
+
+  /**
+   * @return if the mode indicator of the last VTG sentence did not mark its
+   *         data as not valid
+   */
+  public boolean isCourseValid() {
+    return this.courseValid;
+  }
+
+  /**
+   * @return the ground speed of the last RMC or VTG sentence in m/s
+   */
+  public double getGroundSpeed() {
+    return this.groundSpeed;
+  }
+
+  /**
+   * @return the course over ground of the last RMC or VTG sentence in degrees
+   *         from true north
+   */
+  public double getCourse() {
+    return this.course;
+  }
+
+  /**
+   * @return how many sentences with a valid checksum were received
+   */
+  public long getSentenceCount() {
+    return this.sentences;
+  }
+
+  /**
+   * @return how many sentences had a missing or wrong checksum
+   */
+  public long getChecksumErrorCount() {
+    return this.checksumErrors;
+  }
+
+  /**
+   * @return how many sentences were too long to be parsed
+   */
+  public long getOverflowCount() {
+    return this.overflows;
+  }
+}
@@ -1,6 +1,6 @@
 package org.rocketproplab.marginalstability.flightcomputer.comm;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import org.rocketproplab.marginalstability.flightcomputer.ErrorReporter;
@@ -9,16 +9,21 @@ import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
 
 /**
  * Routes packets of any type to their destination. <br>
- * The routing works by having a Map between the type and source of the packet
- * to a list of listeners. Each time sendPacket or receivePacket is called the
- * router looks up the listenerArray and iterates through with the given packet.
+ * The routing works by giving each packet type a dense id and keeping a table
+ * of listener arrays indexed by the type id and the ordinal of the source. Each
+ * time sendPacket or receivePacket is called the router looks up the listener
+ * array and iterates through with the given packet. The id of each class is
+ * cached in a {@link ClassValue} so dispatching does not hash the class.
  * <br>
  * {@link #sendPacket(Object, PacketSources)} and
  * {@link #recivePacket(Object, PacketSources)} specify the PacketDirection for
  * the packet but both broadcast to all the listeners for that packet type (the
  * class of the object) and source. See
  * {@link #dispatchPacket(Object, PacketSources, PacketDirection)} for more
- * information.
+ * information. <br>
+ * Listeners are called on the thread dispatching the packet unless they are
+ * added with
+ * {@link #addAsyncListener(PacketListener, Class, PacketSources, int, AsyncPacketListener.OverflowPolicy)}.
  * 
  * @author Max Apodaca
  *
@@ -33,13 +38,27 @@ public class PacketRouter implements PacketRelay {
     return instance;
   }
 
-  private HashMap<LookupTuple, ArrayList<PacketListener<?>>> listenerMap;
+  private static final PacketListener<?>[] NO_LISTENERS = new PacketListener<?>[0];
+  private static final int                 NUM_SOURCES  = PacketSources.values().length;
+  private static final Integer             NO_CLASS_ID  = -1;
+
+  private HashMap<Class<?>, Integer> classIds;
+  private ClassValue<Integer>        classIdCache;
+  private PacketListener<?>[][][]    listenerTable;
 
   /**
    * Create a new packet router and initialize internal state
    */
   public PacketRouter() {
-    this.listenerMap = new HashMap<>();
+    this.classIds      = new HashMap<>();
+    this.classIdCache  = new ClassValue<Integer>() {
+      @Override
+      protected Integer computeValue(Class<?> type) {
+        Integer classId = classIds.get(type);
+        return classId == null ? NO_CLASS_ID : classId;
+      }
+    };
+    this.listenerTable = new PacketListener<?>[0][][];
   }
 
   @Override
@@ -59,8 +78,8 @@ public class PacketRouter implements PacketRelay {
 
   /**
    * Dispatch a packet with the given direction to all of the appropriate
-   * listeners. The packet listeners are looked up based off of a combination
-   * between the direction and class hash.
+   * listeners. The listeners are looked up by the dense id of the class of the
+   * packet and the ordinal of the source.
    * 
    * @param o         The packet to be transmitted
    * @param source    the sender of the packet
@@ -69,11 +88,13 @@ public class PacketRouter implements PacketRelay {
   @SuppressWarnings({ "unchecked", "rawtypes" })
   private void dispatchPacket(Object o, PacketSources source, PacketDirection direction) {
     try {
-      LookupTuple lookup = new LookupTuple(o.getClass(), source);
-      if (this.listenerMap.containsKey(lookup)) {
-        for (PacketListener listener : this.listenerMap.get(lookup)) {
-          listener.onPacket(direction, o);
-        }
+      int classId = this.classIdCache.get(o.getClass());
+      if (classId < 0) {
+        return;
+      }
+      PacketListener[] listeners = this.listenerTable[classId][source.ordinal()];
+      for (int i = 0; i < listeners.length; i++) {
+        listeners[i].onPacket(direction, o);
       }
     } catch (ClassCastException classExecption) {
       ErrorReporter errorReporter = ErrorReporter.getInstance();
@@ -84,54 +105,64 @@ public class PacketRouter implements PacketRelay {
   }
 
   /**
-   * Add a listener for a specific type of packet. Note that the listeners are
-   * mapped using the hash of the Class object associated with that packet.
+   * Add a listener for a specific type of packet. Each type is assigned a dense
+   * id the first time a listener is added for it, only packets of exactly that
+   * class are dispatched to the listener.
    * 
    * @param listener the packet listener listening to this packet
-   * @param type     the class which will be hashed to make lookup easier
+   * @param type     the class of the packets to listen for
    * @param source   what source to listen from
    */
   public void addListener(PacketListener<?> listener, Class<?> type, PacketSources source) {
-    LookupTuple lookup = new LookupTuple(type, source);
-    if (!this.listenerMap.containsKey(lookup)) {
-      this.listenerMap.put(lookup, new ArrayList<>());
-    }
-    ArrayList<PacketListener<?>> listeners = this.listenerMap.get(lookup);
-    listeners.add(listener);
+    int                 classId   = this.getClassId(type);
+    PacketListener<?>[] listeners = this.listenerTable[classId][source.ordinal()];
+    PacketListener<?>[] updated   = Arrays.copyOf(listeners, listeners.length + 1);
+    updated[listeners.length] = listener;
+    this.listenerTable[classId][source.ordinal()] = updated;
   }
 
   /**
-   * A class to get a nice hash code for the lookup map
+   * Add a listener which receives packets asynchronously. Packets are queued in
+   * a bounded ring and only handed to the listener once the returned
+   * {@link AsyncPacketListener} is drained, see
+   * {@link AsyncPacketListener#drainOn(java.util.concurrent.Executor)} and
+   * {@link AsyncPacketListener#drainOn(org.rocketproplab.marginalstability.flightcomputer.looper.Looper, Object)}.
    * 
-   * @author Max Apodaca
-   *
+   * @param <E>      the type of packet to listen for
+   * @param listener the packet listener listening to this packet
+   * @param type     the class of the packets to listen for
+   * @param source   what source to listen from
+   * @param capacity how many packets can be queued for the listener
+   * @param policy   what to do when a packet arrives while the queue is full
+   * @return the queue in front of the listener
    */
-  private class LookupTuple {
-
-    private int hashCode;
-
-    /**
-     * Create a new LookupTuple for the type and source
-     * 
-     * @param type   the type of packet to look for
-     * @param source the origin of the packet
-     */
-    public LookupTuple(Class<?> type, PacketSources source) {
-      this.hashCode = type.hashCode() ^ source.ordinal() << 16;
-    }
-
-    @Override
-    public int hashCode() {
-      return this.hashCode;
-    }
+  public <E> AsyncPacketListener<E> addAsyncListener(PacketListener<E> listener, Class<?> type,
+      PacketSources source, int capacity, AsyncPacketListener.OverflowPolicy policy) {
+    AsyncPacketListener<E> asyncListener = new AsyncPacketListener<>(listener, capacity, policy);
+    this.addListener(asyncListener, type, source);
+    return asyncListener;
+  }
 
-    @Override
-    public boolean equals(Object o) {
-      if (o instanceof LookupTuple) {
-        return o.hashCode() == this.hashCode;
-      }
-      return false;
+  /**
+   * Get the dense id of the packet type, assigning the next free id and a row
+   * in the listener table if the type has none yet. A new type is dropped from
+   * the id cache, which may hold no id for it from an earlier dispatch.
+   * 
+   * @param type the class of the packets
+   * @return the id of the type
+   */
+  private int getClassId(Class<?> type) {
+    Integer classId = this.classIds.get(type);
+    if (classId != null) {
+      return classId;
     }
+    int newId = this.listenerTable.length;
+    this.listenerTable = Arrays.copyOf(this.listenerTable, newId + 1);
+    this.listenerTable[newId] = new PacketListener<?>[NUM_SOURCES][];
+    Arrays.fill(this.listenerTable[newId], NO_LISTENERS);
+    this.classIds.put(type, newId);
+    this.classIdCache.remove(type);
+    return newId;
   }
 
 }
@@ -0,0 +1,145 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+/**
+ * A mutable SCM packet which is filled in by {@link SCMCodec} so that packets
+ * can be decoded and encoded without allocating. The data is stored as the raw
+ * {@link SCMPacket#DATA_LENGTH} characters of the packet. <br>
+ * Methods that return Strings or {@link SCMPacket}s allocate and are meant for
+ * code which is not on the hot path.
+ */
+public class ReusableSCMPacket {
+  private SCMPacketType id;
+  private final byte[]  data;
+  private boolean       isValid;
+
+  /**
+   * Create a new invalid packet with no id.
+   */
+  public ReusableSCMPacket() {
+    this.id      = null;
+    this.data    = new byte[SCMPacket.DATA_LENGTH];
+    this.isValid = false;
+  }
+
+  /**
+   * Set the id and data of this packet, the packet is valid if the id is not
+   * null and data has {@link SCMPacket#DATA_LENGTH} characters.
+   *
+   * @param id   the id of the packet
+   * @param data the data which the packet holds
+   */
+  public void set(SCMPacketType id, CharSequence data) {
+    this.id = id;
+    if (data == null || data.length() != SCMPacket.DATA_LENGTH) {
+      this.isValid = false;
+      return;
+    }
+    for (int i = 0; i < SCMPacket.DATA_LENGTH; i++) {
+      this.data[i] = (byte) data.charAt(i);
+    }
+    this.isValid = id != null;
+  }
+
+  /**
+   * Copy the id, data and validity of another packet.
+   *
+   * @param packet the packet to copy
+   */
+  public void set(SCMPacket packet) {
+    this.set(packet.getID(), packet.getData());
+    this.isValid = packet.isValid();
+  }
+
+  /**
+   * Mark the packet as invalid.
+   */
+  public void clear() {
+    this.id      = null;
+    this.isValid = false;
+  }
+
+  void setID(SCMPacketType id) {
+    this.id = id;
+  }
+
+  void setValid(boolean isValid) {
+    this.isValid = isValid;
+  }
+
+  byte[] getDataBytes() {
+    return this.data;
+  }
+
+  /**
+   * Gets the ID of this packet. Only valid if
+   * {@link ReusableSCMPacket#isValid()} returns true.
+   *
+   * @return the id of the packet
+   */
+  public SCMPacketType getID() {
+    return this.id;
+  }
+
+  /**
+   * Get a single character of the data. Only valid if
+   * {@link ReusableSCMPacket#isValid()} returns true.
+   *
+   * @param index the index of the character, from 0 to
+   *              {@link SCMPacket#DATA_LENGTH} - 1
+   * @return the character at that index
+   */
+  public char getDataChar(int index) {
+    return (char) (this.data[index] & 0xFF);
+  }
+
+  /**
+   * Check if the data of this packet equals the given characters without
+   * creating a String.
+   *
+   * @param other the data to compare with
+   * @return if the data is the same
+   */
+  public boolean dataEquals(CharSequence other) {
+    if (other == null || other.length() != SCMPacket.DATA_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < SCMPacket.DATA_LENGTH; i++) {
+      if (this.getDataChar(i) != other.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the data in this packet as a new String. Only valid if
+   * {@link ReusableSCMPacket#isValid()} returns true.
+   *
+   * @return the data in this packet
+   */
+  public String getData() {
+    char[] chars = new char[SCMPacket.DATA_LENGTH];
+    for (int i = 0; i < SCMPacket.DATA_LENGTH; i++) {
+      chars[i] = this.getDataChar(i);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Get whether or not this packet is valid. If invalid nothing is guarantee.
+   *
+   * @return if the data in the packet is valid
+   */
+  public boolean isValid() {
+    return this.isValid;
+  }
+
+  /**
+   * Create an immutable {@link SCMPacket} with the same id and data.
+   *
+   * @return a new packet equal to this one
+   */
+  public SCMPacket toPacket() {
+    return new SCMPacket(this.id, this.isValid ? this.getData() : null);
+  }
+}
@@ -0,0 +1,241 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes and encodes SCM packets directly from and to bytes. This produces
+ * the same bytes as {@link SCMPacket#toString()} and accepts the same packets
+ * as {@link SCMPacket#SCMPacket(String)}, but works on {@link ReusableSCMPacket}s
+ * and never allocates. <br>
+ * The decoder is stricter than {@link SCMPacket} in that the checksum has to
+ * be two digits and the packet has to end with a semicolon. <br>
+ * Each character is one byte, characters above 255 can not be encoded.
+ */
+public class SCMCodec {
+
+  private static final int  ID_LENGTH      = 2;
+  private static final int  FIRST_COMMA    = ID_LENGTH;
+  private static final int  DATA_START     = FIRST_COMMA + 1;
+  private static final int  SECOND_COMMA   = DATA_START + SCMPacket.DATA_LENGTH;
+  private static final int  CHECKSUM_START = SECOND_COMMA + 1;
+  private static final int  TERMINATOR     = SCMPacket.NUM_CHARS_PACKET - 1;
+  private static final int  CHECKSUM_MOD   = 100;
+  private static final int  ID_ALPHABET    = 36;
+  private static final byte COMMA          = ',';
+  private static final byte SEMICOLON      = ';';
+
+  /**
+   * Packet types indexed by the two characters of their id, see
+   * {@link #getIDIndex(int, int)}.
+   */
+  private static final SCMPacketType[] ID_TABLE = new SCMPacketType[ID_ALPHABET * ID_ALPHABET];
+
+  static {
+    for (SCMPacketType type : SCMPacketType.values()) {
+      String name = type.name();
+      ID_TABLE[getIDIndex(name.charAt(0), name.charAt(1))] = type;
+    }
+  }
+
+  private SCMCodec() {
+  }
+
+  /**
+   * Get the index of an id in the id table.
+   *
+   * @param first  the first character of the id
+   * @param second the second character of the id
+   * @return the index in the table, -1 if the characters can't form an id
+   */
+  private static int getIDIndex(int first, int second) {
+    int high = getIDCharIndex(first);
+    int low  = getIDCharIndex(second);
+    if (high < 0 || low < 0) {
+      return -1;
+    }
+    return high * ID_ALPHABET + low;
+  }
+
+  private static int getIDCharIndex(int c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  /**
+   * Look up the packet type with the given two character id.
+   *
+   * @param first  the first character of the id
+   * @param second the second character of the id
+   * @return the packet type, null if there is none with that id
+   */
+  public static SCMPacketType lookupID(int first, int second) {
+    int index = getIDIndex(first, second);
+    return index < 0 ? null : ID_TABLE[index];
+  }
+
+  /**
+   * Decode the {@link SCMPacket#NUM_CHARS_PACKET} bytes starting at offset into
+   * the given packet. If the bytes are not a valid packet the packet is marked
+   * invalid.
+   *
+   * @param source the bytes to decode
+   * @param offset the index of the first byte of the packet
+   * @param into   the packet to fill in
+   * @return if the packet is valid
+   */
+  public static boolean decode(byte[] source, int offset, ReusableSCMPacket into) {
+    if (offset < 0 || source.length - offset < SCMPacket.NUM_CHARS_PACKET) {
+      into.clear();
+      return false;
+    }
+    return decode(source, null, offset, into);
+  }
+
+  /**
+   * Decode a packet from the remaining bytes of the buffer starting at its
+   * position. The position is advanced past the packet even if it is invalid.
+   *
+   * @param source the buffer to read from
+   * @param into   the packet to fill in
+   * @return if the packet is valid
+   */
+  public static boolean decode(ByteBuffer source, ReusableSCMPacket into) {
+    if (source.remaining() < SCMPacket.NUM_CHARS_PACKET) {
+      into.clear();
+      return false;
+    }
+    boolean valid;
+    if (source.hasArray()) {
+      valid = decode(source.array(), null, source.arrayOffset() + source.position(), into);
+    } else {
+      valid = decode(null, source, source.position(), into);
+    }
+    source.position(source.position() + SCMPacket.NUM_CHARS_PACKET);
+    return valid;
+  }
+
+  /**
+   * Decode a packet from either an array or, if the array is null, a buffer
+   * using absolute reads. The caller checks that enough bytes are available.
+   */
+  private static boolean decode(byte[] array, ByteBuffer buffer, int offset,
+                                ReusableSCMPacket into) {
+    into.clear();
+    if (byteAt(array, buffer, offset + FIRST_COMMA) != COMMA
+            || byteAt(array, buffer, offset + SECOND_COMMA) != COMMA
+            || byteAt(array, buffer, offset + TERMINATOR) != SEMICOLON) {
+      return false;
+    }
+    int tens = byteAt(array, buffer, offset + CHECKSUM_START) - '0';
+    int ones = byteAt(array, buffer, offset + CHECKSUM_START + 1) - '0';
+    if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+      return false;
+    }
+    int    sum  = 0;
+    byte[] data = into.getDataBytes();
+    for (int i = 0; i < CHECKSUM_START; i++) {
+      byte b = byteAt(array, buffer, offset + i);
+      if (i >= DATA_START && i < SECOND_COMMA) {
+        if (b == COMMA) {
+          return false;
+        }
+        data[i - DATA_START] = b;
+      }
+      sum += b & 0xFF;
+    }
+    if (sum % CHECKSUM_MOD != tens * 10 + ones) {
+      return false;
+    }
+    SCMPacketType id = lookupID(byteAt(array, buffer, offset) & 0xFF,
+            byteAt(array, buffer, offset + 1) & 0xFF);
+    into.setID(id);
+    into.setValid(id != null);
+    return id != null;
+  }
+
+  private static byte byteAt(byte[] array, ByteBuffer buffer, int index) {
+    return array != null ? array[index] : buffer.get(index);
+  }
+
+  /**
+   * Encode the packet into {@link SCMPacket#NUM_CHARS_PACKET} bytes starting at
+   * offset. The packet has to have an id, the data of invalid packets is
+   * encoded as is.
+   *
+   * @param packet      the packet to encode
+   * @param destination the array to write to
+   * @param offset      the index to write the first byte to
+   * @return the number of bytes written
+   */
+  public static int encode(ReusableSCMPacket packet, byte[] destination, int offset) {
+    if (destination.length - offset < SCMPacket.NUM_CHARS_PACKET) {
+      throw new IndexOutOfBoundsException("Not enough space to encode SCM packet");
+    }
+    String id   = packet.getID().name();
+    byte[] data = packet.getDataBytes();
+    destination[offset]               = (byte) id.charAt(0);
+    destination[offset + 1]           = (byte) id.charAt(1);
+    destination[offset + FIRST_COMMA] = COMMA;
+    System.arraycopy(data, 0, destination, offset + DATA_START, SCMPacket.DATA_LENGTH);
+    destination[offset + SECOND_COMMA] = COMMA;
+    int checksum = checksum(destination, offset, CHECKSUM_START);
+    destination[offset + CHECKSUM_START]     = (byte) ('0' + checksum / 10);
+    destination[offset + CHECKSUM_START + 1] = (byte) ('0' + checksum % 10);
+    destination[offset + TERMINATOR]         = SEMICOLON;
+    return SCMPacket.NUM_CHARS_PACKET;
+  }
+
+  /**
+   * Encode the packet at the position of the buffer and advance the position
+   * past it.
+   *
+   * @param packet      the packet to encode
+   * @param destination the buffer to write to
+   */
+  public static void encode(ReusableSCMPacket packet, ByteBuffer destination) {
+    if (destination.remaining() < SCMPacket.NUM_CHARS_PACKET) {
+      throw new IndexOutOfBoundsException("Not enough space to encode SCM packet");
+    }
+    if (destination.hasArray()) {
+      encode(packet, destination.array(), destination.arrayOffset() + destination.position());
+      destination.position(destination.position() + SCMPacket.NUM_CHARS_PACKET);
+      return;
+    }
+    String id       = packet.getID().name();
+    byte[] data     = packet.getDataBytes();
+    int    checksum = (id.charAt(0) + id.charAt(1) + COMMA + COMMA) % CHECKSUM_MOD;
+    for (int i = 0; i < SCMPacket.DATA_LENGTH; i++) {
+      checksum = (checksum + (data[i] & 0xFF)) % CHECKSUM_MOD;
+    }
+    destination.put((byte) id.charAt(0));
+    destination.put((byte) id.charAt(1));
+    destination.put(COMMA);
+    destination.put(data);
+    destination.put(COMMA);
+    destination.put((byte) ('0' + checksum / 10));
+    destination.put((byte) ('0' + checksum % 10));
+    destination.put(SEMICOLON);
+  }
+
+  /**
+   * Sum the given bytes modulo 100, this is the SCM checksum when given all
+   * bytes up to and including the second comma.
+   *
+   * @param bytes  the bytes to sum
+   * @param offset the index of the first byte
+   * @param length how many bytes to sum
+   * @return the checksum from 0 to 99
+   */
+  public static int checksum(byte[] bytes, int offset, int length) {
+    int sum = 0;
+    for (int i = offset; i < offset + length; i++) {
+      sum += bytes[i] & 0xFF;
+    }
+    return sum % CHECKSUM_MOD;
+  }
+}
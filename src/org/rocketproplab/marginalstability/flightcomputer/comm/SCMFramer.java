@@ -0,0 +1,122 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+/**
+ * Splits a stream of serial data into SCM packets regardless of how it is
+ * chunked. <br>
+ * A valid packet always consists of the {@link SCMPacket#NUM_CHARS_PACKET}
+ * characters ending with a semicolon, so the framer keeps the most recent
+ * characters in a ring of that size and tries to decode it whenever a
+ * semicolon arrives. Characters that fall out of the ring without being part
+ * of a packet are garbage, once a packet is found after garbage the framer has
+ * resynchronised. A semicolon that does not complete a valid packet is a
+ * framing error.
+ */
+class SCMFramer {
+
+  /**
+   * Called for every packet found in the stream.
+   */
+  interface FrameListener {
+    void onFrame(ReusableSCMPacket packet);
+  }
+
+  private static final byte TERMINATOR = ';';
+
+  private final byte[]            ring;
+  private final byte[]            window;
+  private final ReusableSCMPacket packet;
+  private int                     head;
+  private int                     count;
+  private boolean                 discarded;
+
+  private long framingErrors;
+  private long resyncs;
+  private long packets;
+
+  SCMFramer() {
+    this.ring      = new byte[SCMPacket.NUM_CHARS_PACKET];
+    this.window    = new byte[SCMPacket.NUM_CHARS_PACKET];
+    this.packet    = new ReusableSCMPacket();
+    this.head      = 0;
+    this.count     = 0;
+    this.discarded = false;
+  }
+
+  /**
+   * Add a chunk of serial data and notify the listener of every packet
+   * completed by it. The packet passed to the listener is reused.
+   *
+   * @param data     the chunk of data received
+   * @param listener to notify of packets
+   */
+  void accept(CharSequence data, FrameListener listener) {
+    for (int i = 0; i < data.length(); i++) {
+      this.accept((byte) data.charAt(i), listener);
+    }
+  }
+
+  /**
+   * Add a single byte of serial data.
+   *
+   * @param b        the byte received
+   * @param listener to notify of a completed packet
+   */
+  void accept(byte b, FrameListener listener) {
+    if (this.count == this.ring.length) {
+      this.discarded = true;
+    } else {
+      this.count++;
+    }
+    this.ring[this.head] = b;
+    this.head            = (this.head + 1) % this.ring.length;
+    if (b != TERMINATOR) {
+      return;
+    }
+    if (this.count < this.ring.length) {
+      this.framingErrors++;
+      return;
+    }
+    for (int i = 0; i < this.window.length; i++) {
+      this.window[i] = this.ring[(this.head + i) % this.ring.length];
+    }
+    if (!SCMCodec.decode(this.window, 0, this.packet)) {
+      this.framingErrors++;
+      return;
+    }
+    if (this.discarded) {
+      this.resyncs++;
+    }
+    this.count     = 0;
+    this.discarded = false;
+    this.packets++;
+    listener.onFrame(this.packet);
+  }
+
+  /**
+   * @return how many semicolons did not complete a valid packet
+   */
+  long getFramingErrors() {
+    return this.framingErrors;
+  }
+
+  /**
+   * @return how many packets were found after discarding garbage
+   */
+  long getResyncs() {
+    return this.resyncs;
+  }
+
+  /**
+   * @return how many valid packets were found
+   */
+  long getPackets() {
+    return this.packets;
+  }
+
+  /**
+   * @return how many characters are waiting for the rest of their packet
+   */
+  int getPendingCount() {
+    return this.count;
+  }
+}
@@ -198,7 +198,33 @@ public enum SCMPacketType {
   /**
    * Acknowledges the receipt of the {@link #X1} packet
    */
-  XB("Extra long ack to X1");
+  XB("Extra long ack to X1"),
+
+  /**
+   * Starts a windowed extra long transmission. The first character is the
+   * sequence number of the frame, the other four are data, @see
+   * {@link FramedSCM}
+   */
+  XT("Windowed extra long start"),
+
+  /**
+   * Data for a windowed extra long transmission. The first character is the
+   * sequence number of the frame, the other four are data, @see
+   * {@link FramedSCM}
+   */
+  XW("Windowed extra long data"),
+
+  /**
+   * Cumulative ack of a windowed extra long transmission. The first character
+   * is the sequence number of the last frame received in order.
+   */
+  XC("Windowed extra long ack"),
+
+  /**
+   * Number of main loop ticks which overran since the flight computer started.
+   * Bits are integer value
+   */
+  LO("Loop overrun count");
 
   private String name;
 
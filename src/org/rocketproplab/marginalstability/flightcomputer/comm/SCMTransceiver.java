@@ -3,24 +3,28 @@ package org.rocketproplab.marginalstability.flightcomputer.comm;
 import org.rocketproplab.marginalstability.flightcomputer.ErrorReporter;
 import org.rocketproplab.marginalstability.flightcomputer.Errors;
 import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialByteListener;
 import org.rocketproplab.marginalstability.flightcomputer.events.SerialListener;
 import org.rocketproplab.marginalstability.flightcomputer.hal.SerialPort;
 
 /**
  * A class to handle the sending and receiving information from the any SCM
  * source. <br>
- * It listens for serial data and when a valid SCM packet is received in one
- * chunk it will notify the packet router of the new packet. It uses the
+ * It listens for serial data and when a valid SCM packet is received it will
+ * notify the packet router of the new packet. Packets may be split across or
+ * share chunks of serial data, see {@link SCMFramer}. It uses the
  * specified source for this as we can have multiple SCM packet sources. See
  * {@link PacketSources} for more info about packet sources.
  * 
  * @author Max Apodaca, Antonio
  *
  */
-public class SCMTransceiver implements SerialListener, PacketListener<SCMPacket> {
-  private SerialPort    serialPort;
-  private PacketRouter  router;
-  private PacketSources source;
+public class SCMTransceiver implements SerialListener, SerialByteListener, PacketListener<SCMPacket> {
+  private SerialPort              serialPort;
+  private PacketRouter            router;
+  private PacketSources           source;
+  private SCMFramer               framer;
+  private SCMFramer.FrameListener frameListener;
 
   /**
    * Create a new SCM Transceiver that will use this serial port to send and
@@ -31,22 +35,62 @@ public class SCMTransceiver implements SerialListener, PacketListener<SCMPacket>
    * @param source     where the SCM is connected to
    */
   public SCMTransceiver(SerialPort serialPort, PacketRouter router, PacketSources source) {
-    this.serialPort = serialPort;
-    this.router     = router;
-    this.source     = source;
+    this.serialPort    = serialPort;
+    this.router        = router;
+    this.source        = source;
+    this.framer        = new SCMFramer();
+    this.frameListener = this::onFrame;
   }
 
   @Override
   public void onSerialData(String data) {
-    SCMPacket packet = new SCMPacket(data);
-    if (packet.isValid()) {
-      router.recivePacket(packet, this.source);
-    } else {
+    long framingErrors = this.framer.getFramingErrors();
+    this.framer.accept(data, this.frameListener);
+    if (this.framer.getFramingErrors() != framingErrors) {
       ErrorReporter errorReporter = ErrorReporter.getInstance();
-      String errorMsg = "Got invalid packet " + data + "!";
-      errorReporter.reportError(null, null, errorMsg);
+      String errorMsg = "Got invalid packet in " + data + "!";
+      errorReporter.reportError(Errors.SCM_FRAMING_ERROR, null, errorMsg);
     }
+  }
+
+  @Override
+  public void onSerialData(byte[] data, int offset, int length) {
+    long framingErrors = this.framer.getFramingErrors();
+    for (int i = offset; i < offset + length; i++) {
+      this.framer.accept(data[i], this.frameListener);
+    }
+    long newErrors = this.framer.getFramingErrors() - framingErrors;
+    if (newErrors != 0) {
+      ErrorReporter errorReporter = ErrorReporter.getInstance();
+      String errorMsg = "Got " + newErrors + " invalid packets!";
+      errorReporter.reportError(Errors.SCM_FRAMING_ERROR, null, errorMsg);
+    }
+  }
 
+  private void onFrame(ReusableSCMPacket packet) {
+    router.recivePacket(packet.toPacket(), this.source);
+  }
+
+  /**
+   * @return how many terminators were received that did not complete a valid
+   *         packet
+   */
+  public long getFramingErrorCount() {
+    return this.framer.getFramingErrors();
+  }
+
+  /**
+   * @return how many times a valid packet was found after discarding data
+   */
+  public long getResyncCount() {
+    return this.framer.getResyncs();
+  }
+
+  /**
+   * @return how many valid packets have been received
+   */
+  public long getPacketCount() {
+    return this.framer.getPackets();
   }
 
   @Override
@@ -0,0 +1,179 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A binary telemetry frame which packs many channels into one transmission.
+ * Frames are written by {@link TelemetryFrameEncoder}, which hands out the same
+ * frame object each time, and read by
+ * {@link #decode(ByteBuffer, ChannelListener)}. All values are big endian.
+ * 
+ * <pre>
+ * offset  size  content
+ * 0       2     sync bytes 0xA5 0x5A
+ * 2       1     payload length n
+ * 3       8     rocket time in seconds as a double
+ * 11      1     number of channels
+ * 12      ...   channels, one id byte followed by the value
+ * 3 + n   2     CRC-16/CCITT-FALSE of the length byte and the payload
+ * </pre>
+ * 
+ * The low seven bits of the id byte are the ordinal of the
+ * {@link SCMPacketType}, if the high bit is set the value is an int16,
+ * otherwise a float32. <br>
+ * <br>
+ * Frames are routed as packets of this class so that listeners do not depend
+ * on the class of the underlying buffer.
+ */
+public class TelemetryFrame {
+
+  public static final byte SYNC_0             = (byte) 0xA5;
+  public static final byte SYNC_1             = (byte) 0x5A;
+  public static final int  HEADER_LENGTH      = 3;
+  public static final int  CRC_LENGTH         = 2;
+  public static final int  MAX_PAYLOAD_LENGTH = 255;
+  public static final int  MAX_FRAME_LENGTH   = HEADER_LENGTH + MAX_PAYLOAD_LENGTH + CRC_LENGTH;
+
+  static final int  LENGTH_OFFSET = 2;
+  static final int  TIME_OFFSET   = 3;
+  static final int  COUNT_OFFSET  = TIME_OFFSET + Double.BYTES;
+  static final int  FIRST_CHANNEL = COUNT_OFFSET + 1;
+  static final int  INT16_FLAG    = 0x80;
+  static final int  ORDINAL_MASK  = 0x7F;
+
+  private static final int             CRC_POLYNOMIAL = 0x1021;
+  private static final int             CRC_INITIAL    = 0xFFFF;
+  private static final int[]           CRC_TABLE      = new int[256];
+  private static final SCMPacketType[] TYPES          = SCMPacketType.values();
+
+  static {
+    for (int i = 0; i < CRC_TABLE.length; i++) {
+      int crc = i << 8;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = (crc & 0x8000) != 0 ? (crc << 1) ^ CRC_POLYNOMIAL : crc << 1;
+      }
+      CRC_TABLE[i] = crc & 0xFFFF;
+    }
+  }
+
+  /**
+   * Receives the channels of a decoded frame.
+   */
+  @FunctionalInterface
+  public interface ChannelListener {
+    void onChannel(double time, SCMPacketType type, double value);
+  }
+
+  private final ByteBuffer buffer;
+
+  /**
+   * Create a frame over the given buffer.
+   * 
+   * @param buffer the buffer which holds the frame between its position and
+   *               limit once it is complete
+   */
+  TelemetryFrame(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Get the bytes of the frame. The buffer is reused for the next frame so it
+   * has to be written out before then.
+   * 
+   * @return the buffer with the frame between its position and limit
+   */
+  public ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Decode this frame without changing the position of its buffer.
+   * 
+   * @param listener the listener to give the channels to
+   * @return if the frame is valid
+   */
+  public boolean decode(ChannelListener listener) {
+    return decode(this.buffer.duplicate(), listener);
+  }
+
+  /**
+   * Compute the CRC-16/CCITT-FALSE of a range of a buffer without changing its
+   * position.
+   * 
+   * @param buffer the buffer to read
+   * @param offset the absolute index of the first byte
+   * @param length how many bytes to include
+   * @return the 16 bit CRC
+   */
+  public static int crc16(ByteBuffer buffer, int offset, int length) {
+    int crc = CRC_INITIAL;
+    for (int i = offset; i < offset + length; i++) {
+      crc = ((crc << 8) ^ CRC_TABLE[((crc >> 8) ^ buffer.get(i)) & 0xFF]) & 0xFFFF;
+    }
+    return crc;
+  }
+
+  /**
+   * Decode the frame starting at the position of the buffer. If the frame is
+   * valid the listener is given every channel and the position is moved past
+   * the frame, otherwise the position is left as it is.
+   * 
+   * @param buffer   the buffer to read the frame from
+   * @param listener the listener to give the channels to
+   * @return if a complete and valid frame was decoded
+   */
+  public static boolean decode(ByteBuffer buffer, ChannelListener listener) {
+    int start = buffer.position();
+    if (buffer.remaining() < HEADER_LENGTH + CRC_LENGTH || buffer.get(start) != SYNC_0
+            || buffer.get(start + 1) != SYNC_1) {
+      return false;
+    }
+    int payloadLength = buffer.get(start + LENGTH_OFFSET) & 0xFF;
+    int crcOffset     = start + HEADER_LENGTH + payloadLength;
+    if (payloadLength < FIRST_CHANNEL - HEADER_LENGTH
+            || buffer.remaining() < HEADER_LENGTH + payloadLength + CRC_LENGTH) {
+      return false;
+    }
+    int crc = buffer.getShort(crcOffset) & 0xFFFF;
+    if (crc != crc16(buffer, start + LENGTH_OFFSET, payloadLength + 1)
+            || !checkChannels(buffer, start, crcOffset)) {
+      return false;
+    }
+
+    double time     = buffer.getDouble(start + TIME_OFFSET);
+    int    count    = buffer.get(start + COUNT_OFFSET) & 0xFF;
+    int    position = start + FIRST_CHANNEL;
+    for (int i = 0; i < count; i++) {
+      int           id   = buffer.get(position) & 0xFF;
+      SCMPacketType type = TYPES[id & ORDINAL_MASK];
+      if ((id & INT16_FLAG) != 0) {
+        listener.onChannel(time, type, buffer.getShort(position + 1));
+        position += 1 + Short.BYTES;
+      } else {
+        listener.onChannel(time, type, buffer.getFloat(position + 1));
+        position += 1 + Float.BYTES;
+      }
+    }
+    buffer.position(crcOffset + CRC_LENGTH);
+    return true;
+  }
+
+  /**
+   * Check that the number of channels given by the count byte fill exactly the
+   * payload and only use known packet types, so that no listener is called for
+   * a broken frame.
+   */
+  private static boolean checkChannels(ByteBuffer buffer, int start, int end) {
+    int count    = buffer.get(start + COUNT_OFFSET) & 0xFF;
+    int position = start + FIRST_CHANNEL;
+    int i        = 0;
+    for (; i < count && position < end; i++) {
+      int id = buffer.get(position) & 0xFF;
+      if ((id & ORDINAL_MASK) >= TYPES.length) {
+        return false;
+      }
+      position += 1 + ((id & INT16_FLAG) != 0 ? Short.BYTES : Float.BYTES);
+    }
+    return i == count && position == end;
+  }
+}
@@ -0,0 +1,135 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes {@link TelemetryFrame}s into one reusable buffer without allocating.
+ * A frame is started with {@link #start(double)}, channels are added until
+ * the frame is full and {@link #finish()} returns the complete frame. The
+ * same frame object and buffer are used for every frame, so a frame has to be
+ * sent before the next one is started.
+ */
+public class TelemetryFrameEncoder {
+
+  private static final int MAX_CHANNELS = 255;
+
+  private final ByteBuffer     buffer;
+  private final TelemetryFrame frame;
+  private int                  channelCount;
+  private boolean              started;
+
+  /**
+   * Create a new encoder with a heap buffer for the largest frame.
+   */
+  public TelemetryFrameEncoder() {
+    this(ByteBuffer.allocate(TelemetryFrame.MAX_FRAME_LENGTH));
+  }
+
+  /**
+   * Create a new encoder writing into the given buffer.
+   * 
+   * @param buffer the buffer to write frames into, at least
+   *               {@link TelemetryFrame#MAX_FRAME_LENGTH} bytes
+   */
+  public TelemetryFrameEncoder(ByteBuffer buffer) {
+    if (buffer.capacity() < TelemetryFrame.MAX_FRAME_LENGTH) {
+      throw new IllegalArgumentException("Buffer of " + buffer.capacity()
+              + " bytes is smaller than a frame of " + TelemetryFrame.MAX_FRAME_LENGTH);
+    }
+    this.buffer = buffer;
+    this.frame  = new TelemetryFrame(buffer);
+  }
+
+  /**
+   * Start a new frame, dropping any frame which was not finished.
+   * 
+   * @param time the rocket time of the values in the frame
+   */
+  public void start(double time) {
+    this.buffer.clear();
+    this.buffer.put(TelemetryFrame.SYNC_0);
+    this.buffer.put(TelemetryFrame.SYNC_1);
+    this.buffer.put((byte) 0);
+    this.buffer.putDouble(time);
+    this.buffer.put((byte) 0);
+    this.channelCount = 0;
+    this.started      = true;
+  }
+
+  /**
+   * Add a channel as a float32.
+   * 
+   * @param type  the packet type of the channel
+   * @param value the value of the channel
+   * @return false if the frame has no room left for the channel
+   */
+  public boolean addFloat(SCMPacketType type, float value) {
+    if (!this.hasRoom(Float.BYTES)) {
+      return false;
+    }
+    this.buffer.put((byte) type.ordinal());
+    this.buffer.putFloat(value);
+    this.channelCount++;
+    return true;
+  }
+
+  /**
+   * Add a channel as an int16.
+   * 
+   * @param type  the packet type of the channel
+   * @param value the value of the channel
+   * @return false if the frame has no room left for the channel
+   */
+  public boolean addShort(SCMPacketType type, short value) {
+    if (!this.hasRoom(Short.BYTES)) {
+      return false;
+    }
+    this.buffer.put((byte) (type.ordinal() | TelemetryFrame.INT16_FLAG));
+    this.buffer.putShort(value);
+    this.channelCount++;
+    return true;
+  }
+
+  private boolean hasRoom(int valueBytes) {
+    if (!this.started) {
+      throw new IllegalStateException("Frame has not been started");
+    }
+    int payload = this.buffer.position() - TelemetryFrame.HEADER_LENGTH;
+    return this.channelCount < MAX_CHANNELS
+            && payload + 1 + valueBytes <= TelemetryFrame.MAX_PAYLOAD_LENGTH;
+  }
+
+  /**
+   * Write the length, channel count and CRC of the current frame.
+   * 
+   * @return the frame, its buffer has the position at the start and the limit
+   *         at the end of the frame
+   */
+  public TelemetryFrame finish() {
+    if (!this.started) {
+      throw new IllegalStateException("Frame has not been started");
+    }
+    int payloadLength = this.buffer.position() - TelemetryFrame.HEADER_LENGTH;
+    this.buffer.put(TelemetryFrame.LENGTH_OFFSET, (byte) payloadLength);
+    this.buffer.put(TelemetryFrame.COUNT_OFFSET, (byte) this.channelCount);
+    int crc = TelemetryFrame.crc16(this.buffer, TelemetryFrame.LENGTH_OFFSET, payloadLength + 1);
+    this.buffer.putShort((short) crc);
+    this.buffer.flip();
+    this.started = false;
+    return this.frame;
+  }
+
+  /**
+   * @return how many channels are in the current frame
+   */
+  public int getChannelCount() {
+    return this.channelCount;
+  }
+
+  /**
+   * @return if a frame has been started and not finished yet
+   */
+  public boolean isStarted() {
+    return this.started;
+  }
+}
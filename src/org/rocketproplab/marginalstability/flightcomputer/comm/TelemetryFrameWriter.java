@@ -0,0 +1,59 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import java.nio.ByteBuffer;
+
+import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.hal.SerialPort;
+
+/**
+ * Writes the {@link TelemetryFrame}s sent to a packet source to its serial
+ * port. It is the binary counterpart of the sending side of
+ * {@link SCMTransceiver} and should be registered with the router for
+ * {@link TelemetryFrame} on the same source, usually
+ * {@link PacketSources#CommandBox}.<br>
+ * <br>
+ * Frames are written before {@link #onPacket(PacketDirection, TelemetryFrame)}
+ * returns, so the reused frame buffer may be refilled afterwards. Writing does
+ * not allocate.
+ */
+public class TelemetryFrameWriter implements PacketListener<TelemetryFrame> {
+  private final SerialPort serialPort;
+  private final byte[]     scratch;
+  private long             framesWritten;
+
+  /**
+   * Create a new frame writer for the given serial port.
+   *
+   * @param serialPort the serial port to write frames to
+   */
+  public TelemetryFrameWriter(SerialPort serialPort) {
+    this.serialPort = serialPort;
+    this.scratch    = new byte[TelemetryFrame.MAX_FRAME_LENGTH];
+  }
+
+  @Override
+  public void onPacket(PacketDirection direction, TelemetryFrame frame) {
+    if (direction != PacketDirection.SEND) {
+      return;
+    }
+    ByteBuffer buffer = frame.getBuffer();
+    int        length = buffer.remaining();
+    if (buffer.hasArray()) {
+      this.serialPort.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+    } else {
+      int position = buffer.position();
+      for (int i = 0; i < length; i++) {
+        this.scratch[i] = buffer.get(position + i);
+      }
+      this.serialPort.write(this.scratch, 0, length);
+    }
+    this.framesWritten++;
+  }
+
+  /**
+   * @return how many frames have been written to the serial port
+   */
+  public long getFramesWritten() {
+    return this.framesWritten;
+  }
+}
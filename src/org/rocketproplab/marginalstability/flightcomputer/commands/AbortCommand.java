@@ -35,4 +35,9 @@ public class AbortCommand implements Command{
 		return new Subsystem[0];
 	}
 
+	@Override
+	public CommandPriority getPriority() {
+		return CommandPriority.CRITICAL;
+	}
+
 }
@@ -29,7 +29,8 @@ public interface Command {
   public void start();
 
   /**
-   * Called when the scheduler requests the command to stop
+   * Called when the scheduler requests the command to stop, for instance when
+   * the command is preempted by a higher priority command
    */
   public void end();
 
@@ -40,4 +41,13 @@ public interface Command {
    */
   public Subsystem[] getDependencies();
 
+  /**
+   * Retrieves the priority the scheduler should run this command with.
+   * 
+   * @return the priority of the command, NORMAL unless overridden
+   */
+  public default CommandPriority getPriority() {
+    return CommandPriority.NORMAL;
+  }
+
 }
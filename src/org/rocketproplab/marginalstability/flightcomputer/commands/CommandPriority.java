@@ -0,0 +1,34 @@
+package org.rocketproplab.marginalstability.flightcomputer.commands;
+
+/**
+ * The priority with which the scheduler runs a command. Commands of a higher
+ * priority are admitted before commands of a lower priority.
+ *
+ * <ul>
+ * <li><b>CRITICAL</b> commands are safety critical, such as aborting or opening
+ * the parachutes. They are admitted in the same tick they are scheduled and end
+ * any lower priority command holding one of their subsystems.</li>
+ * <li><b>NORMAL</b> is the default priority for commands.</li>
+ * <li><b>BACKGROUND</b> commands only run when no higher priority command is
+ * waiting for their subsystems.</li>
+ * </ul>
+ */
+public enum CommandPriority {
+  CRITICAL(true),
+  NORMAL(false),
+  BACKGROUND(false);
+
+  private boolean preempts;
+
+  CommandPriority(boolean preempts) {
+    this.preempts = preempts;
+  }
+
+  /**
+   * @return if commands of this priority end lower priority commands that use
+   *         the subsystems they need
+   */
+  public boolean canPreempt() {
+    return this.preempts;
+  }
+}
@@ -93,4 +93,12 @@ public class HeartbeatCommand implements Command {
     return EMPTY_ARRAY;
   }
 
+  /**
+   * Heartbeats are routine so they run in the background.
+   */
+  @Override
+  public CommandPriority getPriority() {
+    return CommandPriority.BACKGROUND;
+  }
+
 }
@@ -40,6 +40,11 @@ public class OpenDrogueChuteCommand implements Command {
         return new Subsystem[] {parachuteSubsystem};
     }
 
+    @Override
+    public CommandPriority getPriority() {
+        return CommandPriority.CRITICAL;
+    }
+
     public static class OpenDrogueChuteFactory {
         /**
          * Get a new OpenDrogueChuteCommand
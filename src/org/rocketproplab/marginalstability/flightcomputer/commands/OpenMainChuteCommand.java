@@ -40,6 +40,11 @@ public class OpenMainChuteCommand implements Command {
         return new Subsystem[] {parachuteSubsystem};
     }
 
+    @Override
+    public CommandPriority getPriority() {
+        return CommandPriority.CRITICAL;
+    }
+
     public static class OpenMainChuteFactory {
         /**
          * Get a new OpenMainChuteCommand
@@ -0,0 +1,20 @@
+package org.rocketproplab.marginalstability.flightcomputer.events;
+
+/**
+ * A listener for the raw bytes received by a serial port. Unlike
+ * {@link SerialListener} no String is created for each message.
+ */
+@FunctionalInterface
+public interface SerialByteListener {
+
+  /**
+   * Called each time the serial port receives data. The array is reused by
+   * the port, so the bytes have to be copied if they are needed after this
+   * call returns.
+   * 
+   * @param data   the array holding the received bytes
+   * @param offset the index of the first received byte
+   * @param length how many bytes were received
+   */
+  public void onSerialData(byte[] data, int offset, int length);
+}
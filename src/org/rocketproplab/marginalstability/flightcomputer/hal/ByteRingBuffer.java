@@ -0,0 +1,138 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+/**
+ * A fixed size first in first out queue of bytes. All storage is allocated
+ * when the buffer is created, writing and reading never allocate. Writes
+ * which do not fit are cut short, the caller decides what to do with the
+ * rest. <br>
+ * The buffer is not thread safe, owners which share it between threads have
+ * to lock it.
+ */
+public class ByteRingBuffer {
+
+  private final byte[] buffer;
+  private int          head;
+  private int          size;
+
+  /**
+   * Create a new empty ring buffer.
+   * 
+   * @param capacity how many bytes the buffer can hold
+   */
+  public ByteRingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+    }
+    this.buffer = new byte[capacity];
+    this.head   = 0;
+    this.size   = 0;
+  }
+
+  /**
+   * Append as many bytes of the slice as fit.
+   * 
+   * @param data   the array holding the bytes
+   * @param offset the index of the first byte
+   * @param length how many bytes to append
+   * @return how many bytes were appended
+   */
+  public int write(byte[] data, int offset, int length) {
+    int count = Math.min(length, this.getFree());
+    int tail  = (this.head + this.size) % this.buffer.length;
+    int first = Math.min(count, this.buffer.length - tail);
+    System.arraycopy(data, offset, this.buffer, tail, first);
+    System.arraycopy(data, offset + first, this.buffer, 0, count - first);
+    this.size += count;
+    return count;
+  }
+
+  /**
+   * Append as many characters of the text as fit, each character is stored as
+   * its lowest byte.
+   * 
+   * @param data the characters to append
+   * @return how many characters were appended
+   */
+  public int write(CharSequence data) {
+    int count = Math.min(data.length(), this.getFree());
+    int tail  = (this.head + this.size) % this.buffer.length;
+    for (int i = 0; i < count; i++) {
+      this.buffer[tail] = (byte) data.charAt(i);
+      tail              = tail + 1 == this.buffer.length ? 0 : tail + 1;
+    }
+    this.size += count;
+    return count;
+  }
+
+  /**
+   * Remove bytes from the front of the buffer.
+   * 
+   * @param destination the array to copy the bytes into
+   * @param offset      the index in the destination of the first byte
+   * @param length      how many bytes to remove at most
+   * @return how many bytes were removed
+   */
+  public int read(byte[] destination, int offset, int length) {
+    int count = this.peek(destination, offset, length);
+    this.skip(count);
+    return count;
+  }
+
+  /**
+   * Copy bytes from the front of the buffer without removing them.
+   * 
+   * @param destination the array to copy the bytes into
+   * @param offset      the index in the destination of the first byte
+   * @param length      how many bytes to copy at most
+   * @return how many bytes were copied
+   */
+  public int peek(byte[] destination, int offset, int length) {
+    int count = Math.min(length, this.size);
+    int first = Math.min(count, this.buffer.length - this.head);
+    System.arraycopy(this.buffer, this.head, destination, offset, first);
+    System.arraycopy(this.buffer, 0, destination, offset + first, count - first);
+    return count;
+  }
+
+  /**
+   * Remove bytes from the front of the buffer without copying them.
+   * 
+   * @param length how many bytes to remove at most
+   * @return how many bytes were removed
+   */
+  public int skip(int length) {
+    int count = Math.min(length, this.size);
+    this.head  = (this.head + count) % this.buffer.length;
+    this.size -= count;
+    return count;
+  }
+
+  /**
+   * Remove all bytes.
+   */
+  public void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+
+  /**
+   * @return how many bytes are in the buffer
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * @return how many more bytes fit in the buffer
+   */
+  public int getFree() {
+    return this.buffer.length - this.size;
+  }
+
+  /**
+   * @return how many bytes the buffer can hold
+   */
+  public int getCapacity() {
+    return this.buffer.length;
+  }
+}
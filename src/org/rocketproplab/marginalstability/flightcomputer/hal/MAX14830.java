@@ -1,12 +1,13 @@
 package org.rocketproplab.marginalstability.flightcomputer.hal;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 
 import org.rocketproplab.marginalstability.flightcomputer.ErrorReporter;
 import org.rocketproplab.marginalstability.flightcomputer.Errors;
 import org.rocketproplab.marginalstability.flightcomputer.Settings;
 
+import com.pi4j.io.gpio.GpioPin;
+import com.pi4j.io.gpio.event.GpioPinListenerDigital;
 import com.pi4j.io.spi.SpiDevice;
 
 /**
@@ -102,39 +103,66 @@ public class MAX14830 implements PollingSensor {
     }
   }
 
-  private static final String CHARSET = "US-ASCII";
-
   private static final int  UART_SELECT_LSB_IDX = 5;
   private static final byte WRITE               = -0x80;
-  private static final int  BYTE_MSB_VALUE      = 128;
   private static final int  BITS_PER_BYTE       = 8;
 
-  private static final int TX_BUFFER_SIZE = 128;
+  private static final Port[] PORTS = Port.values();
 
-  private SpiDevice           spi;
-  private StringBuffer[]      uartBufferArray;
+  private static final int TX_BUFFER_SIZE = 128;
+  private static final int RX_BUFFER_SIZE = 128;
+
+  // Bits shared by ISR and IRQEn
+  private static final int IRQ_LSR_ERROR  = 1 << 0;
+  private static final int IRQ_RX_TRIGGER = 1 << 3;
+  private static final int IRQ_TX_EMPTY   = 1 << 5;
+  // Bit of LSR and LSRIntEn set when the RX FIFO holds data older than RxTimeOut
+  private static final int LSR_RX_TIMEOUT = 1 << 0;
+  // MODE1 bit which routes interrupts to the IRQ pin
+  private static final int MODE1_IRQ_SEL  = 1 << 7;
+  // One active low bit per UART in GlobalIRQ
+  private static final int GLOBAL_IRQ_MASK    = 0x0F;
+  private static final int FIFO_TRIGGER_UNIT  = 8;
+  private static final int FIFO_TRIGGER_MAX   = 15;
+  private static final int RX_TRIGGER_LSB_IDX = 4;
+  // Registers read in one burst starting at ISR: ISR, LSRIntEn and LSR
+  private static final int ISR_BURST_LENGTH   = 3;
+  // Registers read in one burst starting at TxFIFOLvl: TxFIFOLvl and RxFIFOLvl
+  private static final int LEVEL_BURST_LENGTH = 2;
+
+  private ByteRingBuffer[]    txQueues;
   private SerialPortAdapter[] serialPortArray;
   private int[]               txFifoLengths;
-  private Charset             charset;
+  private SPITransaction      transaction;
+  private int                 lastPollTransfers;
+  private int                 lastPollBytes;
+  private boolean             interruptMode;
+  private GpioPin             irqPin;
+  private volatile boolean    irqPending;
 
   /**
    * Create the MAX14830 and initialize the event handlers with
-   * {@link SerialPortAdapter}. TODO Use chipselect via gpio
+   * {@link SerialPortAdapter}. Each port queues at most
+   * {@link Settings#MAX14830_TX_QUEUE_SIZE} bytes for sending, all buffers are
+   * allocated here and reused on every poll. All SPI traffic goes through one
+   * {@link SPITransaction} which counts it. The ports may be written from any
+   * thread while another thread polls, each TX queue is only accessed while
+   * holding its lock. TODO Use chipselect via gpio
    * 
    * @param spi the Spi device to use, no validation is done
    */
   public MAX14830(SpiDevice spi) {
-    this.spi             = spi;
-    this.uartBufferArray = new StringBuffer[Port.values().length];
+    this.txQueues        = new ByteRingBuffer[Port.values().length];
     this.serialPortArray = new SerialPortAdapter[Port.values().length];
     this.txFifoLengths   = new int[Port.values().length];
+    this.transaction     = new SPITransaction(spi, Math.max(TX_BUFFER_SIZE, RX_BUFFER_SIZE) + 1);
     for (int i = 0; i < Port.values().length; i++) {
-      this.uartBufferArray[i] = new StringBuffer();
-      this.txFifoLengths[i]   = TX_BUFFER_SIZE;
+      this.txQueues[i]      = new ByteRingBuffer(Settings.MAX14830_TX_QUEUE_SIZE);
+      this.txFifoLengths[i] = TX_BUFFER_SIZE;
       final Port port = Port.values()[i];
-      this.serialPortArray[i] = new SerialPortAdapter(message -> this.writeToPort(port, message));
+      this.serialPortArray[i] = new SerialPortAdapter(message -> this.writeToPort(port, message),
+          (data, offset, length) -> this.writeToPort(port, data, offset, length));
     }
-    this.charset = Charset.forName(CHARSET);
   }
 
   /**
@@ -151,6 +179,53 @@ public class MAX14830 implements PollingSensor {
     return this.readRegister(command);
   }
 
+  /**
+   * Read the given per UART register.
+   * 
+   * @param port     which of the four uart channels to read from
+   * @param register the register to read
+   * @return -1 on failure or the value of the register
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  private int readRegister(Port port, Registers register) throws IOException {
+    int  uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command    = (byte) (uartSelect | register.address());
+    return this.readRegister(command);
+  }
+
+  /**
+   * Write a single byte to the given per UART register.
+   * 
+   * @param port     which of the four uart channels to write to
+   * @param register the register to write
+   * @param value    the value to write, only the lowest byte is used
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  private void writeRegister(Port port, Registers register, int value) throws IOException {
+    int  uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command    = (byte) (uartSelect | WRITE | register.address());
+    this.transaction.begin(command).write(value).execute();
+  }
+
+  /**
+   * Read TxFIFOLvl and RxFIFOLvl in one burst. The TX level is stored as the
+   * cached fill level of the TX FIFO.
+   * 
+   * @param port which of the four uart channels to read from
+   * @return the number of bytes in the RX FIFO or -1 on failure
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  private int readFIFOLevels(Port port) throws IOException {
+    int  uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command    = (byte) (uartSelect | Registers.TxFIFOLvl.address());
+    this.transaction.begin(command).read(LEVEL_BURST_LENGTH).execute();
+    int txLevel = this.transaction.getUnsigned(1);
+    if (txLevel >= 0) {
+      this.txFifoLengths[port.ordinal()] = txLevel;
+    }
+    return this.transaction.getUnsigned(2);
+  }
+
   /**
    * Read the receive buffer length for a given port. This reports the number of
    * bytes in the receive buffer that can be currently read.
@@ -185,25 +260,18 @@ public class MAX14830 implements PollingSensor {
    * @throws IOException if we are unable to access /dev/spix.x via Pi4J
    */
   private int readRegister(byte command) throws IOException {
-    byte[] data     = { command, 0 };
-    byte[] readData = this.spi.write(data);
-    if (readData.length < 2) {
-      return -1;
-    }
-    int result = readData[1];
-    if (result < 0) {
-      result += 2 * BYTE_MSB_VALUE;
-    }
-    return result;
+    this.transaction.begin(command).read(1).execute();
+    return this.transaction.getUnsigned(1);
   }
 
   /**
    * Trigger a write to the given UART tx FIFO buffer. The data for the write
-   * comes from the internal buffer {@link #uartBufferArray}. <br>
+   * comes from the internal queue {@link #txQueues}. <br>
    * This method does not check the buffer fill level
    * {@link #getTXBufferLen(Port)} and therefore it is possible to loose data if
    * too many bytes are sent.. If there are too few bytes in the
-   * {@link #uartBufferArray} then the remaining bytes are written.
+   * {@link #txQueues} then the remaining bytes are written. At most
+   * {@link #TX_BUFFER_SIZE} bytes are written at once.
    * 
    * @param port      Which UART channel to use
    * @param charCount how many bytes to write at most
@@ -211,37 +279,33 @@ public class MAX14830 implements PollingSensor {
    * @throws IOException if we are unable to access /dev/spix.x via Pi4J
    */
   protected int writeToTxFifo(Port port, int charCount) throws IOException {
-    StringBuffer stringBuffer = this.selectBuffer(port);
-
-    int readCount = Math.min(charCount, stringBuffer.length());
-
-    String first = stringBuffer.substring(0, readCount);
-    stringBuffer.delete(0, readCount);
-    int    uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
-    byte   command    = (byte) (uartSelect | WRITE | Registers.THR.address());
-    byte[] data       = first.getBytes(this.charset);
-    byte[] toWrite    = new byte[data.length + 1];
-    toWrite[0] = command;
-    System.arraycopy(data, 0, toWrite, 1, data.length);
-    this.spi.write(toWrite);
+    ByteRingBuffer queue = this.selectBuffer(port);
+
+    int  uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command    = (byte) (uartSelect | WRITE | Registers.THR.address());
+    synchronized (queue) {
+      this.transaction.begin(command).write(queue, Math.min(charCount, TX_BUFFER_SIZE));
+    }
+    int readCount = this.transaction.length() - 1;
+    this.transaction.execute();
     return readCount;
   }
 
   /**
    * Try to read from the RX FIFO buffer for the specified UART channel. This
-   * method does not check if the buffer actually has enough data.
+   * method does not check if the buffer actually has enough data. At most
+   * {@link #RX_BUFFER_SIZE} characters are read at once.
    * 
    * @param port      which channel to read from
    * @param charCount how many characters to read
-   * @return the characters as a byte stream.
+   * @return the characters as a byte stream, the first byte is the byte
+   *         clocked in while the command was sent.
    * @throws IOException if we are unable to access /dev/spix.x via Pi4J
    */
   protected byte[] readFromRxFifo(Port port, int charCount) throws IOException {
-    int    uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
-    byte   command    = (byte) (uartSelect | Registers.RHR.address());
-    byte[] zeros      = new byte[charCount + 1];
-    zeros[0] = command;
-    return this.spi.write(zeros);
+    int  uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command    = (byte) (uartSelect | Registers.RHR.address());
+    return this.transaction.begin(command).read(Math.min(charCount, RX_BUFFER_SIZE)).execute();
   }
 
   /**
@@ -255,48 +319,112 @@ public class MAX14830 implements PollingSensor {
     return this.serialPortArray[port.ordinal()];
   }
 
+  /**
+   * Split the data received on the given port into frames before it reaches
+   * the listeners, see {@link SerialPortAdapter#setFramer(SerialFramer)}.
+   * 
+   * @param port   which UART interface to frame
+   * @param framer the framer to use or null to pass each FIFO read on as is
+   */
+  public void setFramer(Port port, SerialFramer framer) {
+    this.serialPortArray[port.ordinal()].setFramer(framer);
+  }
+
+  /**
+   * Record the raw bytes read from and written to every port. Each port is
+   * recorded as the channel given by its ordinal so a {@link SerialReplay}
+   * can feed it back.
+   * 
+   * @param capture the capture to record to or null to stop recording
+   */
+  public void setCapture(SerialCapture capture) {
+    for (Port port : PORTS) {
+      this.serialPortArray[port.ordinal()].setCapture(capture, port.ordinal());
+    }
+  }
+
   /**
    * Queue the string to be written to the specified port as soon as possible.
+   * If the queue is full the rest of the string is dropped and
+   * {@link Errors#SERIAL_TX_OVERFLOW} is reported.
    * 
    * @param port which UART interface to write to
    * @param data the string to write. Will wait until previous stirngs have been
    *             written.
    */
   public void writeToPort(Port port, String data) {
-    StringBuffer stringBuffer = this.selectBuffer(port);
-    stringBuffer.append(data);
+    ByteRingBuffer queue = this.selectBuffer(port);
+    int            written;
+    synchronized (queue) {
+      written = queue.write(data);
+    }
+    if (written < data.length()) {
+      this.reportOverflow(port, data.length() - written);
+    }
   }
 
   /**
-   * Get the string buffer acting as a queue for the given port.
+   * Queue the bytes to be written to the specified port as soon as possible.
+   * The bytes are copied so the array may be reused once this returns. If the
+   * queue is full the rest of the bytes are dropped and
+   * {@link Errors#SERIAL_TX_OVERFLOW} is reported.
+   * 
+   * @param port   which UART interface to write to
+   * @param data   the array holding the bytes to write
+   * @param offset the index of the first byte to write
+   * @param length how many bytes to write
+   */
+  public void writeToPort(Port port, byte[] data, int offset, int length) {
+    ByteRingBuffer queue = this.selectBuffer(port);
+    int            written;
+    synchronized (queue) {
+      written = queue.write(data, offset, length);
+    }
+    if (written < length) {
+      this.reportOverflow(port, length - written);
+    }
+  }
+
+  private void reportOverflow(Port port, int dropped) {
+    ErrorReporter errorReporter = ErrorReporter.getInstance();
+    String errorMsg = "Dropped " + dropped + " bytes queued for " + port;
+    errorReporter.reportError(Errors.SERIAL_TX_OVERFLOW, null, errorMsg);
+  }
+
+  /**
+   * Get the ring buffer acting as a queue for the given port.
    * 
    * @param port which UART buffer to select.
-   * @return the string buffer acting as a queue
+   * @return the ring buffer acting as a queue
+   */
+  private ByteRingBuffer selectBuffer(Port port) {
+    return this.txQueues[port.ordinal()];
+  }
+
+  /**
+   * @param port which UART buffer to check
+   * @return if there are bytes queued for the port
    */
-  private StringBuffer selectBuffer(Port port) {
-    return this.uartBufferArray[port.ordinal()];
+  private boolean hasQueuedData(Port port) {
+    ByteRingBuffer queue = this.selectBuffer(port);
+    synchronized (queue) {
+      return queue.size() != 0;
+    }
   }
 
   /**
-   * Check if there is enough space left in the TX FIFO for the given port and if
-   * so write the queued strings to it. If not write as much as we can.<br>
+   * Check if there is space left in the TX FIFO for the given port and if so
+   * write the queued strings to it, as much as fits.<br>
    * <br>
-   * The length is cached to prevent unnecessary calls to
-   * {@link #getTXBufferLen(Port)}. If we see that there is enough space from the
-   * last call to {@link #getTXBufferLen(Port)} we write to it.
+   * The fill level of the TX FIFO is cached. It is refreshed by
+   * {@link #readFIFOLevels(Port)}, which reads it together with the RX level,
+   * and in interrupt mode reset by the TX empty interrupt.
    * 
-   * @param port   Which port to select
-   * @param length How many characters to write, must be &gt;=  0
+   * @param port Which port to select
    * @throws IOException if we are unable to access /dev/spix.x via Pi4J
    */
-  private void writeToPort(Port port, int length) throws IOException {
+  private void writeToPort(Port port) throws IOException {
     int spaceLeft = TX_BUFFER_SIZE - this.txFifoLengths[port.ordinal()];
-    if (spaceLeft < length) {
-      int txBufferLen = this.getTXBufferLen(port);
-      spaceLeft                          = TX_BUFFER_SIZE - txBufferLen;
-      this.txFifoLengths[port.ordinal()] = txBufferLen;
-    }
-
     if (spaceLeft > 0) {
       int written = this.writeToTxFifo(port, spaceLeft);
       this.txFifoLengths[port.ordinal()] += written;
@@ -313,46 +441,190 @@ public class MAX14830 implements PollingSensor {
    * @throws IOException if we are unable to access /dev/spix.x via Pi4J
    */
   private void readFromPort(Port port, int length) throws IOException {
-    byte[]            byteMessage        = this.readFromRxFifo(port, length);
-    String            unprocessedMessage = new String(byteMessage, this.charset);
-    String            message            = unprocessedMessage.substring(1);
-    SerialPortAdapter serialPort         = this.serialPortArray[port.ordinal()];
-    serialPort.newMessage(message);
+    byte[] byteMessage = this.readFromRxFifo(port, length);
+    if (byteMessage == null || byteMessage.length < 2) {
+      return;
+    }
+    SerialPortAdapter serialPort = this.serialPortArray[port.ordinal()];
+    serialPort.newMessage(byteMessage, 1, byteMessage.length - 1);
   }
 
   /**
-   * Check if we should send more data to the TX buffer of the port. If so send
-   * the data.<br>
-   * Then check if we have data to receive in the RX buffer. If so receive it and
+   * Read the fill levels of both FIFOs in one transfer. If we should send more
+   * data to the TX buffer of the port send it in a second.<br>
+   * Then if we have data to receive in the RX buffer receive it in a third and
    * emit events.
    * 
    * @param port which UART port to read
    * @throws IOException if we are unable to access /dev/spix.x via Pi4J
    */
   private void pollPort(Port port) throws IOException {
-    StringBuffer buffer = this.selectBuffer(port);
-    int          length = buffer.length();
-    if (length != 0) {
-      this.writeToPort(port, length);
+    int rxLen = this.readFIFOLevels(port);
+    if (this.hasQueuedData(port)) {
+      this.writeToPort(port);
     }
-    int rxLen = this.getRXBufferLen(port);
     if (rxLen > 0) {
       this.readFromPort(port, rxLen);
     }
   }
 
+  /**
+   * Switch to interrupt driven servicing. Each UART raises an interrupt when
+   * its RX FIFO reaches {@link Settings#MAX14830_RX_TRIGGER_LEVEL} bytes, when
+   * received data has waited {@link Settings#MAX14830_RX_TIMEOUT} character
+   * times and when its TX FIFO runs empty. From then on {@link #poll()} reads
+   * the GlobalIRQ register and only services the UARTs it reports. <br>
+   * Queued output is written without reading TxFIFOLvl, as much as fits since
+   * the last TX empty interrupt.
+   * 
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  public void enableInterrupts() throws IOException {
+    int rxTrigger = Settings.MAX14830_RX_TRIGGER_LEVEL / FIFO_TRIGGER_UNIT;
+    rxTrigger = Math.max(1, Math.min(FIFO_TRIGGER_MAX, rxTrigger));
+    for (Port port : PORTS) {
+      this.writeRegister(port, Registers.FIFOTrgLvl, rxTrigger << RX_TRIGGER_LSB_IDX);
+      this.writeRegister(port, Registers.RxTimeOut, Settings.MAX14830_RX_TIMEOUT);
+      this.writeRegister(port, Registers.LSRIntEn, LSR_RX_TIMEOUT);
+      this.writeRegister(port, Registers.IRQEn, IRQ_LSR_ERROR | IRQ_RX_TRIGGER | IRQ_TX_EMPTY);
+      int mode1 = Math.max(0, this.readRegister(port, Registers.MODE1));
+      this.writeRegister(port, Registers.MODE1, mode1 | MODE1_IRQ_SEL);
+      this.readRegister(port, Registers.ISR);
+      this.txFifoLengths[port.ordinal()] = Math.max(0, this.getTXBufferLen(port));
+    }
+    this.interruptMode = true;
+    this.irqPending    = true;
+  }
+
+  /**
+   * Switch to interrupt driven servicing like {@link #enableInterrupts()} and
+   * only read the GlobalIRQ register after the given pin saw a falling edge.
+   * When every UART is idle a poll then does no SPI transactions.
+   * 
+   * @param irqPin the input pin connected to the active low IRQ output
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  public void enableInterrupts(GpioPin irqPin) throws IOException {
+    this.irqPin = irqPin;
+    irqPin.addListener((GpioPinListenerDigital) event -> {
+      if (event.getState().isLow()) {
+        this.irqPending = true;
+      }
+    });
+    this.enableInterrupts();
+  }
+
+  /**
+   * @return if {@link #poll()} services UARTs by their interrupts
+   */
+  public boolean isInterruptMode() {
+    return this.interruptMode;
+  }
+
+  /**
+   * Read the GlobalIRQ register, if an IRQ pin is used only after an edge.
+   * Service each UART with a pending interrupt and write queued output. As
+   * the IRQ output is a level we keep reading GlobalIRQ until it reports no
+   * pending interrupt so an edge during servicing is never lost.
+   * 
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  private void pollInterrupts() throws IOException {
+    if (this.irqPin == null || this.irqPending) {
+      this.irqPending = false;
+      int globalIRQ = this.readRegister(Registers.GlobalRQ.address());
+      int pending   = globalIRQ < 0 ? 0 : ~globalIRQ & GLOBAL_IRQ_MASK;
+      for (Port port : PORTS) {
+        if ((pending & (1 << port.ordinal())) != 0) {
+          this.serviceInterrupt(port);
+        }
+      }
+      if (pending != 0) {
+        this.irqPending = true;
+      }
+    }
+    for (Port port : PORTS) {
+      if (this.hasQueuedData(port)) {
+        this.writeToPort(port);
+      }
+    }
+  }
+
+  /**
+   * Read and clear the ISR and LSR of the port in one burst. Then read the RX
+   * FIFO if it passed the trigger level or timed out and note an empty TX
+   * FIFO.
+   * 
+   * @param port which UART port to service
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  private void serviceInterrupt(Port port) throws IOException {
+    int  uartSelect = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command    = (byte) (uartSelect | Registers.ISR.address());
+    this.transaction.begin(command).read(ISR_BURST_LENGTH).execute();
+    int isr = this.transaction.getUnsigned(1);
+    if (isr < 0) {
+      return;
+    }
+    if ((isr & IRQ_TX_EMPTY) != 0) {
+      this.txFifoLengths[port.ordinal()] = 0;
+    }
+    if ((isr & (IRQ_RX_TRIGGER | IRQ_LSR_ERROR)) != 0) {
+      int rxLen = this.readFIFOLevels(port);
+      if (rxLen > 0) {
+        this.readFromPort(port, rxLen);
+      }
+    }
+  }
+
   @Override
   public void poll() {
+    long transfers = this.transaction.getTransferCount();
+    long bytes     = this.transaction.getByteCount();
     try {
-      for (Port port : Port.values()) {
-        pollPort(port);
+      if (this.interruptMode) {
+        this.pollInterrupts();
+      } else {
+        for (Port port : PORTS) {
+          pollPort(port);
+        }
       }
     } catch (IOException e) {
       ErrorReporter errorReporter = ErrorReporter.getInstance();
       String errorMsg = "Unable to access /dev/spix.x via Pi4J";
       errorReporter.reportError(Errors.MAX14830_IO_ERROR, e, errorMsg);
     }
+    this.lastPollTransfers = (int) (this.transaction.getTransferCount() - transfers);
+    this.lastPollBytes     = (int) (this.transaction.getByteCount() - bytes);
+  }
+
+  /**
+   * @return how many SPI transfers the last {@link #poll()} made
+   */
+  public int getLastPollTransferCount() {
+    return this.lastPollTransfers;
+  }
 
+  /**
+   * @return how many bytes the last {@link #poll()} sent over SPI, including
+   *         command bytes
+   */
+  public int getLastPollByteCount() {
+    return this.lastPollBytes;
+  }
+
+  /**
+   * @return how many SPI transfers have been made since creation
+   */
+  public long getTransferCount() {
+    return this.transaction.getTransferCount();
+  }
+
+  /**
+   * @return how many bytes have been sent over SPI since creation
+   */
+  public long getByteCount() {
+    return this.transaction.getByteCount();
   }
 
   /**
@@ -374,12 +646,12 @@ public class MAX14830 implements PollingSensor {
     if (baudrate > 0) {
       d = Settings.MAX14830_F_REF / (16 * baudrate);
     }
-    int    uartSelect           = port.ordinal() << UART_SELECT_LSB_IDX;
-    byte   command              = (byte) (uartSelect | WRITE | Registers.BRGConfig.address());
-    byte   leastSignificantBits = (byte) (d & 0xFF);
-    byte   mostSignificantBits  = (byte) ((d >> BITS_PER_BYTE) & 0xFF);
-    byte[] data                 = { command, 0, leastSignificantBits, mostSignificantBits };
-    this.spi.write(data);
+    int  uartSelect           = port.ordinal() << UART_SELECT_LSB_IDX;
+    byte command              = (byte) (uartSelect | WRITE | Registers.BRGConfig.address());
+    int  leastSignificantBits = d & 0xFF;
+    int  mostSignificantBits  = (d >> BITS_PER_BYTE) & 0xFF;
+    this.transaction.begin(command).write(0).write(leastSignificantBits).write(mostSignificantBits)
+        .execute();
 
   }
 }
@@ -0,0 +1,133 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.pi4j.io.spi.SpiDevice;
+
+/**
+ * Builds a single SPI transfer in a reused buffer. A transfer is started with
+ * {@link #begin(byte)}, collects the bytes to clock out and is sent with
+ * {@link #execute()}. Devices which advance the register address during a
+ * transfer can read or write several consecutive registers, or drain a FIFO,
+ * in one transfer this way. <br>
+ * Every executed transfer and its bytes are counted so the load on the bus
+ * can be observed.
+ */
+class SPITransaction {
+
+  private final SpiDevice spi;
+  private final byte[]    buffer;
+  private int             length;
+  private byte[]          response;
+  private long            transferCount;
+  private long            byteCount;
+
+  /**
+   * Create a new transaction builder.
+   * 
+   * @param spi      the device to send the transfers to
+   * @param capacity the length of the longest transfer including the command
+   */
+  SPITransaction(SpiDevice spi, int capacity) {
+    this.spi    = spi;
+    this.buffer = new byte[capacity];
+  }
+
+  /**
+   * Start a new transfer, discarding anything not yet executed.
+   * 
+   * @param command the first byte of the transfer
+   * @return this transaction
+   */
+  SPITransaction begin(byte command) {
+    this.buffer[0] = command;
+    this.length    = 1;
+    this.response  = null;
+    return this;
+  }
+
+  /**
+   * Append a byte to clock out.
+   * 
+   * @param value the byte to send, only the lowest 8 bits are used
+   * @return this transaction
+   */
+  SPITransaction write(int value) {
+    this.buffer[this.length++] = (byte) value;
+    return this;
+  }
+
+  /**
+   * Move bytes from the queue into the transfer, as many as are available and
+   * fit but at most the given count.
+   * 
+   * @param source the queue to take bytes from
+   * @param count  how many bytes to take at most
+   * @return this transaction
+   */
+  SPITransaction write(ByteRingBuffer source, int count) {
+    int free = this.buffer.length - this.length;
+    this.length += source.read(this.buffer, this.length, Math.min(count, free));
+    return this;
+  }
+
+  /**
+   * Append zeros to clock in the given number of bytes.
+   * 
+   * @param count how many bytes to read
+   * @return this transaction
+   */
+  SPITransaction read(int count) {
+    Arrays.fill(this.buffer, this.length, this.length + count, (byte) 0);
+    this.length += count;
+    return this;
+  }
+
+  /**
+   * Send the transfer built since the last {@link #begin(byte)}.
+   * 
+   * @return the bytes clocked in, one for each byte sent
+   * @throws IOException if we are unable to access /dev/spix.x via Pi4J
+   */
+  byte[] execute() throws IOException {
+    this.response       = this.spi.write(this.buffer, 0, this.length);
+    this.transferCount += 1;
+    this.byteCount     += this.length;
+    return this.response;
+  }
+
+  /**
+   * Get a byte clocked in by the last transfer as an unsigned value.
+   * 
+   * @param index the position of the byte in the transfer, the command is at 0
+   * @return the byte from 0 to 255 or -1 if the response was too short
+   */
+  int getUnsigned(int index) {
+    if (this.response == null || this.response.length <= index) {
+      return -1;
+    }
+    return this.response[index] & 0xFF;
+  }
+
+  /**
+   * @return how many bytes are in the current transfer including the command
+   */
+  int length() {
+    return this.length;
+  }
+
+  /**
+   * @return how many transfers have been executed
+   */
+  long getTransferCount() {
+    return this.transferCount;
+  }
+
+  /**
+   * @return how many bytes have been sent in all transfers
+   */
+  long getByteCount() {
+    return this.byteCount;
+  }
+}
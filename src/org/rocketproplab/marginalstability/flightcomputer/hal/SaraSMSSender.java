@@ -44,6 +44,11 @@ public class SaraSMSSender implements SMSSender, SerialListener {
 		saraSerialPort.write("AT+UGGGA?\r\n");
 	}
 
+	/**
+	 * Handle one line from the SARA module. The port should split its data
+	 * with {@link SerialFramer#newline(int)} so a line split across reads
+	 * arrives in one call.
+	 */
 	@Override //this re
 	public void onSerialData(String data) {
 		int index = data.indexOf(",");
@@ -0,0 +1,201 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.rocketproplab.marginalstability.flightcomputer.ErrorReporter;
+import org.rocketproplab.marginalstability.flightcomputer.Errors;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketDirection;
+
+/**
+ * Records the raw bytes sent and received on serial ports so the traffic can
+ * be fed back later with {@link SerialReplay}. <br>
+ * <br>
+ * The capture starts with a header:
+ * <ul>
+ * <li>the magic bytes {@code SCAP} and a version byte,</li>
+ * <li>the capture start time as a big endian double in seconds.</li>
+ * </ul>
+ * Then follows one record per read or write:
+ * <ul>
+ * <li>the microseconds since the previous record as an unsigned varint,</li>
+ * <li>one byte holding the channel shifted left by one, the lowest bit is set
+ * for transmitted data,</li>
+ * <li>the number of bytes as an unsigned varint,</li>
+ * <li>the bytes.</li>
+ * </ul>
+ * Varints store 7 bits per byte, least significant group first, with the top
+ * bit set on every byte but the last. <br>
+ * Recording does not allocate. If writing fails
+ * {@link Errors#SERIAL_CAPTURE_IO_ERROR} is reported once and nothing more is
+ * recorded.
+ */
+public class SerialCapture {
+
+  static final byte[] MAGIC        = { 'S', 'C', 'A', 'P' };
+  static final int    VERSION      = 1;
+  static final int    MAX_CHANNEL  = 127;
+  static final int    TX_FLAG      = 1;
+  static final double MICROS_PER_S = 1e6;
+
+  private static final int VARINT_MASK     = 0x7F;
+  private static final int VARINT_CONTINUE = 0x80;
+  private static final int VARINT_SHIFT    = 7;
+
+  private final OutputStream out;
+  private final Time         time;
+  private final double       startTime;
+  private long               lastMicros;
+  private long               recordCount;
+  private boolean            failed;
+
+  /**
+   * Start a new capture written to the given stream. The header is written
+   * right away.
+   * 
+   * @param out  the stream to write to, it is buffered internally
+   * @param time the clock used to timestamp records
+   * @throws IOException if the header can not be written
+   */
+  public SerialCapture(OutputStream out, Time time) throws IOException {
+    this.out       = new BufferedOutputStream(out);
+    this.time      = time;
+    this.startTime = time.getSystemTime();
+    this.out.write(MAGIC);
+    this.out.write(VERSION);
+    long bits = Double.doubleToLongBits(this.startTime);
+    for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+      this.out.write((int) (bits >>> shift));
+    }
+  }
+
+  /**
+   * Start a new capture in the given file, replacing it if it exists.
+   * 
+   * @param path the file to write to
+   * @param time the clock used to timestamp records
+   * @return the new capture
+   * @throws IOException if the file can not be created
+   */
+  public static SerialCapture open(String path, Time time) throws IOException {
+    return new SerialCapture(new FileOutputStream(path), time);
+  }
+
+  /**
+   * Record bytes read from or written to a port.
+   * 
+   * @param channel   which port the bytes belong to, 0 to 127
+   * @param direction {@link PacketDirection#RECIVE} for received bytes and
+   *                  {@link PacketDirection#SEND} for transmitted bytes
+   * @param data      the array holding the bytes
+   * @param offset    the index of the first byte
+   * @param length    how many bytes to record
+   */
+  public synchronized void record(int channel, PacketDirection direction, byte[] data, int offset,
+      int length) {
+    if (this.failed) {
+      return;
+    }
+    try {
+      this.writeHeader(channel, direction, length);
+      this.out.write(data, offset, length);
+    } catch (IOException e) {
+      this.fail(e);
+    }
+  }
+
+  /**
+   * Record characters read from or written to a port, each character is
+   * stored as its lowest byte.
+   * 
+   * @param channel   which port the characters belong to, 0 to 127
+   * @param direction {@link PacketDirection#RECIVE} for received characters
+   *                  and {@link PacketDirection#SEND} for transmitted ones
+   * @param data      the characters to record
+   */
+  public synchronized void record(int channel, PacketDirection direction, CharSequence data) {
+    if (this.failed) {
+      return;
+    }
+    try {
+      this.writeHeader(channel, direction, data.length());
+      for (int i = 0; i < data.length(); i++) {
+        this.out.write(data.charAt(i));
+      }
+    } catch (IOException e) {
+      this.fail(e);
+    }
+  }
+
+  private void writeHeader(int channel, PacketDirection direction, int length) throws IOException {
+    if (channel < 0 || channel > MAX_CHANNEL) {
+      throw new IllegalArgumentException("Channel must be from 0 to " + MAX_CHANNEL + ", was " + channel);
+    }
+    long micros = Math.round((this.time.getSystemTime() - this.startTime) * MICROS_PER_S);
+    this.writeVarint(Math.max(0, micros - this.lastMicros));
+    this.lastMicros = Math.max(this.lastMicros, micros);
+    this.out.write(channel << 1 | (direction == PacketDirection.SEND ? TX_FLAG : 0));
+    this.writeVarint(length);
+    this.recordCount++;
+  }
+
+  private void writeVarint(long value) throws IOException {
+    while ((value & ~VARINT_MASK) != 0) {
+      this.out.write((int) (value & VARINT_MASK) | VARINT_CONTINUE);
+      value >>>= VARINT_SHIFT;
+    }
+    this.out.write((int) value);
+  }
+
+  private void fail(IOException e) {
+    this.failed = true;
+    ErrorReporter errorReporter = ErrorReporter.getInstance();
+    String errorMsg = "Serial capture failed after " + this.recordCount + " records";
+    errorReporter.reportError(Errors.SERIAL_CAPTURE_IO_ERROR, e, errorMsg);
+  }
+
+  /**
+   * Write all buffered records to the underlying stream.
+   */
+  public synchronized void flush() {
+    if (this.failed) {
+      return;
+    }
+    try {
+      this.out.flush();
+    } catch (IOException e) {
+      this.fail(e);
+    }
+  }
+
+  /**
+   * Flush and close the underlying stream, nothing more is recorded.
+   */
+  public synchronized void close() {
+    this.flush();
+    this.failed = true;
+    try {
+      this.out.close();
+    } catch (IOException e) {
+      ErrorReporter.getInstance().reportError(Errors.SERIAL_CAPTURE_IO_ERROR, e, "Closing capture");
+    }
+  }
+
+  /**
+   * @return how many records have been written
+   */
+  public synchronized long getRecordCount() {
+    return this.recordCount;
+  }
+
+  /**
+   * @return if recording stopped because of a write error or
+   *         {@link #close()}
+   */
+  public synchronized boolean isClosed() {
+    return this.failed;
+  }
+}
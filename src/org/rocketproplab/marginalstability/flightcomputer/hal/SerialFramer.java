@@ -0,0 +1,240 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialByteListener;
+
+/**
+ * Splits a stream of serial data into frames. Data is buffered in a byte
+ * array allocated once, so a frame may arrive over any number of reads and
+ * several frames may share one read. Each complete frame is handed to the
+ * listener as a slice of the buffer, which is reused once the listener
+ * returns. <br>
+ * A frame longer than the buffer is dropped and counted as an overflow, the
+ * framer then waits for the start of the next frame. <br>
+ * Use one of the factories to create a framer, for example
+ * {@link #newline(int)} for line based protocols.
+ */
+public abstract class SerialFramer {
+
+  private static final byte NEWLINE           = '\n';
+  private static final int  MAX_PREFIX_LENGTH = 255;
+
+  protected final byte[] buffer;
+  protected int          length;
+  private long           frameCount;
+  private long           overflowCount;
+
+  /**
+   * Create a framer with the given buffer size.
+   * 
+   * @param maxFrameLength the length of the longest frame which can be
+   *                       buffered
+   */
+  protected SerialFramer(int maxFrameLength) {
+    if (maxFrameLength <= 0) {
+      throw new IllegalArgumentException("Frame length must be positive, was " + maxFrameLength);
+    }
+    this.buffer = new byte[maxFrameLength];
+  }
+
+  /**
+   * Frames which end with a newline, the newline is part of the frame.
+   * 
+   * @param maxFrameLength the length of the longest line including the newline
+   * @return a new framer
+   */
+  public static SerialFramer newline(int maxFrameLength) {
+    return terminator(NEWLINE, maxFrameLength);
+  }
+
+  /**
+   * Frames which end with the given byte, the terminator is part of the
+   * frame.
+   * 
+   * @param terminator     the byte which ends each frame
+   * @param maxFrameLength the length of the longest frame including the
+   *                       terminator
+   * @return a new framer
+   */
+  public static SerialFramer terminator(byte terminator, int maxFrameLength) {
+    return new TerminatorFramer(terminator, maxFrameLength);
+  }
+
+  /**
+   * Frames which all have the same length.
+   * 
+   * @param frameLength how many bytes make up a frame
+   * @return a new framer
+   */
+  public static SerialFramer fixedLength(int frameLength) {
+    return new FixedLengthFramer(frameLength);
+  }
+
+  /**
+   * Frames which start with one byte holding the length of the rest of the
+   * frame. Only the bytes after the length are passed to the listener, a
+   * length of zero produces an empty frame.
+   * 
+   * @param maxFrameLength the largest length accepted, at most 255. Longer
+   *                       frames are skipped and counted as an overflow.
+   * @return a new framer
+   */
+  public static SerialFramer lengthPrefixed(int maxFrameLength) {
+    return new LengthPrefixedFramer(Math.min(maxFrameLength, MAX_PREFIX_LENGTH));
+  }
+
+  /**
+   * Feed received data to the framer.
+   * 
+   * @param data     the array holding the received bytes
+   * @param offset   the index of the first received byte
+   * @param count    how many bytes were received
+   * @param listener called with each frame completed by this data
+   */
+  public void accept(byte[] data, int offset, int count, SerialByteListener listener) {
+    for (int i = offset; i < offset + count; i++) {
+      this.accept(data[i], listener);
+    }
+  }
+
+  /**
+   * Feed a single received byte to the framer.
+   * 
+   * @param b        the received byte
+   * @param listener called if this byte completes a frame
+   */
+  protected abstract void accept(byte b, SerialByteListener listener);
+
+  /**
+   * Pass the frame at the start of the buffer to the listener and start a new
+   * frame.
+   * 
+   * @param offset   the index of the first byte of the frame in the buffer
+   * @param listener the listener to pass the frame to
+   */
+  protected void emit(int offset, SerialByteListener listener) {
+    int frameLength = this.length - offset;
+    this.length = 0;
+    this.frameCount++;
+    listener.onSerialData(this.buffer, offset, frameLength);
+  }
+
+  /**
+   * Drop the buffered part of a frame which does not fit.
+   */
+  protected void overflow() {
+    this.length = 0;
+    this.overflowCount++;
+  }
+
+  /**
+   * Drop any partially received frame.
+   */
+  public void reset() {
+    this.length = 0;
+  }
+
+  /**
+   * @return how many bytes of an incomplete frame are buffered
+   */
+  public int getBufferedLength() {
+    return this.length;
+  }
+
+  /**
+   * @return how many frames have been emitted
+   */
+  public long getFrameCount() {
+    return this.frameCount;
+  }
+
+  /**
+   * @return how many frames were dropped because they did not fit the buffer
+   */
+  public long getOverflowCount() {
+    return this.overflowCount;
+  }
+
+  private static class TerminatorFramer extends SerialFramer {
+    private final byte terminator;
+    private boolean    discarding;
+
+    TerminatorFramer(byte terminator, int maxFrameLength) {
+      super(maxFrameLength);
+      this.terminator = terminator;
+    }
+
+    @Override
+    protected void accept(byte b, SerialByteListener listener) {
+      if (this.discarding) {
+        this.discarding = b != this.terminator;
+        return;
+      }
+      if (this.length == this.buffer.length) {
+        this.overflow();
+        this.discarding = b != this.terminator;
+        return;
+      }
+      this.buffer[this.length++] = b;
+      if (b == this.terminator) {
+        this.emit(0, listener);
+      }
+    }
+
+    @Override
+    public void reset() {
+      super.reset();
+      this.discarding = false;
+    }
+  }
+
+  private static class FixedLengthFramer extends SerialFramer {
+
+    FixedLengthFramer(int frameLength) {
+      super(frameLength);
+    }
+
+    @Override
+    protected void accept(byte b, SerialByteListener listener) {
+      this.buffer[this.length++] = b;
+      if (this.length == this.buffer.length) {
+        this.emit(0, listener);
+      }
+    }
+  }
+
+  private static class LengthPrefixedFramer extends SerialFramer {
+    private int expected;
+    private int skipping;
+
+    LengthPrefixedFramer(int maxFrameLength) {
+      super(maxFrameLength + 1);
+    }
+
+    @Override
+    protected void accept(byte b, SerialByteListener listener) {
+      if (this.skipping > 0) {
+        this.skipping--;
+        return;
+      }
+      if (this.length == 0) {
+        int frameLength = b & 0xFF;
+        if (frameLength >= this.buffer.length) {
+          this.overflow();
+          this.skipping = frameLength;
+          return;
+        }
+        this.expected = frameLength + 1;
+      }
+      this.buffer[this.length++] = b;
+      if (this.length == this.expected) {
+        this.emit(1, listener);
+      }
+    }
+
+    @Override
+    public void reset() {
+      super.reset();
+      this.skipping = 0;
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package org.rocketproplab.marginalstability.flightcomputer.hal;
 
+import java.nio.charset.StandardCharsets;
+
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialByteListener;
 import org.rocketproplab.marginalstability.flightcomputer.events.SerialListener;
 
 public interface SerialPort {
@@ -16,4 +19,27 @@ public interface SerialPort {
 	 */
 	public void write(String data);
 
-}
\ No newline at end of file
+	/**
+	 * Register a listener for the raw received bytes. Ports which only produce
+	 * strings convert each message to bytes.
+	 * @param listener the listener to register
+	 */
+	public default void registerByteListener(SerialByteListener listener) {
+		this.registerListener(message -> {
+			byte[] data = message.getBytes(StandardCharsets.US_ASCII);
+			listener.onSerialData(data, 0, data.length);
+		});
+	}
+
+	/**
+	 * Send raw bytes over serial port. Ports which only accept strings convert
+	 * the bytes to a string.
+	 * @param data   the array holding the bytes
+	 * @param offset the index of the first byte to send
+	 * @param length how many bytes to send
+	 */
+	public default void write(byte[] data, int offset, int length) {
+		this.write(new String(data, offset, length, StandardCharsets.US_ASCII));
+	}
+
+}
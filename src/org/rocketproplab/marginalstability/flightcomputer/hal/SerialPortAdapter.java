@@ -1,24 +1,94 @@
 package org.rocketproplab.marginalstability.flightcomputer.hal;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketDirection;
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialByteListener;
 import org.rocketproplab.marginalstability.flightcomputer.events.SerialListener;
 
 /**
  * A relay for a serial port. Simply buffers a message without any processing.
+ * <br>
+ * Messages received as bytes are handed to byte listeners as a slice of the
+ * received array. A String is only created if string listeners are registered.
+ * <br>
+ * With a {@link SerialFramer} set received data is split into frames first,
+ * listeners are then called once per complete frame no matter how the data
+ * was split across reads. <br>
+ * With a {@link SerialCapture} set every read and write is recorded as raw
+ * bytes, before any framing.
  * 
  * @author Max Apodaca
  *
  */
 public class SerialPortAdapter implements SerialPort {
 
-  private Set<SerialListener> listeners;
-  private SerialListener      writeListener;
+  private Set<SerialListener>      listeners;
+  private List<SerialByteListener> byteListeners;
+  private SerialListener           writeListener;
+  private SerialByteListener       byteWriteListener;
+  private SerialFramer             framer;
+  private SerialByteListener       frameListener;
+  private SerialCapture            capture;
+  private int                      captureChannel;
 
   public SerialPortAdapter(SerialListener writeListener) {
-    this.listeners     = new HashSet<>();
-    this.writeListener = writeListener;
+    this(writeListener, null);
+  }
+
+  /**
+   * Create a new serial port adapter which forwards writes to the given
+   * listeners.
+   * 
+   * @param writeListener     called with each string written to the port
+   * @param byteWriteListener called with the bytes written to the port, if
+   *                          null the bytes are converted to a string and
+   *                          passed to the write listener
+   */
+  public SerialPortAdapter(SerialListener writeListener, SerialByteListener byteWriteListener) {
+    this.listeners         = new HashSet<>();
+    this.byteListeners     = new ArrayList<>();
+    this.writeListener     = writeListener;
+    this.byteWriteListener = byteWriteListener;
+    this.frameListener     = this::dispatch;
+  }
+
+  /**
+   * Split received data into frames before passing it to the listeners. Any
+   * partial frame buffered by a previous framer is dropped.
+   * 
+   * @param framer the framer to use or null to pass each read on as is
+   */
+  public void setFramer(SerialFramer framer) {
+    if (this.framer != null) {
+      this.framer.reset();
+    }
+    this.framer = framer;
+  }
+
+  /**
+   * Record all data read from and written to this port.
+   * 
+   * @param capture the capture to record to or null to stop recording
+   * @param channel the channel to record the data as, 0 to 127
+   */
+  public void setCapture(SerialCapture capture, int channel) {
+    if (channel < 0 || channel > SerialCapture.MAX_CHANNEL) {
+      throw new IllegalArgumentException("Channel must be from 0 to " + SerialCapture.MAX_CHANNEL + ", was " + channel);
+    }
+    this.capture        = capture;
+    this.captureChannel = channel;
+  }
+
+  /**
+   * @return the framer splitting received data or null if there is none
+   */
+  public SerialFramer getFramer() {
+    return this.framer;
   }
 
   @Override
@@ -26,15 +96,84 @@ public class SerialPortAdapter implements SerialPort {
     this.listeners.add(listener);
   }
 
+  @Override
+  public void registerByteListener(SerialByteListener listener) {
+    if (!this.byteListeners.contains(listener)) {
+      this.byteListeners.add(listener);
+    }
+  }
+
   @Override
   public void write(String data) {
+    if (this.capture != null) {
+      this.capture.record(this.captureChannel, PacketDirection.SEND, data);
+    }
     this.writeListener.onSerialData(data);
   }
 
+  @Override
+  public void write(byte[] data, int offset, int length) {
+    if (this.byteWriteListener == null) {
+      SerialPort.super.write(data, offset, length);
+      return;
+    }
+    if (this.capture != null) {
+      this.capture.record(this.captureChannel, PacketDirection.SEND, data, offset, length);
+    }
+    this.byteWriteListener.onSerialData(data, offset, length);
+  }
+
   public void newMessage(String message) {
+    if (this.capture != null) {
+      this.capture.record(this.captureChannel, PacketDirection.RECIVE, message);
+    }
+    if (this.framer != null) {
+      byte[] data = message.getBytes(StandardCharsets.US_ASCII);
+      this.framer.accept(data, 0, data.length, this.frameListener);
+      return;
+    }
     for (SerialListener listener : this.listeners) {
       listener.onSerialData(message);
     }
+    if (!this.byteListeners.isEmpty()) {
+      byte[] data = message.getBytes(StandardCharsets.US_ASCII);
+      this.dispatchBytes(data, 0, data.length);
+    }
+  }
+
+  /**
+   * Dispatch received bytes to the listeners, through the framer if one is
+   * set. The array may be reused once this returns.
+   * 
+   * @param data   the array holding the received bytes
+   * @param offset the index of the first received byte
+   * @param length how many bytes were received
+   */
+  public void newMessage(byte[] data, int offset, int length) {
+    if (this.capture != null) {
+      this.capture.record(this.captureChannel, PacketDirection.RECIVE, data, offset, length);
+    }
+    if (this.framer != null) {
+      this.framer.accept(data, offset, length, this.frameListener);
+      return;
+    }
+    this.dispatch(data, offset, length);
+  }
+
+  private void dispatch(byte[] data, int offset, int length) {
+    this.dispatchBytes(data, offset, length);
+    if (!this.listeners.isEmpty()) {
+      String message = new String(data, offset, length, StandardCharsets.US_ASCII);
+      for (SerialListener listener : this.listeners) {
+        listener.onSerialData(message);
+      }
+    }
+  }
+
+  private void dispatchBytes(byte[] data, int offset, int length) {
+    for (int i = 0; i < this.byteListeners.size(); i++) {
+      this.byteListeners.get(i).onSerialData(data, offset, length);
+    }
   }
 
 }
@@ -0,0 +1,243 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Feeds the received bytes of a {@link SerialCapture} back through
+ * {@link SerialPortAdapter#newMessage(byte[], int, int)}, one call per
+ * captured read. Records of transmitted bytes are counted but not fed, they
+ * were produced by the flight computer itself. <br>
+ * Each channel is fed to a {@link SerialPortAdapter}, by default one created
+ * by the replay which discards writes. Register listeners on
+ * {@link #getPort(int)} or set your own adapter with
+ * {@link #setPort(int, SerialPortAdapter)} before replaying. <br>
+ * Records can be replayed one at a time with {@link #replayNext()} or all at
+ * once with {@link #replayAll(boolean)}, either as fast as possible or at the
+ * original timing.
+ */
+public class SerialReplay {
+
+  private static final int  INITIAL_BUFFER_SIZE = 256;
+  private static final long NANOS_PER_MICRO     = 1000;
+  private static final long NANOS_PER_MILLI     = 1000000;
+  private static final int  VARINT_MASK         = 0x7F;
+  private static final int  VARINT_CONTINUE     = 0x80;
+  private static final int  VARINT_SHIFT        = 7;
+  private static final int  VARINT_MAX_SHIFT    = 63;
+
+  private final DataInputStream     in;
+  private final double              startTime;
+  private final SerialPortAdapter[] ports;
+  private byte[]                    buffer;
+  private long                      recordMicros;
+  private long                      rxRecordCount;
+  private long                      txRecordCount;
+  private long                      rxByteCount;
+
+  /**
+   * Start replaying the capture in the given stream, the header is read right
+   * away.
+   * 
+   * @param in the stream holding the capture, it is buffered internally
+   * @throws IOException if the stream does not start with a capture header
+   */
+  public SerialReplay(InputStream in) throws IOException {
+    this.in     = new DataInputStream(new BufferedInputStream(in));
+    this.ports  = new SerialPortAdapter[SerialCapture.MAX_CHANNEL + 1];
+    this.buffer = new byte[INITIAL_BUFFER_SIZE];
+    byte[] magic = new byte[SerialCapture.MAGIC.length];
+    this.in.readFully(magic);
+    if (!Arrays.equals(magic, SerialCapture.MAGIC)) {
+      throw new IOException("Not a serial capture");
+    }
+    int version = this.in.readUnsignedByte();
+    if (version != SerialCapture.VERSION) {
+      throw new IOException("Unsupported serial capture version " + version);
+    }
+    this.startTime = this.in.readDouble();
+  }
+
+  /**
+   * Open the capture in the given file.
+   * 
+   * @param path the file to read
+   * @return the replay for the file
+   * @throws IOException if the file can not be read or is not a capture
+   */
+  public static SerialReplay open(String path) throws IOException {
+    return new SerialReplay(new FileInputStream(path));
+  }
+
+  /**
+   * Get the port fed with the bytes captured on the given channel, creating it
+   * if needed. Writes to the created port are discarded.
+   * 
+   * @param channel the captured channel, for a {@link MAX14830} capture the
+   *                ordinal of the {@link MAX14830.Port}
+   * @return the port for the channel
+   */
+  public SerialPortAdapter getPort(int channel) {
+    if (this.ports[channel] == null) {
+      this.ports[channel] = new SerialPortAdapter(message -> {
+      });
+    }
+    return this.ports[channel];
+  }
+
+  /**
+   * Feed the bytes captured on the given channel to the given port.
+   * 
+   * @param channel the captured channel
+   * @param port    the port to feed
+   */
+  public void setPort(int channel, SerialPortAdapter port) {
+    this.ports[channel] = port;
+  }
+
+  /**
+   * Read the next record and feed it to its port if it holds received bytes.
+   * 
+   * @return false if the end of the capture was reached
+   * @throws IOException if the capture can not be read or ends inside a
+   *                     record
+   */
+  public boolean replayNext() throws IOException {
+    int first = this.in.read();
+    if (first < 0) {
+      return false;
+    }
+    this.recordMicros += this.readVarint(first);
+    int  channelByte = this.in.readUnsignedByte();
+    long length      = this.readVarint(this.in.readUnsignedByte());
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Record of " + length + " bytes is too long");
+    }
+    if (length > this.buffer.length) {
+      this.buffer = new byte[(int) length];
+    }
+    this.in.readFully(this.buffer, 0, (int) length);
+
+    if ((channelByte & SerialCapture.TX_FLAG) != 0) {
+      this.txRecordCount++;
+      return true;
+    }
+    this.rxRecordCount++;
+    this.rxByteCount += length;
+    SerialPortAdapter port = this.ports[channelByte >> 1];
+    if (port != null) {
+      port.newMessage(this.buffer, 0, (int) length);
+    }
+    return true;
+  }
+
+  /**
+   * Replay every remaining record.
+   * 
+   * @param originalTiming if true each record is fed as long after the first
+   *                       remaining record as it was captured, if false as
+   *                       fast as possible
+   * @return how many records were read
+   * @throws IOException          if the capture can not be read
+   * @throws InterruptedException if interrupted while waiting for a record
+   */
+  public long replayAll(boolean originalTiming) throws IOException, InterruptedException {
+    long records     = 0;
+    long startNanos  = System.nanoTime();
+    long startMicros = this.recordMicros;
+    while (true) {
+      if (!originalTiming) {
+        if (!this.replayNext()) {
+          return records;
+        }
+        records++;
+        continue;
+      }
+      // The delay of a record is only known once its header is read, so peek
+      // the delta before waiting.
+      this.in.mark(Long.BYTES * 2);
+      int first = this.in.read();
+      if (first < 0) {
+        return records;
+      }
+      long micros = this.recordMicros + this.readVarint(first);
+      this.in.reset();
+      if (records == 0) {
+        startMicros = micros;
+      }
+      long waitNanos = startNanos + (micros - startMicros) * NANOS_PER_MICRO - System.nanoTime();
+      if (waitNanos > 0) {
+        Thread.sleep(waitNanos / NANOS_PER_MILLI, (int) (waitNanos % NANOS_PER_MILLI));
+      }
+      this.replayNext();
+      records++;
+    }
+  }
+
+  private long readVarint(int first) throws IOException {
+    long value = first & VARINT_MASK;
+    int  shift = VARINT_SHIFT;
+    int  b     = first;
+    while ((b & VARINT_CONTINUE) != 0) {
+      if (shift > VARINT_MAX_SHIFT) {
+        throw new IOException("Varint is too long");
+      }
+      b = this.in.read();
+      if (b < 0) {
+        throw new EOFException("Capture ends inside a record");
+      }
+      value |= (long) (b & VARINT_MASK) << shift;
+      shift += VARINT_SHIFT;
+    }
+    return value;
+  }
+
+  /**
+   * @return the capture time in seconds of the last record read
+   */
+  public double getRecordTime() {
+    return this.startTime + this.recordMicros / SerialCapture.MICROS_PER_S;
+  }
+
+  /**
+   * @return the time in seconds at which the capture was started
+   */
+  public double getStartTime() {
+    return this.startTime;
+  }
+
+  /**
+   * @return how many records of received bytes were fed
+   */
+  public long getRxRecordCount() {
+    return this.rxRecordCount;
+  }
+
+  /**
+   * @return how many records of transmitted bytes were skipped
+   */
+  public long getTxRecordCount() {
+    return this.txRecordCount;
+  }
+
+  /**
+   * @return how many received bytes were fed
+   */
+  public long getRxByteCount() {
+    return this.rxByteCount;
+  }
+
+  /**
+   * Close the underlying stream.
+   * 
+   * @throws IOException if closing fails
+   */
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
@@ -0,0 +1,55 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+/**
+ * Statistics on how long commands wait between being scheduled and their first
+ * execute call. All durations are in nanoseconds.
+ */
+public class AdmissionLatency {
+  private long count;
+  private long last;
+  private long max;
+  private long total;
+
+  /**
+   * Record the latency of a command that was just admitted.
+   *
+   * @param latency nanoseconds between scheduling and the first execute
+   */
+  void record(long latency) {
+    this.count++;
+    this.last   = latency;
+    this.max    = Math.max(this.max, latency);
+    this.total += latency;
+  }
+
+  /**
+   * @return how many commands have been admitted
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * @return latency of the most recently admitted command
+   */
+  public long getLast() {
+    return this.last;
+  }
+
+  /**
+   * @return the longest latency seen
+   */
+  public long getMax() {
+    return this.max;
+  }
+
+  /**
+   * @return mean latency, NaN if no commands have been admitted
+   */
+  public double getMean() {
+    if (this.count == 0) {
+      return Double.NaN;
+    }
+    return (double) this.total / this.count;
+  }
+}
@@ -0,0 +1,140 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import java.util.Arrays;
+
+/**
+ * An array backed binary min-heap of {@link ScheduledGroup}s ordered by their
+ * due time. Each group keeps track of its own index in the heap so that it can
+ * be removed without searching.
+ */
+class EventHeap {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private ScheduledGroup[] heap;
+  private int              size;
+
+  EventHeap() {
+    this.heap = new ScheduledGroup[DEFAULT_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * @return how many groups are in the heap
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * @return if there are no groups in the heap
+   */
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Get the group which is due the soonest without removing it.
+   *
+   * @return the group with the lowest due time, null if empty
+   */
+  ScheduledGroup peek() {
+    return this.size == 0 ? null : this.heap[0];
+  }
+
+  /**
+   * Add the group to the heap using its current due time.
+   *
+   * @param entry the group to add, must not already be in the heap
+   */
+  void add(ScheduledGroup entry) {
+    if (this.size == this.heap.length) {
+      this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+    }
+    this.heap[this.size] = entry;
+    entry.heapIndex      = this.size;
+    this.size++;
+    this.siftUp(entry.heapIndex);
+  }
+
+  /**
+   * Remove and return the group with the lowest due time.
+   *
+   * @return the group which is due the soonest, null if empty
+   */
+  ScheduledGroup poll() {
+    if (this.size == 0) {
+      return null;
+    }
+    ScheduledGroup result = this.heap[0];
+    this.removeAt(0);
+    return result;
+  }
+
+  /**
+   * Remove the given group from the heap, does nothing if it is not present.
+   *
+   * @param entry the group to remove
+   */
+  void remove(ScheduledGroup entry) {
+    int index = entry.heapIndex;
+    if (index < 0 || index >= this.size || this.heap[index] != entry) {
+      return;
+    }
+    this.removeAt(index);
+  }
+
+  private void removeAt(int index) {
+    ScheduledGroup removed = this.heap[index];
+    this.size--;
+    ScheduledGroup last = this.heap[this.size];
+    this.heap[this.size] = null;
+    removed.heapIndex    = -1;
+    if (index == this.size) {
+      return;
+    }
+    this.heap[index] = last;
+    last.heapIndex   = index;
+    this.siftDown(index);
+    if (this.heap[index] == last) {
+      this.siftUp(index);
+    }
+  }
+
+  private void siftUp(int index) {
+    ScheduledGroup entry = this.heap[index];
+    while (index > 0) {
+      int            parentIndex = (index - 1) >>> 1;
+      ScheduledGroup parent      = this.heap[parentIndex];
+      if (parent.dueTime <= entry.dueTime) {
+        break;
+      }
+      this.heap[index] = parent;
+      parent.heapIndex = index;
+      index            = parentIndex;
+    }
+    this.heap[index] = entry;
+    entry.heapIndex  = index;
+  }
+
+  private void siftDown(int index) {
+    ScheduledGroup entry = this.heap[index];
+    int            half  = this.size >>> 1;
+    while (index < half) {
+      int            childIndex = 2 * index + 1;
+      ScheduledGroup child      = this.heap[childIndex];
+      int            rightIndex = childIndex + 1;
+      if (rightIndex < this.size && this.heap[rightIndex].dueTime < child.dueTime) {
+        childIndex = rightIndex;
+        child      = this.heap[rightIndex];
+      }
+      if (entry.dueTime <= child.dueTime) {
+        break;
+      }
+      this.heap[index] = child;
+      child.heapIndex  = index;
+      index            = childIndex;
+    }
+    this.heap[index] = entry;
+    entry.heapIndex  = index;
+  }
+}
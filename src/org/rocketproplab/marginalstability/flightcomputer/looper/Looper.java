@@ -2,6 +2,7 @@ package org.rocketproplab.marginalstability.flightcomputer.looper;
 
 import org.rocketproplab.marginalstability.flightcomputer.Time;
 import org.rocketproplab.marginalstability.flightcomputer.commands.Command;
+import org.rocketproplab.marginalstability.flightcomputer.commands.CommandPriority;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.Subsystem;
 
 import java.util.*;
@@ -16,7 +17,34 @@ import java.util.*;
  * [Commands]
  * Called as soon as possible after being queued, but may not be called immediately
  * if dependent subsystems are unavailable. Each subsystem can have only one command running
- * at the same time.
+ * at the same time. Commands are admitted in order of their {@link CommandPriority}, and
+ * CRITICAL commands end lower priority commands using the subsystems they need.
+ * <p>
+ * [Threading]
+ * A Looper is owned by the thread that created it until the first tick, and from then on by
+ * the thread that ticks it. Ticking it from any other thread afterwards throws an
+ * {@link IllegalStateException}.
+ * {@link #scheduleCommand(Command)}, {@link #registerEvent(Object, GenericEvent)} and
+ * {@link #removeEvent(Object)} may be called from any thread. Calls from other threads are
+ * posted to a lock-free inbox and applied at the start of the next tick. All other methods
+ * must only be called from the owning thread.
+ * <p>
+ * [Scheduling]
+ * Events with an interval emit on a time grid of multiples of the interval, optionally shifted
+ * by a phase. All events with the same interval and phase share one slot that is checked in a
+ * single pass, and different phases can be used to spread the load of events with the same
+ * interval across ticks.
+ * <p>
+ * [Signals]
+ * Events registered with one or more {@link Signal}s only evaluate their condition on the
+ * tick after one of the signals was raised, the result is cached until the next signal.
+ * Signalled events whose condition is false are taken out of the lists checked every tick,
+ * so they cost nothing until a signal is raised.
+ * <p>
+ * [Allocation]
+ * All state is kept in array backed lists and a heap which are only grown when events or
+ * commands are added, and are walked by index. Once registration settles a tick does not
+ * allocate, so the Looper does not cause garbage collection pauses on its own.
  *
  * @author Chi Chow, Enlil Odisho
  */
@@ -30,23 +58,120 @@ public class Looper {
     return mainLooper;
   }
 
-  private final Time                          time;
-  private final HashMap<Object, GenericEvent> callbackMap;
+  private final Time                             time;
+  private final HashMap<Object, RegisteredEvent> callbackMap;
+
+  /**
+   * List storing all events which have to be checked every tick.
+   */
+  private final ArrayList<RegisteredEvent> conditionEvents;
+
+  /**
+   * Number of removed or disarmed events still present in conditionEvents.
+   */
+  private int staleConditionEvents;
+
+  /**
+   * List storing all events whose conditions are only evaluated when a signal
+   * is raised.
+   */
+  private final ArrayList<RegisteredEvent> signalledEvents;
+
+  /**
+   * Number of removed events still present in signalledEvents.
+   */
+  private int removedSignalledEvents;
+
+  /**
+   * Set when a signal of any event in this Looper has been raised since the
+   * signalled events were last checked.
+   */
+  private volatile boolean signalRaised;
+
+  /**
+   * Heap storing a group for each interval and phase used by events, ordered by
+   * when they are due.
+   */
+  private final EventHeap scheduledEvents;
+
+  /**
+   * All groups of scheduled events, including those with no members left.
+   */
+  private final ArrayList<ScheduledGroup> scheduledGroups;
+
+  /**
+   * Scheduled events that have not been checked for the first time yet.
+   */
+  private final ArrayList<RegisteredEvent> pendingScheduledEvents;
+
+  /**
+   * Groups of scheduled events that are due in the current tick.
+   */
+  private final ArrayList<ScheduledGroup> dueGroups;
+
+  /**
+   * The most subsystems a Looper can track, one per bit of the dependency mask.
+   */
+  public static final int MAX_SUBSYSTEMS = Long.SIZE;
+
   /**
    * List storing all commands that are running.
    */
-  private final ArrayList<Command>            active;
+  private final ArrayList<ScheduledCommand> active;
+
+  /**
+   * List storing all commands awaiting execution, ordered by priority and then
+   * by the order they were scheduled in.
+   */
+  private final ArrayList<ScheduledCommand> queue;
+
+  /**
+   * Dense ids of all subsystems known to this Looper, used as the bit index in
+   * dependency masks.
+   */
+  private final HashMap<Subsystem, Integer> subsystemIds;
+
+  /**
+   * The command using each subsystem, indexed by subsystem id.
+   */
+  private final ScheduledCommand[] subsystemOwners;
 
   /**
-   * List storing all commands awaiting execution.
+   * Bit mask of all subsystems that are being used by a command.
    */
-  private final ArrayList<Command> queue;
+  private long busySubsystems;
 
   /**
-   * Hash map containing all subsystems that are being used along with the
-   * command that's using them.
+   * Bit mask of the subsystems used by commands of each priority, indexed by
+   * priority ordinal.
    */
-  private final HashMap<Subsystem, Command> busySubsystems;
+  private final long[] busySubsystemsByPriority;
+
+  /**
+   * Time between scheduling and first execution of commands, indexed by
+   * priority ordinal.
+   */
+  private final AdmissionLatency[] admissionLatencies;
+
+  /**
+   * Profiler timing events and commands, null when profiling is disabled.
+   */
+  private LooperProfiler profiler;
+
+  /**
+   * Requests from other threads waiting to be applied on the next tick.
+   */
+  private final MpscQueue<LooperMessage> inbox;
+
+  /**
+   * The thread allowed to modify this Looper directly.
+   */
+  private volatile Thread ownerThread;
+
+  /**
+   * If the owner was fixed by the first tick.
+   */
+  private volatile boolean ownerClaimed;
 
   /**
    * Construct a new Looper with time object.
@@ -56,82 +181,525 @@ public class Looper {
   public Looper(Time time) {
     this.time = time;
     callbackMap = new HashMap<>();
+    conditionEvents = new ArrayList<>();
+    staleConditionEvents = 0;
+    signalledEvents = new ArrayList<>();
+    removedSignalledEvents = 0;
+    signalRaised = false;
+    scheduledEvents = new EventHeap();
+    scheduledGroups = new ArrayList<>();
+    pendingScheduledEvents = new ArrayList<>();
+    dueGroups = new ArrayList<>();
     active = new ArrayList<>();
     queue = new ArrayList<>();
-    busySubsystems = new HashMap<>();
+    subsystemIds = new HashMap<>();
+    subsystemOwners = new ScheduledCommand[MAX_SUBSYSTEMS];
+    busySubsystems = 0;
+    busySubsystemsByPriority = new long[CommandPriority.values().length];
+    profiler = null;
+    inbox = new MpscQueue<>();
+    ownerThread = Thread.currentThread();
+    ownerClaimed = false;
+    admissionLatencies = new AdmissionLatency[CommandPriority.values().length];
+    for (int i = 0; i < admissionLatencies.length; i++) {
+      admissionLatencies[i] = new AdmissionLatency();
+    }
   }
 
   /**
    * Events and commands are checked whether they should be executed every tick.
+   * The time is latched for the duration of the tick so every event and command
+   * sees the same time. The first tick makes the calling thread the owner.
    *
    * @param errorListener to report errors
+   * @throws IllegalStateException if the Looper was already ticked by another
+   *                               thread
    */
   public void tick(LooperErrorListener errorListener) {
-    handleEvents(errorListener);
-    handleCommands();
+    Thread currentThread = Thread.currentThread();
+    if (ownerThread != currentThread) {
+      if (ownerClaimed) {
+        throw new IllegalStateException("Looper is owned by " + ownerThread.getName()
+                + " and can not be ticked by " + currentThread.getName());
+      }
+      ownerThread = currentThread;
+    }
+    ownerClaimed = true;
+    boolean latched = latchTime();
+    try {
+      drainInbox(errorListener);
+      handleEvents(errorListener);
+      handleCommands();
+    } finally {
+      if (latched) {
+        time.unlatch();
+      }
+    }
+  }
+
+  /**
+   * Apply all requests posted from other threads since the last tick, in the
+   * order they were posted. Requests that fail are reported with the tag of the
+   * event or the command as the tag.
+   *
+   * @param errorListener to report errors
+   */
+  private void drainInbox(LooperErrorListener errorListener) {
+    LooperMessage message;
+    while ((message = inbox.poll()) != null) {
+      try {
+        switch (message.type) {
+          case SCHEDULE_COMMAND:
+            scheduleCommand(message.command, message.postedAt);
+            break;
+          case REGISTER_EVENT:
+            registerEvent(message.tag, message.event, message.signalled);
+            break;
+          case REMOVE_EVENT:
+            removeEvent(message.tag);
+            break;
+        }
+      } catch (Exception e) {
+        if (errorListener != null) {
+          errorListener.onError(message.command != null ? message.command : message.tag, this, e);
+        }
+      }
+    }
   }
 
   /**
-   * Iterate through events in this Looper and checks if callbacks should be emitted.
+   * @return if the calling thread may modify this Looper directly
+   */
+  private boolean isOwnerThread() {
+    return Thread.currentThread() == ownerThread;
+  }
+
+  /**
+   * Latch the time for this tick unless it is already latched, for instance by
+   * a Looper ticking this one.
+   *
+   * @return if the time was latched by this call
+   */
+  private boolean latchTime() {
+    if (time == null || time.isLatched()) {
+      return false;
+    }
+    time.latch();
+    return true;
+  }
+
+  /**
+   * Checks the events in this Looper and emits callbacks for those whose
+   * conditions are met. Events without an interval are checked every tick while
+   * scheduled events are only checked once they are due, so the cost of a tick
+   * depends on the number of due events rather than the number registered.
    *
    * @param errorListener to report errors
    */
-  @SuppressWarnings("WhileLoopReplaceableByForEach")
   private void handleEvents(LooperErrorListener errorListener) {
-    Iterator<Map.Entry<Object, GenericEvent>> entryIterator = callbackMap.entrySet().iterator();
-    while (entryIterator.hasNext()) {
-      Map.Entry<Object, GenericEvent> entry = entryIterator.next();
-      Object tag = entry.getKey();
-      GenericEvent event = entry.getValue();
+    if (signalRaised) {
+      handleSignalledEvents(errorListener);
+    }
+    handleConditionEvents(errorListener);
+    handleScheduledEvents(errorListener);
+  }
+
+  /**
+   * Evaluate the condition of every signalled event whose signal was raised.
+   * Events whose condition became true are armed, either by adding them to the
+   * events checked every tick or by putting them back into the heap.
+   *
+   * @param errorListener to report errors
+   */
+  private void handleSignalledEvents(LooperErrorListener errorListener) {
+    signalRaised = false;
+    for (int i = 0; i < signalledEvents.size(); i++) {
+      RegisteredEvent entry = signalledEvents.get(i);
+      if (entry.removed) {
+        continue;
+      }
       try {
-        if (event.shouldEmit()) {
-          event.onLooperCallback(tag, this);
+        if (!entry.signalled.refreshIfDirty() || !entry.signalled.getValue()) {
+          continue;
         }
       } catch (Exception e) {
         if (errorListener != null) {
-          errorListener.onError(tag, this, e);
+          errorListener.onError(entry.tag, this, e);
+        }
+        continue;
+      }
+      if (entry.scheduled) {
+        if (entry.parked) {
+          entry.parked = false;
+          joinGroup(entry);
+        }
+      } else if (!entry.armed) {
+        entry.armed = true;
+        conditionEvents.add(entry);
+      }
+    }
+    if (removedSignalledEvents > 0) {
+      int kept = 0;
+      for (int i = 0; i < signalledEvents.size(); i++) {
+        RegisteredEvent entry = signalledEvents.get(i);
+        if (!entry.removed) {
+          signalledEvents.set(kept++, entry);
+        }
+      }
+      truncate(signalledEvents, kept);
+      removedSignalledEvents = 0;
+    }
+  }
+
+  /**
+   * Check every event that has no interval. Events registered during this pass
+   * are first checked on the next tick. Signalled events whose cached condition
+   * is false are disarmed after being checked, so that events such as
+   * {@link DurationRequiredEvent} still see the condition become false.
+   *
+   * @param errorListener to report errors
+   */
+  private void handleConditionEvents(LooperErrorListener errorListener) {
+    int count = conditionEvents.size();
+    for (int i = 0; i < count; i++) {
+      RegisteredEvent entry = conditionEvents.get(i);
+      if (entry.removed) {
+        continue;
+      }
+      emitIfReady(entry, errorListener);
+      if (!entry.removed && entry.signalled != null && !entry.signalled.getValue()) {
+        entry.armed = false;
+        staleConditionEvents++;
+      }
+    }
+    if (staleConditionEvents > 0) {
+      int kept = 0;
+      for (int i = 0; i < conditionEvents.size(); i++) {
+        RegisteredEvent entry = conditionEvents.get(i);
+        if (!entry.removed && (entry.signalled == null || entry.armed)) {
+          conditionEvents.set(kept++, entry);
+        }
+      }
+      truncate(conditionEvents, kept);
+      staleConditionEvents = 0;
+    }
+  }
+
+  /**
+   * Check newly registered scheduled events for the first time to start their
+   * interval and add them to the group for their interval and phase. Then
+   * check every group whose due time has passed and put it back in the heap
+   * with its next due time.
+   *
+   * @param errorListener to report errors
+   */
+  private void handleScheduledEvents(LooperErrorListener errorListener) {
+    int pending = pendingScheduledEvents.size();
+    if (pending > 0) {
+      for (int i = 0; i < pending; i++) {
+        RegisteredEvent entry = pendingScheduledEvents.get(i);
+        if (!entry.removed) {
+          emitIfReady(entry, errorListener);
+          settleScheduledEvent(entry);
         }
       }
+      // Keep events registered during this pass for the next tick
+      int kept = 0;
+      for (int i = pending; i < pendingScheduledEvents.size(); i++) {
+        pendingScheduledEvents.set(kept++, pendingScheduledEvents.get(i));
+      }
+      truncate(pendingScheduledEvents, kept);
+    }
+
+    double currentTime = getCurrentTime();
+    while (!scheduledEvents.isEmpty() && scheduledEvents.peek().dueTime <= currentTime) {
+      dueGroups.add(scheduledEvents.poll());
+    }
+    for (int i = 0; i < dueGroups.size(); i++) {
+      handleScheduledGroup(dueGroups.get(i), errorListener);
+    }
+    dueGroups.clear();
+  }
+
+  /**
+   * Check every member of a due group. Members whose condition is false once
+   * due stay due, so the group is checked again next tick, unless they are
+   * signalled in which case they are parked until a signal makes their
+   * condition true.
+   *
+   * @param group         the group to check
+   * @param errorListener to report errors
+   */
+  private void handleScheduledGroup(ScheduledGroup group, LooperErrorListener errorListener) {
+    double nextDueTime = Double.POSITIVE_INFINITY;
+    int count = group.members.size();
+    for (int i = 0; i < count; i++) {
+      RegisteredEvent entry = group.members.get(i);
+      if (entry.removed || entry.group != group) {
+        continue;
+      }
+      emitIfReady(entry, errorListener);
+      if (entry.removed) {
+        continue;
+      }
+      if (entry.signalled != null && !entry.signalled.getValue()) {
+        entry.parked = true;
+        entry.group = null;
+        group.staleMembers++;
+      } else {
+        nextDueTime = Math.min(nextDueTime,
+                ((ScheduledConditionEvent) entry.event).getNextEmitTime());
+      }
+    }
+    group.compact();
+    if (!group.members.isEmpty() && group.heapIndex < 0) {
+      group.dueTime = nextDueTime;
+      scheduledEvents.add(group);
+    }
+  }
+
+  /**
+   * Add a scheduled event that has been checked for the first time to its
+   * group, or park it if it is signalled and its condition is false.
+   *
+   * @param entry the event to settle
+   */
+  private void settleScheduledEvent(RegisteredEvent entry) {
+    if (entry.removed) {
+      return;
+    }
+    if (entry.signalled != null && !entry.signalled.getValue()) {
+      entry.parked = true;
+    } else {
+      joinGroup(entry);
+    }
+  }
+
+  /**
+   * Add the event to the group for its interval and phase, creating the group
+   * if needed, and make sure the group is due no later than the event.
+   *
+   * @param entry the event to add
+   */
+  private void joinGroup(RegisteredEvent entry) {
+    ScheduledConditionEvent event = (ScheduledConditionEvent) entry.event;
+    ScheduledGroup group = getScheduledGroup(event.getInterval(), event.getPhase());
+    group.compact();
+    group.members.add(entry);
+    entry.group = group;
+    double dueTime = event.getNextEmitTime();
+    if (group.heapIndex < 0) {
+      group.dueTime = dueTime;
+      scheduledEvents.add(group);
+    } else if (dueTime < group.dueTime) {
+      scheduledEvents.remove(group);
+      group.dueTime = dueTime;
+      scheduledEvents.add(group);
+    }
+  }
+
+  /**
+   * Find the group of scheduled events with the given interval and phase,
+   * creating it if there is none.
+   *
+   * @param interval the interval of the events in the group
+   * @param phase    the phase of the events in the group
+   * @return the group
+   */
+  private ScheduledGroup getScheduledGroup(double interval, double phase) {
+    for (int i = 0; i < scheduledGroups.size(); i++) {
+      ScheduledGroup group = scheduledGroups.get(i);
+      if (group.interval == interval && group.phase == phase) {
+        return group;
+      }
+    }
+    ScheduledGroup group = new ScheduledGroup(interval, phase);
+    scheduledGroups.add(group);
+    return group;
+  }
+
+  /**
+   * @return how many groups of scheduled events with a distinct interval and
+   * phase this Looper has created
+   */
+  int getScheduledGroupCount() {
+    return scheduledGroups.size();
+  }
+
+  /**
+   * Invoke the callback of the event if it should emit.
+   *
+   * @param entry         the event to check
+   * @param errorListener to report errors
+   */
+  private void emitIfReady(RegisteredEvent entry, LooperErrorListener errorListener) {
+    try {
+      if (profiler != null) {
+        emitIfReadyProfiled(entry, profiler);
+      } else if (entry.event.shouldEmit()) {
+        entry.event.onLooperCallback(entry.tag, this);
+      }
+    } catch (Exception e) {
+      if (errorListener != null) {
+        errorListener.onError(entry.tag, this, e);
+      }
     }
   }
 
+  /**
+   * Invoke the callback of the event if it should emit, timing both the
+   * condition and the callback.
+   *
+   * @param entry          the event to check
+   * @param activeProfiler the profiler to record in
+   */
+  private void emitIfReadyProfiled(RegisteredEvent entry, LooperProfiler activeProfiler) {
+    if (entry.profiler != activeProfiler) {
+      entry.profiler = activeProfiler;
+      entry.conditionSlot = activeProfiler.getSlot(ProfileSection.EVENT_CONDITION, entry.tag);
+      entry.callbackSlot = activeProfiler.getSlot(ProfileSection.EVENT_CALLBACK, entry.tag);
+    }
+    boolean shouldEmit;
+    long start = System.nanoTime();
+    try {
+      shouldEmit = entry.event.shouldEmit();
+    } finally {
+      activeProfiler.record(entry.conditionSlot, System.nanoTime() - start);
+    }
+    if (shouldEmit) {
+      start = System.nanoTime();
+      try {
+        entry.event.onLooperCallback(entry.tag, this);
+      } finally {
+        activeProfiler.record(entry.callbackSlot, System.nanoTime() - start);
+      }
+    }
+  }
+
+  /**
+   * Call execute on the command, timing it if profiling is enabled.
+   *
+   * @param entry the command to execute
+   */
+  private void execute(ScheduledCommand entry) {
+    LooperProfiler activeProfiler = profiler;
+    if (activeProfiler == null) {
+      entry.command.execute();
+      return;
+    }
+    if (entry.profiler != activeProfiler) {
+      entry.profiler = activeProfiler;
+      entry.executeSlot = activeProfiler.getSlot(ProfileSection.COMMAND_EXECUTE,
+              entry.command.getClass());
+    }
+    long start = System.nanoTime();
+    try {
+      entry.command.execute();
+    } finally {
+      activeProfiler.record(entry.executeSlot, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Enable profiling of every event condition, event callback and command
+   * execution, or disable it by passing null.
+   *
+   * @param profiler the profiler to record in, null to disable profiling
+   */
+  public void setProfiler(LooperProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * @return the profiler recording this Looper, null if profiling is disabled
+   */
+  public LooperProfiler getProfiler() {
+    return profiler;
+  }
+
+  private double getCurrentTime() {
+    return time != null ? time.getSystemTime() : 0.0;
+  }
+
   /**
    * Commands are queued to run once it's Subsystem dependencies are not busy.
-   * Each subsystem can only have one command running at the same time.
+   * Each subsystem can only have one command running at the same time. Commands
+   * that can preempt only wait for subsystems used by commands of the same or
+   * higher priority, lower priority commands using their subsystems are ended.
    */
   private void handleCommands() {
     // Process active commands.
     updateActiveCommands();
 
     // Process queue.
-    // Stores the list of subsystems not available to be used.
-    HashSet<Subsystem> unavailableSubsystems = new HashSet<Subsystem>(
-            busySubsystems.keySet());
+    // Stores the mask of subsystems needed by commands earlier in the queue.
+    long queuedSubsystems = 0;
 
-    // Loop through all commands in queue.
-    Iterator<Command> queueIterator = queue.iterator();
-    while (queueIterator.hasNext()) {
-      // Get next command in queue and it's dependencies.
-      Command command = queueIterator.next();
-      List<Subsystem> dependencies = Arrays.asList(command.getDependencies());
+    // Loop through all commands in queue, keeping those that can't start yet.
+    int kept = 0;
+    for (int i = 0; i < queue.size(); i++) {
+      ScheduledCommand entry = queue.get(i);
+      long dependencies = entry.dependencyMask;
 
       // Check if command has no dependencies that are in-use.
-      if (Collections.disjoint(dependencies, unavailableSubsystems)) {
+      long unavailableSubsystems = queuedSubsystems | getBlockingSubsystems(entry.priority);
+      if ((dependencies & unavailableSubsystems) == 0) {
+        // End lower priority commands using the subsystems we need.
+        preempt(dependencies & busySubsystems);
         // Start running command.
-        queueIterator.remove(); // Remove command from queue.
-        active.add(command); // Add command to active list.
-        command.start(); // Start command execution.
-        command.execute(); // Execute command.
+        active.add(entry); // Add command to active list.
+        entry.command.start(); // Start command execution.
+        admissionLatencies[entry.priority.ordinal()].record(System.nanoTime() - entry.scheduledAt);
+        execute(entry); // Execute command.
         // Mark command's dependencies as busy.
-        for (Subsystem s : dependencies) {
-          busySubsystems.put(s, command);
-        }
+        markBusy(entry);
+      } else {
+        queue.set(kept++, entry);
       }
 
-      // Add all of command's dependencies to unavailableSubsystems list.
+      // Add all of command's dependencies to the queued mask.
       // This prevents us from running a command that uses a dependency that
       // a command earlier in the queue needs.
-      unavailableSubsystems.addAll(dependencies);
+      queuedSubsystems |= dependencies;
+    }
+    truncate(queue, kept);
+  }
+
+  /**
+   * Get the subsystems that a command of the given priority has to wait for.
+   * Commands that can't preempt wait for every busy subsystem, others only for
+   * subsystems used by commands of at least their priority.
+   *
+   * @param priority the priority of the command wanting to run
+   * @return mask of subsystems the command has to wait for
+   */
+  private long getBlockingSubsystems(CommandPriority priority) {
+    if (!priority.canPreempt()) {
+      return busySubsystems;
+    }
+    long blocking = 0;
+    for (int i = 0; i <= priority.ordinal(); i++) {
+      blocking |= busySubsystemsByPriority[i];
+    }
+    return blocking;
+  }
+
+  /**
+   * End the active commands using any of the given subsystems and free all of
+   * their subsystems. Ended commands are not rescheduled.
+   *
+   * @param subsystems mask of the subsystems to free
+   */
+  private void preempt(long subsystems) {
+    while (subsystems != 0) {
+      int id = Long.numberOfTrailingZeros(subsystems);
+      ScheduledCommand owner = subsystemOwners[id];
+      if (owner != null) {
+        active.remove(owner);
+        release(owner);
+        owner.command.end();
+      }
+      subsystems &= subsystems - 1;
     }
   }
 
@@ -139,38 +707,171 @@ public class Looper {
    * Updates the active and busy subsystems lists. Should be called every tick().
    */
   private void updateActiveCommands() {
-    // Loop through all active commands.
-    Iterator<Command> activeCmdsIterator = active.iterator();
-    while (activeCmdsIterator.hasNext()) {
-      Command command = activeCmdsIterator.next();
-
-      if (command.isDone()) {
-        // Remove the command from active list.
-        activeCmdsIterator.remove();
+    // Loop through all active commands, keeping those that are not done.
+    int kept = 0;
+    for (int i = 0; i < active.size(); i++) {
+      ScheduledCommand entry = active.get(i);
+
+      if (entry.command.isDone()) {
         // Make command's dependencies available for other commands to use.
-        Subsystem[] subsystemsUsed = command.getDependencies();
-        for (Subsystem s : subsystemsUsed) {
-          busySubsystems.remove(s, command);
-        }
+        release(entry);
       } else {
         // Invoke command's execute method.
-        command.execute();
+        execute(entry);
+        active.set(kept++, entry);
+      }
+    }
+    truncate(active, kept);
+  }
+
+  /**
+   * Mark all subsystems the command depends on as used by the command.
+   *
+   * @param entry the command that started running
+   */
+  private void markBusy(ScheduledCommand entry) {
+    long mask = entry.dependencyMask;
+    while (mask != 0) {
+      int id = Long.numberOfTrailingZeros(mask);
+      subsystemOwners[id] = entry;
+      mask &= mask - 1;
+    }
+    busySubsystems |= entry.dependencyMask;
+    busySubsystemsByPriority[entry.priority.ordinal()] |= entry.dependencyMask;
+  }
+
+  /**
+   * Free all subsystems that are used by the command.
+   *
+   * @param entry the command that finished running
+   */
+  private void release(ScheduledCommand entry) {
+    long mask = entry.dependencyMask;
+    while (mask != 0) {
+      int id = Long.numberOfTrailingZeros(mask);
+      if (subsystemOwners[id] == entry) {
+        subsystemOwners[id] = null;
+        busySubsystems &= ~(1L << id);
+        busySubsystemsByPriority[entry.priority.ordinal()] &= ~(1L << id);
       }
+      mask &= mask - 1;
+    }
+  }
+
+  /**
+   * Remove all elements from the end of the list starting at size.
+   *
+   * @param list the list to shorten
+   * @param size the new size of the list
+   */
+  private static void truncate(ArrayList<?> list, int size) {
+    for (int i = list.size() - 1; i >= size; i--) {
+      list.remove(i);
     }
   }
 
   /**
    * Add command to command scheduler queue. It will be executed when it's
-   * subsystem dependencies are available.
+   * subsystem dependencies are available. The command is queued behind all
+   * commands of the same or higher priority. When called from a thread other
+   * than the owner the command is queued at the start of the next tick.
    *
    * @param command Command to add.
    */
   public void scheduleCommand(Command command) {
+    if (!isOwnerThread()) {
+      inbox.offer(LooperMessage.scheduleCommand(command));
+      return;
+    }
+    scheduleCommand(command, System.nanoTime());
+  }
+
+  /**
+   * Add command to command scheduler queue on the owning thread.
+   *
+   * @param command     Command to add.
+   * @param scheduledAt System.nanoTime when the command was scheduled
+   */
+  private void scheduleCommand(Command command, long scheduledAt) {
     // Make sure command is not done and not already in scheduler.
-    if (!command.isDone() && !queue.contains(command)
-            && !active.contains(command)) {
-      queue.add(command);
+    if (!command.isDone() && !isScheduled(command)) {
+      CommandPriority priority = command.getPriority();
+      ScheduledCommand entry = new ScheduledCommand(command, getDependencyMask(command),
+              priority, scheduledAt);
+      int index = queue.size();
+      while (index > 0 && queue.get(index - 1).priority.compareTo(priority) > 0) {
+        index--;
+      }
+      queue.add(index, entry);
+    }
+  }
+
+  /**
+   * Get the statistics on how long commands of the given priority wait between
+   * being scheduled and their first execution.
+   *
+   * @param priority the priority to get the statistics for
+   * @return the admission latency statistics of the priority
+   */
+  public AdmissionLatency getAdmissionLatency(CommandPriority priority) {
+    return admissionLatencies[priority.ordinal()];
+  }
+
+  /**
+   * Check if the command is either queued or running.
+   *
+   * @param command the command to look for
+   * @return if the command is in the queue or active list
+   */
+  private boolean isScheduled(Command command) {
+    for (int i = 0; i < queue.size(); i++) {
+      if (queue.get(i).command.equals(command)) {
+        return true;
+      }
+    }
+    for (int i = 0; i < active.size(); i++) {
+      if (active.get(i).command.equals(command)) {
+        return true;
+      }
     }
+    return false;
+  }
+
+  /**
+   * Compute the bit mask of the subsystems the command depends on. Subsystems
+   * that have not been registered yet are registered.
+   *
+   * @param command the command to get the mask for
+   * @return mask with the bit of every subsystem dependency set
+   */
+  private long getDependencyMask(Command command) {
+    long mask = 0;
+    for (Subsystem subsystem : command.getDependencies()) {
+      mask |= 1L << registerSubsystem(subsystem);
+    }
+    return mask;
+  }
+
+  /**
+   * Assign the subsystem a dense id used to track which commands use it. Calling
+   * this more than once for a subsystem returns the same id.
+   *
+   * @param subsystem the subsystem to register
+   * @return the id of the subsystem
+   * @throws IllegalStateException if more than {@link #MAX_SUBSYSTEMS} are
+   *                               registered
+   */
+  public int registerSubsystem(Subsystem subsystem) {
+    Integer id = subsystemIds.get(subsystem);
+    if (id != null) {
+      return id;
+    }
+    if (subsystemIds.size() >= MAX_SUBSYSTEMS) {
+      throw new IllegalStateException("Looper can not track more than " + MAX_SUBSYSTEMS + " subsystems");
+    }
+    int newId = subsystemIds.size();
+    subsystemIds.put(subsystem, newId);
+    return newId;
   }
 
   /**
@@ -180,7 +881,11 @@ public class Looper {
    * @param subsystem Subsystem that is being used by command.
    */
   public Command getCommandUsingSubsystem(Subsystem subsystem) {
-    return busySubsystems.get(subsystem);
+    Integer id = subsystemIds.get(subsystem);
+    if (id == null || subsystemOwners[id] == null) {
+      return null;
+    }
+    return subsystemOwners[id].command;
   }
 
   /**
@@ -213,6 +918,20 @@ public class Looper {
     emitScheduledIf(tag, interval, EventCondition.TRUE, callback);
   }
 
+  /**
+   * Create an event that will emit once every specified interval, at the times
+   * phase + k * interval.
+   * Event will not be removed unless removeEvent is called.
+   *
+   * @param tag      to identify the event
+   * @param interval at which callbacks should be emitted
+   * @param phase    offset of the emit times from multiples of the interval
+   * @param callback to be invoked by Looper
+   */
+  public void emitScheduled(Object tag, double interval, double phase, EventCallback callback) {
+    emitScheduledIf(tag, interval, phase, EventCondition.TRUE, callback);
+  }
+
   /**
    * Create an event that will emit every time the specified
    * condition returns true.
@@ -226,6 +945,22 @@ public class Looper {
     emitScheduledIf(tag, 0.0, condition, callback);
   }
 
+  /**
+   * Create an event that will emit every tick while the specified condition is
+   * true. The condition is only evaluated after one of the signals is raised.
+   * Event will not be removed unless removeEvent is called.
+   *
+   * @param tag       to identify the event
+   * @param condition required for callbacks to be emitted
+   * @param callback  to be invoked by Looper
+   * @param signals   which are raised when the result of the condition might
+   *                  have changed
+   */
+  public void emitIf(Object tag, EventCondition condition, EventCallback callback,
+                     Signal... signals) {
+    emitScheduledIf(tag, 0.0, condition, callback, signals);
+  }
+
   /**
    * Create an event that will emit once every specified interval,
    * if the specified condition returns true.
@@ -241,6 +976,41 @@ public class Looper {
     registerEvent(tag, new ScheduledConditionEvent(interval, condition, callback, time));
   }
 
+  /**
+   * Create an event that will emit once every specified interval, at the times
+   * phase + k * interval, if the specified condition returns true.
+   * Event will not be removed unless removeEvent is called.
+   *
+   * @param tag       to identify the event
+   * @param interval  at which callbacks should be emitted
+   * @param phase     offset of the emit times from multiples of the interval
+   * @param condition required for callbacks to be emitted
+   * @param callback  to be invoked by Looper
+   */
+  public void emitScheduledIf(Object tag, double interval, double phase,
+                              EventCondition condition, EventCallback callback) {
+    registerEvent(tag, new ScheduledConditionEvent(interval, phase, condition, callback, time));
+  }
+
+  /**
+   * Create an event that will emit once every specified interval, if the
+   * specified condition is true. The condition is only evaluated after one of
+   * the signals is raised.
+   * Event will not be removed unless removeEvent is called.
+   *
+   * @param tag       to identify the event
+   * @param interval  at which callbacks should be emitted
+   * @param condition required for callbacks to be emitted
+   * @param callback  to be invoked by Looper
+   * @param signals   which are raised when the result of the condition might
+   *                  have changed
+   */
+  public void emitScheduledIf(Object tag, double interval, EventCondition condition,
+                              EventCallback callback, Signal... signals) {
+    SignalledCondition signalled = createSignalledCondition(condition, signals);
+    registerEvent(tag, new ScheduledConditionEvent(interval, signalled, callback, time), signalled);
+  }
+
   /**
    * Create an event that will emit once when the specified
    * condition returns true.
@@ -271,18 +1041,108 @@ public class Looper {
   }
 
   /**
-   * Register an event to this Looper.
+   * Create an event that will emit once when the specified condition is true
+   * for the specified interval. The condition is only evaluated after one of
+   * the signals is raised, the time it has been true for keeps counting while
+   * no signal is raised.
+   * Event will be removed automatically once the callback has been invoked.
+   *
+   * @param tag                  to identify the event
+   * @param durationTrueRequired time needed for condition to return true
+   * @param condition            required for callback to be emitted
+   * @param callback             to be invoked by Looper
+   * @param signals              which are raised when the result of the
+   *                             condition might have changed
+   */
+  public void emitOnceIf(Object tag, double durationTrueRequired, EventCondition condition,
+                         EventCallback callback, Signal... signals) {
+    SignalledCondition signalled = createSignalledCondition(condition, signals);
+    registerEvent(tag, new DurationRequiredEvent(
+            durationTrueRequired, signalled, callback, time), signalled);
+  }
+
+  /**
+   * Wrap the condition so that it is only evaluated when a signal is raised.
+   *
+   * @param condition the condition to wrap
+   * @param signals   the signals the condition depends on
+   * @return the wrapped condition
+   */
+  private static SignalledCondition createSignalledCondition(EventCondition condition,
+                                                             Signal[] signals) {
+    if (signals == null || signals.length == 0) {
+      throw new IllegalArgumentException("Signalled events need at least one signal");
+    }
+    for (Signal signal : signals) {
+      if (signal == null) {
+        throw new IllegalArgumentException("Signal of registered event cannot be null");
+      }
+    }
+    return new SignalledCondition(condition, signals);
+  }
+
+  /**
+   * Register an event to this Looper. When called from a thread other than the
+   * owner the event is registered at the start of the next tick, and a
+   * duplicated tag is reported to the error listener of that tick instead of
+   * being thrown.
    *
    * @param tag      to identify the event
    * @param newEvent to be registered
    */
   public void registerEvent(Object tag, GenericEvent newEvent) {
+    registerEvent(tag, newEvent, null);
+  }
+
+  /**
+   * Register an event whose condition may be signalled.
+   *
+   * @param tag       to identify the event
+   * @param newEvent  to be registered
+   * @param signalled the cached condition of the event, null if the event is
+   *                  not signalled
+   */
+  private void registerEvent(Object tag, GenericEvent newEvent, SignalledCondition signalled) {
     if (tag == null) {
       throw new IllegalArgumentException("Tag of registered event cannot be null");
+    } else if (!isOwnerThread()) {
+      inbox.offer(LooperMessage.registerEvent(tag, newEvent, signalled));
+      return;
     } else if (callbackMap.containsKey(tag)) {
       throw new IllegalArgumentException("Tag of registered event cannot be duplicated");
     }
-    callbackMap.put(tag, newEvent);
+    RegisteredEvent entry = new RegisteredEvent(tag, newEvent, isScheduled(newEvent));
+    callbackMap.put(tag, entry);
+    if (entry.scheduled) {
+      pendingScheduledEvents.add(entry);
+    } else if (signalled == null) {
+      conditionEvents.add(entry);
+    }
+    if (signalled != null) {
+      entry.signalled = signalled;
+      signalledEvents.add(entry);
+      signalled.attach(this);
+    }
+  }
+
+  /**
+   * Called by signals of events in this Looper when they are raised, from any
+   * thread.
+   */
+  void onSignalRaised() {
+    signalRaised = true;
+  }
+
+  /**
+   * Events with a positive interval only need to be checked once they are due,
+   * all other events are checked every tick.
+   *
+   * @param event the event to check
+   * @return if the event can be stored in a scheduled group
+   */
+  private static boolean isScheduled(GenericEvent event) {
+    return event instanceof ScheduledConditionEvent
+            && ((ScheduledConditionEvent) event).getInterval() > 0;
   }
 
   /**
@@ -292,17 +1152,40 @@ public class Looper {
    * @return event registered with the given tag
    */
   public GenericEvent getEvent(Object tag) {
-    return callbackMap.get(tag);
+    RegisteredEvent entry = callbackMap.get(tag);
+    return entry != null ? entry.event : null;
   }
 
   /**
-   * Remove an event from this Looper.
+   * Remove an event from this Looper. When called from a thread other than the
+   * owner the event is removed at the start of the next tick and null is
+   * returned.
    *
    * @param tag to identify the event
    * @return the event removed
    */
   public GenericEvent removeEvent(Object tag) {
-    return callbackMap.remove(tag);
+    if (!isOwnerThread()) {
+      inbox.offer(LooperMessage.removeEvent(tag));
+      return null;
+    }
+    RegisteredEvent entry = callbackMap.remove(tag);
+    if (entry == null) {
+      return null;
+    }
+    entry.removed = true;
+    if (entry.scheduled) {
+      if (entry.group != null) {
+        entry.group.staleMembers++;
+      }
+    } else if (entry.signalled == null || entry.armed) {
+      staleConditionEvents++;
+    }
+    if (entry.signalled != null) {
+      entry.signalled.detach();
+      removedSignalledEvents++;
+    }
+    return entry.event;
   }
 
   @FunctionalInterface
@@ -0,0 +1,46 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import org.rocketproplab.marginalstability.flightcomputer.commands.Command;
+
+/**
+ * A request posted to a {@link Looper} from a thread other than the one
+ * ticking it. The Looper applies it at the start of its next tick.
+ */
+class LooperMessage {
+  enum Type {
+    SCHEDULE_COMMAND, REGISTER_EVENT, REMOVE_EVENT
+  }
+
+  final Type               type;
+  final Object             tag;
+  final GenericEvent       event;
+  final SignalledCondition signalled;
+  final Command            command;
+  final long               postedAt;
+
+  private LooperMessage(Type type, Object tag, GenericEvent event,
+                        SignalledCondition signalled, Command command, long postedAt) {
+    this.type      = type;
+    this.tag       = tag;
+    this.event     = event;
+    this.signalled = signalled;
+    this.command   = command;
+    this.postedAt  = postedAt;
+  }
+
+  /**
+   * The command is stamped with System.nanoTime when it is posted so its
+   * admission latency includes the time spent waiting in the inbox.
+   */
+  static LooperMessage scheduleCommand(Command command) {
+    return new LooperMessage(Type.SCHEDULE_COMMAND, null, null, null, command, System.nanoTime());
+  }
+
+  static LooperMessage registerEvent(Object tag, GenericEvent event, SignalledCondition signalled) {
+    return new LooperMessage(Type.REGISTER_EVENT, tag, event, signalled, null, 0);
+  }
+
+  static LooperMessage removeEvent(Object tag) {
+    return new LooperMessage(Type.REMOVE_EVENT, tag, null, null, null, 0);
+  }
+}
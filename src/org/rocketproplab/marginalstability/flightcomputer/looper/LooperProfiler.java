@@ -0,0 +1,216 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects how long each event and command in a {@link Looper} takes. Every
+ * event tag and command class gets a slot per {@link ProfileSection} the first
+ * time it is timed. Each slot keeps the count, total, minimum and maximum
+ * duration along with a histogram of durations in power of two nanosecond
+ * buckets. All statistics live in arrays allocated up front, once every slot is
+ * used new keys are not recorded.<br>
+ * <br>
+ * Profiling is enabled by passing a profiler to
+ * {@link Looper#setProfiler(LooperProfiler)}. Without a profiler the Looper
+ * does not read the clock at all.
+ */
+public class LooperProfiler {
+  /**
+   * Number of histogram buckets. Bucket 0 counts durations of 0 ns, bucket i
+   * counts durations in [2^(i-1), 2^i) ns and the last bucket counts everything
+   * longer.
+   */
+  public static final int BUCKETS = 40;
+
+  private static final double NANOS_PER_MICRO = 1e3;
+
+  private final int                        capacity;
+  private final List<Map<Object, Integer>> slotMaps;
+  private final ProfileSection[]           sections;
+  private final Object[]                   keys;
+  private final long[]                     counts;
+  private final long[]                     totals;
+  private final long[]                     mins;
+  private final long[]                     maxs;
+  private final long[]                     histograms;
+  private int                              slotCount;
+
+  /**
+   * Create a new profiler with room for the given number of slots.
+   *
+   * @param capacity how many (section, key) pairs can be recorded
+   */
+  public LooperProfiler(int capacity) {
+    this.capacity = capacity;
+    this.slotMaps = new ArrayList<>(ProfileSection.values().length);
+    for (int i = 0; i < ProfileSection.values().length; i++) {
+      this.slotMaps.add(new HashMap<>());
+    }
+    this.sections   = new ProfileSection[capacity];
+    this.keys       = new Object[capacity];
+    this.counts     = new long[capacity];
+    this.totals     = new long[capacity];
+    this.mins       = new long[capacity];
+    this.maxs       = new long[capacity];
+    this.histograms = new long[capacity * BUCKETS];
+    this.slotCount  = 0;
+    this.reset();
+  }
+
+  /**
+   * Get the slot for the given section and key, assigning one if needed.
+   *
+   * @param section what part of the tick is timed
+   * @param key     the event tag or command class
+   * @return the slot or -1 if all slots are in use
+   */
+  int getSlot(ProfileSection section, Object key) {
+    Map<Object, Integer> slotMap = this.slotMaps.get(section.ordinal());
+    Integer              slot    = slotMap.get(key);
+    if (slot != null) {
+      return slot;
+    }
+    if (this.slotCount >= this.capacity) {
+      return -1;
+    }
+    int newSlot = this.slotCount++;
+    this.sections[newSlot] = section;
+    this.keys[newSlot]     = key;
+    slotMap.put(key, newSlot);
+    return newSlot;
+  }
+
+  /**
+   * Record a duration in the given slot.
+   *
+   * @param slot     the slot to record in, ignored if negative
+   * @param duration the duration in nanoseconds
+   */
+  void record(int slot, long duration) {
+    if (slot < 0) {
+      return;
+    }
+    this.counts[slot]++;
+    this.totals[slot] += duration;
+    if (duration < this.mins[slot]) {
+      this.mins[slot] = duration;
+    }
+    if (duration > this.maxs[slot]) {
+      this.maxs[slot] = duration;
+    }
+    this.histograms[slot * BUCKETS + getBucket(duration)]++;
+  }
+
+  /**
+   * Get the histogram bucket of a duration.
+   *
+   * @param duration the duration in nanoseconds
+   * @return the index of the bucket counting the duration
+   */
+  public static int getBucket(long duration) {
+    if (duration <= 0) {
+      return 0;
+    }
+    return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(duration));
+  }
+
+  /**
+   * Clear all recorded durations, keys keep their slots.
+   */
+  public void reset() {
+    Arrays.fill(this.counts, 0);
+    Arrays.fill(this.totals, 0);
+    Arrays.fill(this.mins, Long.MAX_VALUE);
+    Arrays.fill(this.maxs, 0);
+    Arrays.fill(this.histograms, 0);
+  }
+
+  private int findSlot(ProfileSection section, Object key) {
+    Integer slot = this.slotMaps.get(section.ordinal()).get(key);
+    return slot != null ? slot : -1;
+  }
+
+  /**
+   * @return how many durations were recorded for the section and key
+   */
+  public long getCount(ProfileSection section, Object key) {
+    int slot = this.findSlot(section, key);
+    return slot < 0 ? 0 : this.counts[slot];
+  }
+
+  /**
+   * @return the shortest recorded duration in nanoseconds, 0 if none
+   */
+  public long getMin(ProfileSection section, Object key) {
+    int slot = this.findSlot(section, key);
+    return slot < 0 || this.counts[slot] == 0 ? 0 : this.mins[slot];
+  }
+
+  /**
+   * @return the longest recorded duration in nanoseconds, 0 if none
+   */
+  public long getMax(ProfileSection section, Object key) {
+    int slot = this.findSlot(section, key);
+    return slot < 0 ? 0 : this.maxs[slot];
+  }
+
+  /**
+   * @return the mean recorded duration in nanoseconds, NaN if none
+   */
+  public double getMean(ProfileSection section, Object key) {
+    int slot = this.findSlot(section, key);
+    if (slot < 0 || this.counts[slot] == 0) {
+      return Double.NaN;
+    }
+    return (double) this.totals[slot] / this.counts[slot];
+  }
+
+  /**
+   * @return a copy of the histogram for the section and key, see
+   *         {@link #BUCKETS} for the bucket bounds
+   */
+  public long[] getHistogram(ProfileSection section, Object key) {
+    int slot = this.findSlot(section, key);
+    if (slot < 0) {
+      return new long[BUCKETS];
+    }
+    return Arrays.copyOfRange(this.histograms, slot * BUCKETS, (slot + 1) * BUCKETS);
+  }
+
+  /**
+   * Write one line per slot with recorded durations to the stream. Times are in
+   * microseconds.
+   *
+   * @param out the stream to write to
+   */
+  public void writeReport(PrintStream out) {
+    out.println("section,key,count,min_us,mean_us,max_us");
+    for (int slot = 0; slot < this.slotCount; slot++) {
+      if (this.counts[slot] == 0) {
+        continue;
+      }
+      out.println(this.sections[slot] + "," + this.keys[slot] + "," + this.counts[slot] + ","
+          + this.mins[slot] / NANOS_PER_MICRO + ","
+          + (double) this.totals[slot] / this.counts[slot] / NANOS_PER_MICRO + ","
+          + this.maxs[slot] / NANOS_PER_MICRO);
+    }
+  }
+
+  /**
+   * Register an event on the looper that writes a report to the stream at the
+   * given interval.
+   *
+   * @param looper   the looper to register the event with
+   * @param tag      the tag for the event
+   * @param interval how often to write the report in seconds
+   * @param out      the stream to write to, for instance a log file
+   */
+  public void scheduleReport(Looper looper, Object tag, double interval, PrintStream out) {
+    looper.emitScheduled(tag, interval, (eventTag, from) -> this.writeReport(out));
+  }
+}
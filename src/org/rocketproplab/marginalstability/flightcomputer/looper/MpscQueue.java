@@ -0,0 +1,80 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded lock-free queue that any number of threads may add to while a
+ * single thread removes from it. Producers swap themselves in as the new head
+ * with a single atomic operation, the consumer follows the links from the
+ * oldest node and never allocates.<br>
+ * <br>
+ * An element whose producer has swapped the head but not yet linked its node
+ * is not visible to the consumer until the link is written, in that case
+ * {@link #poll()} returns null and the element is returned by a later call.
+ *
+ * @param <E> the type of element stored in the queue
+ */
+public class MpscQueue<E> {
+
+  private static class Node<E> {
+    private E                value;
+    private volatile Node<E> next;
+
+    private Node(E value) {
+      this.value = value;
+    }
+  }
+
+  private final AtomicReference<Node<E>> head;
+  private Node<E>                        tail;
+
+  /**
+   * Create a new empty queue.
+   */
+  public MpscQueue() {
+    Node<E> stub = new Node<>(null);
+    this.head = new AtomicReference<>(stub);
+    this.tail = stub;
+  }
+
+  /**
+   * Add the element to the queue, may be called from any thread.
+   *
+   * @param value the element to add, must not be null
+   */
+  public void offer(E value) {
+    if (value == null) {
+      throw new NullPointerException("Can not add null to queue");
+    }
+    Node<E> node     = new Node<>(value);
+    Node<E> previous = this.head.getAndSet(node);
+    previous.next = node;
+  }
+
+  /**
+   * Remove the oldest element from the queue. Must only be called from the
+   * consuming thread.
+   *
+   * @return the oldest element or null if the queue is empty
+   */
+  public E poll() {
+    Node<E> next = this.tail.next;
+    if (next == null) {
+      return null;
+    }
+    E value = next.value;
+    next.value = null;
+    this.tail  = next;
+    return value;
+  }
+
+  /**
+   * Check if the queue has no elements visible to the consumer. Must only be
+   * called from the consuming thread.
+   *
+   * @return if {@link #poll()} would return null
+   */
+  public boolean isEmpty() {
+    return this.tail.next == null;
+  }
+}
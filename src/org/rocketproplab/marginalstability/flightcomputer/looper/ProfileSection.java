@@ -0,0 +1,19 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+/**
+ * The parts of a {@link Looper} tick that a {@link LooperProfiler} times.
+ */
+public enum ProfileSection {
+  /**
+   * Checking if an event should emit, keyed by the event tag.
+   */
+  EVENT_CONDITION,
+  /**
+   * Invoking the callback of an event, keyed by the event tag.
+   */
+  EVENT_CALLBACK,
+  /**
+   * Executing a command, keyed by the class of the command.
+   */
+  COMMAND_EXECUTE;
+}
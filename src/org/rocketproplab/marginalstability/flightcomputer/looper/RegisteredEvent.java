@@ -0,0 +1,65 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+/**
+ * Book keeping for an event that has been registered with a {@link Looper}.
+ * Holds the tag the event was registered with along with where the event is
+ * currently stored inside the Looper.
+ */
+class RegisteredEvent {
+  final Object       tag;
+  final GenericEvent event;
+
+  /**
+   * If the event is stored in a {@link ScheduledGroup} rather than being
+   * checked every tick.
+   */
+  final boolean scheduled;
+
+  /**
+   * The group the event is a member of, null if the event has not been checked
+   * for the first time yet or is parked.
+   */
+  ScheduledGroup group;
+
+  /**
+   * Set once the event has been removed from the Looper so that any pending
+   * references to it during a tick are skipped.
+   */
+  boolean removed;
+
+  /**
+   * The cached condition of the event if it is only evaluated when a
+   * {@link Signal} is raised, null if the event is checked normally.
+   */
+  SignalledCondition signalled;
+
+  /**
+   * If a signalled event without an interval is currently in the list of
+   * events checked every tick.
+   */
+  boolean armed;
+
+  /**
+   * If a signalled scheduled event was taken out of its {@link ScheduledGroup}
+   * because its condition is false.
+   */
+  boolean parked;
+
+  /**
+   * The profiler the slots below belong to, null if not profiled yet.
+   */
+  LooperProfiler profiler;
+  int            conditionSlot;
+  int            callbackSlot;
+
+  RegisteredEvent(Object tag, GenericEvent event, boolean scheduled) {
+    this.tag       = tag;
+    this.event     = event;
+    this.scheduled = scheduled;
+    this.group     = null;
+    this.removed   = false;
+    this.signalled = null;
+    this.armed     = false;
+    this.parked    = false;
+  }
+}
@@ -0,0 +1,34 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import org.rocketproplab.marginalstability.flightcomputer.commands.Command;
+import org.rocketproplab.marginalstability.flightcomputer.commands.CommandPriority;
+
+/**
+ * A command that has been scheduled with a {@link Looper} along with the
+ * subsystems it depends on as a bit mask of subsystem ids. The mask and
+ * priority are read once when the command is scheduled so that checking if the
+ * command can run does not need to query the command again.
+ */
+class ScheduledCommand {
+  final Command         command;
+  final long            dependencyMask;
+  final CommandPriority priority;
+
+  /**
+   * System.nanoTime when the command was scheduled.
+   */
+  final long scheduledAt;
+
+  /**
+   * The profiler the execute slot belongs to, null if not profiled yet.
+   */
+  LooperProfiler profiler;
+  int            executeSlot;
+
+  ScheduledCommand(Command command, long dependencyMask, CommandPriority priority, long scheduledAt) {
+    this.command        = command;
+    this.dependencyMask = dependencyMask;
+    this.priority       = priority;
+    this.scheduledAt    = scheduledAt;
+  }
+}
@@ -3,18 +3,37 @@ package org.rocketproplab.marginalstability.flightcomputer.looper;
 import org.rocketproplab.marginalstability.flightcomputer.Time;
 
 /**
- * An event that is scheduled to be triggered by a specific condition.
+ * An event that is scheduled to be triggered by a specific condition. The
+ * event emits on a fixed time grid of multiples of the interval shifted by the
+ * phase, so events with the same interval and phase stay aligned and don't
+ * drift apart with the tick timing.
  *
  * @author Chi Chow
  */
 public class ScheduledConditionEvent extends GenericEvent {
   private double interval;
+  private double phase;
   private double lastInvoked;
 
   public ScheduledConditionEvent(
           double interval, EventCondition condition, EventCallback callback, Time time) {
+    this(interval, 0.0, condition, callback, time);
+  }
+
+  /**
+   * Create a new event which emits at the times phase + k * interval.
+   *
+   * @param interval  at which callbacks should be emitted
+   * @param phase     offset of the emit times from multiples of the interval
+   * @param condition required for callbacks to be emitted
+   * @param callback  to be invoked by Looper
+   * @param time      to read the current time from
+   */
+  public ScheduledConditionEvent(double interval, double phase,
+                                 EventCondition condition, EventCallback callback, Time time) {
     super(condition, callback, time);
     this.interval    = interval;
+    this.phase       = interval > 0 ? phase - Math.floor(phase / interval) * interval : 0.0;
     this.lastInvoked = Double.NaN;
   }
 
@@ -22,12 +41,59 @@ public class ScheduledConditionEvent extends GenericEvent {
   public boolean shouldEmit() {
     double currentTime = getCurrentTime();
     if (Double.isNaN(lastInvoked)) {
-      lastInvoked = currentTime;
+      lastInvoked = alignToGrid(currentTime);
     }
-    if (super.shouldEmit() && currentTime - lastInvoked >= interval) {
-      lastInvoked = currentTime;
+    if (super.shouldEmit() && getNextEmitTime() <= currentTime) {
+      lastInvoked = alignToGrid(currentTime);
       return true;
     }
     return false;
   }
-}
\ No newline at end of file
+
+  /**
+   * Get the last point of the time grid at or before the given time.
+   *
+   * @param currentTime the time to align
+   * @return the aligned time
+   */
+  private double alignToGrid(double currentTime) {
+    if (interval <= 0) {
+      return currentTime;
+    }
+    double aligned = phase + Math.floor((currentTime - phase) / interval) * interval;
+    // Rounding can put the result one interval early
+    if (aligned + interval <= currentTime) {
+      aligned += interval;
+    }
+    return aligned;
+  }
+
+  /**
+   * @return the interval between emitted callbacks
+   */
+  public double getInterval() {
+    return interval;
+  }
+
+  /**
+   * @return the offset of the emit times from multiples of the interval, in
+   * the range [0, interval)
+   */
+  public double getPhase() {
+    return phase;
+  }
+
+  /**
+   * Get the earliest time at which this event could emit again. Before the
+   * event has been checked for the first time this is negative infinity as the
+   * first check is needed to start the interval.
+   *
+   * @return the time at which the event should be checked next
+   */
+  public double getNextEmitTime() {
+    if (Double.isNaN(lastInvoked)) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    return lastInvoked + interval;
+  }
+}
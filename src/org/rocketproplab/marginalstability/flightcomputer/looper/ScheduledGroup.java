@@ -0,0 +1,60 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import java.util.ArrayList;
+
+/**
+ * A slot in the {@link EventHeap} shared by all scheduled events with the same
+ * interval and phase. As the events emit on the same time grid they are due at
+ * the same time, so the whole group is checked in a single pass with one time
+ * comparison.
+ */
+class ScheduledGroup {
+  final double                     interval;
+  final double                     phase;
+  final ArrayList<RegisteredEvent> members;
+
+  /**
+   * Number of members that were removed or parked but are still in the members
+   * list.
+   */
+  int staleMembers;
+
+  /**
+   * The earliest time at which any member could emit.
+   */
+  double dueTime;
+
+  /**
+   * Index in the {@link EventHeap}, -1 if the group is not in the heap.
+   */
+  int heapIndex;
+
+  ScheduledGroup(double interval, double phase) {
+    this.interval     = interval;
+    this.phase        = phase;
+    this.members      = new ArrayList<>();
+    this.staleMembers = 0;
+    this.dueTime      = Double.POSITIVE_INFINITY;
+    this.heapIndex    = -1;
+  }
+
+  /**
+   * Remove all members that no longer belong to this group.
+   */
+  void compact() {
+    if (this.staleMembers == 0) {
+      return;
+    }
+    int kept = 0;
+    for (int i = 0; i < this.members.size(); i++) {
+      RegisteredEvent entry = this.members.get(i);
+      if (!entry.removed && entry.group == this) {
+        this.members.set(kept++, entry);
+      }
+    }
+    for (int i = this.members.size() - 1; i >= kept; i--) {
+      this.members.remove(i);
+    }
+    this.staleMembers = 0;
+  }
+}
@@ -0,0 +1,62 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import java.util.Arrays;
+
+/**
+ * A source of changes that event conditions can depend on, for instance a new
+ * flight mode or a new barometer sample. Conditions registered with a signal
+ * are only evaluated again by the {@link Looper} after the signal has been
+ * raised, so a condition whose inputs are quiet costs nothing per tick.<br>
+ * <br>
+ * {@link #raise()} may be called from any thread and does not allocate.
+ */
+public class Signal {
+  private static final SignalledCondition[] NO_SUBSCRIBERS = new SignalledCondition[0];
+
+  private volatile SignalledCondition[] subscribers;
+
+  /**
+   * Create a new signal with no conditions depending on it.
+   */
+  public Signal() {
+    this.subscribers = NO_SUBSCRIBERS;
+  }
+
+  /**
+   * Mark every condition depending on this signal as dirty so that it is
+   * evaluated again on the next tick of its Looper.
+   */
+  public void raise() {
+    SignalledCondition[] current = this.subscribers;
+    for (int i = 0; i < current.length; i++) {
+      current[i].markDirty();
+    }
+  }
+
+  /**
+   * @return how many registered conditions depend on this signal
+   */
+  public int getSubscriberCount() {
+    return this.subscribers.length;
+  }
+
+  synchronized void subscribe(SignalledCondition condition) {
+    SignalledCondition[] current = this.subscribers;
+    SignalledCondition[] updated = Arrays.copyOf(current, current.length + 1);
+    updated[current.length] = condition;
+    this.subscribers         = updated;
+  }
+
+  synchronized void unsubscribe(SignalledCondition condition) {
+    SignalledCondition[] current = this.subscribers;
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == condition) {
+        SignalledCondition[] updated = new SignalledCondition[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, i);
+        System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+        this.subscribers = updated;
+        return;
+      }
+    }
+  }
+}
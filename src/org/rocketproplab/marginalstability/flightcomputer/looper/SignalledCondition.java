@@ -0,0 +1,88 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+/**
+ * Wraps a condition which only changes when one of its {@link Signal}s is
+ * raised. The Looper evaluates the wrapped condition once after a signal has
+ * been raised and the cached result is returned every time the event checks
+ * the condition until the next signal.
+ */
+class SignalledCondition implements EventCondition {
+  private final EventCondition condition;
+  private final Signal[]       signals;
+
+  private volatile Looper  looper;
+  private volatile boolean dirty;
+  private boolean          value;
+
+  SignalledCondition(EventCondition condition, Signal[] signals) {
+    this.condition = condition;
+    this.signals   = signals.clone();
+    this.looper    = null;
+    this.dirty     = true;
+    this.value     = false;
+  }
+
+  @Override
+  public boolean shouldEmit() {
+    return this.value;
+  }
+
+  /**
+   * @return the result of the last evaluation of the wrapped condition
+   */
+  boolean getValue() {
+    return this.value;
+  }
+
+  /**
+   * Clear the dirty flag and evaluate the wrapped condition if it was set. If
+   * the condition throws the cached value becomes false and the exception is
+   * passed on.
+   *
+   * @return if the condition was evaluated
+   */
+  boolean refreshIfDirty() {
+    if (!this.dirty) {
+      return false;
+    }
+    this.dirty = false;
+    this.value = false;
+    this.value = this.condition.shouldEmit();
+    return true;
+  }
+
+  /**
+   * Flag the condition to be evaluated again on the next tick of its Looper.
+   */
+  void markDirty() {
+    this.dirty = true;
+    Looper current = this.looper;
+    if (current != null) {
+      current.onSignalRaised();
+    }
+  }
+
+  /**
+   * Start listening to the signals, the condition is evaluated on the next tick
+   * of the Looper.
+   *
+   * @param owner the Looper the condition is registered with
+   */
+  void attach(Looper owner) {
+    this.looper = owner;
+    for (Signal signal : this.signals) {
+      signal.subscribe(this);
+    }
+    this.markDirty();
+  }
+
+  /**
+   * Stop listening to the signals.
+   */
+  void detach() {
+    for (Signal signal : this.signals) {
+      signal.unsubscribe(this);
+    }
+    this.looper = null;
+  }
+}
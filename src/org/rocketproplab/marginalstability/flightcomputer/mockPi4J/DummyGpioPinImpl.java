@@ -1,5 +1,7 @@
 package org.rocketproplab.marginalstability.flightcomputer.mockPi4J;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -11,18 +13,28 @@ import com.pi4j.io.gpio.Pin;
 import com.pi4j.io.gpio.PinMode;
 import com.pi4j.io.gpio.PinPullResistance;
 import com.pi4j.io.gpio.PinState;
+import com.pi4j.io.gpio.event.GpioPinDigitalStateChangeEvent;
 import com.pi4j.io.gpio.event.GpioPinListener;
+import com.pi4j.io.gpio.event.GpioPinListenerDigital;
 
+/**
+ * A GPIO pin which does nothing except remember its state and listeners.
+ * Changing the state with {@link #setState(PinState)} notifies the digital
+ * listeners, which lets tests simulate edges on an input pin.
+ */
 public class DummyGpioPinImpl implements GpioPin{
 
+	private List<GpioPinListener> listeners = new ArrayList<>();
+	private PinState              state;
+
 	@Override
 	public void addListener(GpioPinListener... arg0) {
-		
+		this.listeners.addAll(Arrays.asList(arg0));
 	}
 
 	@Override
 	public void addListener(List<? extends GpioPinListener> arg0) {
-		
+		this.listeners.addAll(arg0);
 	}
 
 	@Override
@@ -41,12 +53,12 @@ public class DummyGpioPinImpl implements GpioPin{
 	}
 	
 	public PinState getState() {
-		return null;
+		return this.state;
 	}
 
 	@Override
 	public Collection<GpioPinListener> getListeners() {
-		return null;
+		return this.listeners;
 	}
 
 	@Override
@@ -101,7 +113,7 @@ public class DummyGpioPinImpl implements GpioPin{
 
 	@Override
 	public boolean hasListener(GpioPinListener... arg0) {
-		return false;
+		return this.listeners.containsAll(Arrays.asList(arg0));
 	}
 
 	@Override
@@ -126,17 +138,17 @@ public class DummyGpioPinImpl implements GpioPin{
 
 	@Override
 	public void removeAllListeners() {
-		
+		this.listeners.clear();
 	}
 
 	@Override
 	public void removeListener(GpioPinListener... arg0) {
-		
+		this.listeners.removeAll(Arrays.asList(arg0));
 	}
 
 	@Override
 	public void removeListener(List<? extends GpioPinListener> arg0) {
-		
+		this.listeners.removeAll(arg0);
 	}
 
 	@Override
@@ -200,7 +212,16 @@ public class DummyGpioPinImpl implements GpioPin{
 	}
 
 	public void setState(PinState solenoidState) {
-		
+		if (solenoidState == this.state) {
+			return;
+		}
+		this.state = solenoidState;
+		GpioPinDigitalStateChangeEvent event = new GpioPinDigitalStateChangeEvent(this, this, solenoidState);
+		for (GpioPinListener listener : this.listeners) {
+			if (listener instanceof GpioPinListenerDigital) {
+				((GpioPinListenerDigital) listener).handleGpioPinDigitalStateChangeEvent(event);
+			}
+		}
 	}
 
 }
@@ -6,6 +6,7 @@ import org.rocketproplab.marginalstability.flightcomputer.events.FlightStateList
 import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
 import org.rocketproplab.marginalstability.flightcomputer.hal.SMSSender;
 import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Signal;
 import org.rocketproplab.marginalstability.flightcomputer.tracking.FlightMode;
 
 /**
@@ -21,8 +22,9 @@ public class LandedSMSSubsystem
   private String    phoneNumber;
   private SMSSender smsSender;
 
-  private GPSPacket  lastPacket = null;
-  private FlightMode flightMode = null;
+  private GPSPacket  lastPacket       = null;
+  private FlightMode flightMode       = null;
+  private Signal     flightModeSignal = new Signal();
 
   /**
    * Create a new LandedSMSSubsystem
@@ -39,12 +41,13 @@ public class LandedSMSSubsystem
   public void prepare(Looper looper) {
     looper.emitScheduledIf(this, SMS_INTERVAL,
             () -> flightMode == FlightMode.Landed,
-            (tag, from) -> sendSMSMessage());
+            (tag, from) -> sendSMSMessage(), flightModeSignal);
   }
 
   @Override
   public void onFlightModeChange(FlightMode newMode) {
     this.flightMode = newMode;
+    this.flightModeSignal.raise();
   }
 
   /**
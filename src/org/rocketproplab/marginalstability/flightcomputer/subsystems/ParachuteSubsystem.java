@@ -160,6 +160,8 @@ public class ParachuteSubsystem
       drogueChuteOpen();
     }
     if (shouldMainChuteCheckPressure(newMode)) {
+      // The condition interpolates the position at the current time, so it
+      // changes without a new estimate and has to be polled every tick
       looper.emitOnceIf(MAIN_CHUTE_TAG, Settings.MAIN_CHUTE_PRESSURE_TIME_THRESHOLD,
               this::shouldMainChuteOpenByPressure, (tag, from) -> mainChuteOpen());
     }
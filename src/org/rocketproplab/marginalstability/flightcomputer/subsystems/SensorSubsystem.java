@@ -35,8 +35,11 @@ public class SensorSubsystem implements Subsystem {
   }
 
   private void updateSenorPollers() {
-    for (SensorPoller poller : this.sensorPollers) {
-      poller.update(this.time.getSystemTime());
+    double currentTime = this.time.getSystemTime();
+    synchronized (this.sensorPollers) {
+      for (SensorPoller poller : this.sensorPollers) {
+        poller.update(currentTime);
+      }
     }
   }
 
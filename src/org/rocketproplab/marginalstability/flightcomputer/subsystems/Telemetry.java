@@ -5,20 +5,44 @@ import java.util.logging.Logger;
 
 import org.rocketproplab.marginalstability.flightcomputer.Errors;
 import org.rocketproplab.marginalstability.flightcomputer.Info;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRelay;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRouter;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketSources;
 import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
 import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
+import org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrameEncoder;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
 
 /**
  * A reporter for telemetry. It will sends the packet periodically to the
- * Command Box with the information given.
+ * Command Box with the information given.<br>
+ * <br>
+ * Each packet type can be given a deadband with
+ * {@link #setDeadband(SCMPacketType, double, double)}. Such a channel is only
+ * sent when the value moved by more than the deadband since it was last sent
+ * or when its keepalive interval has passed, other reports are still logged
+ * but not sent.<br>
+ * <br>
+ * With {@link #setFrameEncoder(TelemetryFrameEncoder)} values are packed into
+ * binary {@link org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrame
+ * TelemetryFrame}s instead of one SCM packet each. All values in a frame are
+ * reported at the same time, which the looper latches for each tick, and
+ * share the frame timestamp. A frame is sent when it is full, when a value
+ * with a different time is reported or when {@link #flushFrame()} is called.
+ * Once prepared with a looper the pending frame is also flushed every tick so
+ * the last values of a burst are not held back. Frames are routed to the
+ * Command Box, where a
+ * {@link org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrameWriter
+ * TelemetryFrameWriter} writes them to the serial port. Errors and heartbeats
+ * are always sent right away as SCM packets.
  * 
  * @author Max Apodaca
  *
  */
-public class Telemetry {
+public class Telemetry implements Subsystem {
+  private static final Object FLUSH_FRAME_TAG = new Object();
+
   private static Telemetry instance;
 
   public static Telemetry getInstance() {
@@ -38,12 +62,20 @@ public class Telemetry {
 
   public static final String  INFINITY      = "INF  ";
   public static final String  NEG_INFINITY  = "-INF ";
-  private static final String INT_FORMAT    = "%0" + SCMPacket.DATA_LENGTH + "d";
-  private static final String HEX_FORMAT    = "%0" + SCMPacket.DATA_LENGTH + "x";
-  private static final String DOUBLE_FORMAT = "%0" + SCMPacket.DATA_LENGTH + "f";
 
   private Logger      logger;
   private PacketRelay relay;
+  private Time        time;
+
+  private final double[] deadbands;
+  private final double[] keepaliveIntervals;
+  private final double[] lastSentValues;
+  private final double[] lastSentTimes;
+  private long           suppressed;
+
+  private TelemetryFrameEncoder frameEncoder;
+  private double                frameTime;
+  private final char[]          dataChars = new char[SCMPacket.DATA_LENGTH];
 
   /**
    * Creates a new telemetry subsystem that logs to the given logger and uses the
@@ -53,8 +85,177 @@ public class Telemetry {
    * @param relay  the relay to use for sending packets
    */
   public Telemetry(Logger logger, PacketRelay relay) {
-    this.logger = logger;
-    this.relay  = relay;
+    this(logger, relay, new Time());
+  }
+
+  /**
+   * Creates a new telemetry subsystem that logs to the given logger and uses the
+   * given packet reply to send its packets.
+   * 
+   * @param logger the logger to use for info output
+   * @param relay  the relay to use for sending packets
+   * @param time   the time used for the keepalive of deadband channels
+   */
+  public Telemetry(Logger logger, PacketRelay relay, Time time) {
+    int numTypes = SCMPacketType.values().length;
+    this.logger             = logger;
+    this.relay              = relay;
+    this.time               = time;
+    this.deadbands          = new double[numTypes];
+    this.keepaliveIntervals = new double[numTypes];
+    this.lastSentValues     = new double[numTypes];
+    this.lastSentTimes      = new double[numTypes];
+    for (int i = 0; i < numTypes; i++) {
+      this.deadbands[i]     = Double.NaN;
+      this.lastSentTimes[i] = Double.NEGATIVE_INFINITY;
+    }
+  }
+
+  @Override
+  public void prepare(Looper looper) {
+    looper.emitIf(FLUSH_FRAME_TAG, this::hasPendingFrame, (tag, from) -> this.flushFrame());
+  }
+
+  /**
+   * Only send the given packet type when its value changes by more than the
+   * deadband or when the keepalive interval has passed since it was last sent.
+   * 
+   * @param type      the packet type to limit
+   * @param deadband  how far the value has to move to be sent again
+   * @param keepalive the longest time in seconds between two sent packets
+   */
+  public void setDeadband(SCMPacketType type, double deadband, double keepalive) {
+    this.deadbands[type.ordinal()]          = deadband;
+    this.keepaliveIntervals[type.ordinal()] = keepalive;
+    this.lastSentTimes[type.ordinal()]      = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Send every report of the given packet type again.
+   * 
+   * @param type the packet type
+   */
+  public void clearDeadband(SCMPacketType type) {
+    this.deadbands[type.ordinal()] = Double.NaN;
+  }
+
+  /**
+   * Pack values into binary frames instead of sending SCM packets, or go back
+   * to SCM packets. A pending frame is sent before switching.
+   * 
+   * @param frameEncoder the encoder to use, null for SCM packets
+   */
+  public void setFrameEncoder(TelemetryFrameEncoder frameEncoder) {
+    this.flushFrame();
+    this.frameEncoder = frameEncoder;
+  }
+
+  /**
+   * Send the current binary frame if it holds any values. The frame buffer is
+   * reused, so listeners of the relay have to write it out before returning.
+   */
+  public void flushFrame() {
+    if (!this.hasPendingFrame()) {
+      return;
+    }
+    this.relay.sendPacket(this.frameEncoder.finish(), PacketSources.CommandBox);
+  }
+
+  private boolean hasPendingFrame() {
+    return this.frameEncoder != null && this.frameEncoder.isStarted()
+            && this.frameEncoder.getChannelCount() > 0;
+  }
+
+  private boolean isFramed(SCMPacketType type) {
+    return this.frameEncoder != null && type != SCMPacketType.ER;
+  }
+
+  /**
+   * Add a value to the current frame, sending the frame first if the value
+   * does not fit or was reported at a different time than the frame.
+   * 
+   * @param type  the packet type of the value
+   * @param value the value to add
+   */
+  private void addToFrame(SCMPacketType type, double value) {
+    double now = this.time.getSystemTime();
+    if (this.frameEncoder.isStarted() && now != this.frameTime) {
+      this.flushFrame();
+    }
+    if (!this.frameEncoder.isStarted()) {
+      this.startFrame(now);
+    }
+    if (this.addToStartedFrame(type, value)) {
+      return;
+    }
+    this.flushFrame();
+    this.startFrame(now);
+    this.addToStartedFrame(type, value);
+  }
+
+  private void startFrame(double now) {
+    this.frameEncoder.start(now);
+    this.frameTime = now;
+  }
+
+  private boolean addToStartedFrame(SCMPacketType type, double value) {
+    if (value == (short) value) {
+      return this.frameEncoder.addShort(type, (short) value);
+    }
+    return this.frameEncoder.addFloat(type, (float) value);
+  }
+
+  /**
+   * @return how many reports were not sent because they were within the
+   *         deadband of their channel
+   */
+  public long getSuppressedCount() {
+    return this.suppressed;
+  }
+
+  /**
+   * Check the deadband of the packet type and remember the value if it will be
+   * sent.
+   * 
+   * @param type  the packet type to check
+   * @param value the value about to be reported
+   * @return if the value should be sent
+   */
+  private boolean shouldSend(SCMPacketType type, double value) {
+    int index = type.ordinal();
+    if (Double.isNaN(this.deadbands[index])) {
+      return true;
+    }
+    double now = this.time.getSystemTime();
+    if (Math.abs(value - this.lastSentValues[index]) <= this.deadbands[index]
+            && now - this.lastSentTimes[index] < this.keepaliveIntervals[index]) {
+      this.suppressed++;
+      return false;
+    }
+    this.lastSentValues[index] = value;
+    this.lastSentTimes[index]  = now;
+    return true;
+  }
+
+  /**
+   * Change where packets are sent, for example to put a
+   * {@link TelemetryScheduler} in front of the router.
+   * 
+   * @param relay the relay to use for sending packets
+   */
+  public void setRelay(PacketRelay relay) {
+    this.relay = relay;
+  }
+
+  /**
+   * Change the time used for deadband keepalives and frame timestamps. This
+   * should be the time of the looper telemetry is reported from, so all values
+   * of one tick read the same latched time and share a frame.
+   * 
+   * @param time the time to use
+   */
+  public void setTime(Time time) {
+    this.time = time;
   }
 
   /**
@@ -64,20 +265,17 @@ public class Telemetry {
    * @param data the double to send
    */
   public void reportTelemetry(SCMPacketType type, double data) {
-    String dataString = String.format(DOUBLE_FORMAT, data).toUpperCase();
-    int    toPrint    = Math.min(dataString.length(), SCMPacket.DATA_LENGTH);
-    int    padLen     = (SCMPacket.DATA_LENGTH - toPrint);
-
-    dataString = dataString.substring(0, toPrint);
-    if (padLen > 0) {
-      dataString = String.format("%" + padLen + "s", dataString);
+    if (!this.shouldSend(type, data)) {
+      this.logger.log(Level.INFO, type.getName() + " is " + data);
+      return;
     }
-    if (data > MAX_PACKET_BASE_10) {
-      dataString = INFINITY;
-    } else if (data < MIN_PACKET_BASE_10) {
-      dataString = NEG_INFINITY;
+    if (this.isFramed(type)) {
+      this.addToFrame(type, data);
+      this.logger.log(Level.INFO, type.getName() + " is " + data);
+      return;
     }
-    SCMPacket packet = new SCMPacket(type, dataString);
+    TelemetryFormatter.formatDouble(data, this.dataChars, 0);
+    SCMPacket packet = new SCMPacket(type, new String(this.dataChars));
     this.relay.sendPacket(packet, PacketSources.CommandBox);
     this.logger.log(Level.INFO, type.getName() + " is " + data);
   }
@@ -90,7 +288,7 @@ public class Telemetry {
    * @param data the data to send, must fit in 5 characters
    */
   public void reportTelemetryHex(SCMPacketType type, int data) {
-    this.reportTelemetry(type, data, HEX_FORMAT, MAX_PACKET_BASE_16, MIN_PACKET_BASE_16);
+    this.reportTelemetry(type, data, true);
     this.logger.log(Level.INFO, type.getName() + " is " + Integer.toString(data, 16));
   }
 
@@ -102,27 +300,32 @@ public class Telemetry {
    * @param data the data to be sent, must fit in 5 character
    */
   public void reportTelemetry(SCMPacketType type, int data) {
-    this.reportTelemetry(type, data, INT_FORMAT, MAX_PACKET_BASE_10, MIN_PACKET_BASE_10);
+    this.reportTelemetry(type, data, false);
     this.logger.log(Level.INFO, type.getName() + " is " + data);
   }
 
   /**
-   * Internally report the integer value using the given constraints
+   * Internally report the integer value, out of range values are sent as
+   * infinity
    * 
-   * @param type   the type of packet to send
-   * @param data   the integer to be sent
-   * @param format the format string to print this integer
-   * @param max    the maximum value (if greater prints infinity)
-   * @param min    the minimum value (if less prints - infinity)
-   */
-  private void reportTelemetry(SCMPacketType type, int data, String format, int max, int min) {
-    String dataString = String.format(format, data).toUpperCase();
-    if (data > max) {
-      dataString = INFINITY;
-    } else if (data < min) {
-      dataString = NEG_INFINITY;
+   * @param type the type of packet to send
+   * @param data the integer to be sent
+   * @param hex  if the integer should be sent in base 16 instead of 10
+   */
+  private void reportTelemetry(SCMPacketType type, int data, boolean hex) {
+    if (!this.shouldSend(type, data)) {
+      return;
+    }
+    if (this.isFramed(type)) {
+      this.addToFrame(type, data);
+      return;
+    }
+    if (hex) {
+      TelemetryFormatter.formatHex(data, this.dataChars, 0);
+    } else {
+      TelemetryFormatter.formatDecimal(data, this.dataChars, 0);
     }
-    SCMPacket packet = new SCMPacket(type, dataString);
+    SCMPacket packet = new SCMPacket(type, new String(this.dataChars));
     this.relay.sendPacket(packet, PacketSources.CommandBox);
   }
 
@@ -0,0 +1,130 @@
+package org.rocketproplab.marginalstability.flightcomputer.subsystems;
+
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
+
+/**
+ * Writes the fixed width data field of telemetry packets into a char array
+ * without going through {@link String#format(String, Object...)}. The output
+ * is the same as the format strings Telemetry used before, including
+ * {@link Telemetry#INFINITY} and {@link Telemetry#NEG_INFINITY} for values out
+ * of range. Each method writes exactly {@link SCMPacket#DATA_LENGTH}
+ * characters.
+ */
+class TelemetryFormatter {
+
+  private static final int    WIDTH           = SCMPacket.DATA_LENGTH;
+  private static final int    FRACTION_DIGITS = 6;
+  private static final long   FRACTION_SCALE  = 1000000;
+  private static final char[] DIGITS          = "0123456789ABCDEF".toCharArray();
+  private static final char[] NAN             = "  NAN".toCharArray();
+
+  private TelemetryFormatter() {
+  }
+
+  /**
+   * Write a double like {@code %05f}, cut to the field width and padded on
+   * the left. Values are rounded to six decimals before they are cut, the
+   * same as {@code %f}.
+   * 
+   * @param data   the value to write
+   * @param out    the array to write into
+   * @param offset the index of the first character
+   */
+  static void formatDouble(double data, char[] out, int offset) {
+    if (data > Telemetry.MAX_PACKET_BASE_10) {
+      copy(Telemetry.INFINITY, out, offset);
+      return;
+    } else if (data < Telemetry.MIN_PACKET_BASE_10) {
+      copy(Telemetry.NEG_INFINITY, out, offset);
+      return;
+    } else if (Double.isNaN(data)) {
+      System.arraycopy(NAN, 0, out, offset, WIDTH);
+      return;
+    }
+
+    boolean negative = data < 0 || (data == 0 && 1 / data < 0);
+    long    scaled   = Math.round(Math.abs(data) * FRACTION_SCALE);
+    long    integer  = scaled / FRACTION_SCALE;
+    long    fraction = scaled % FRACTION_SCALE;
+    int     position = offset;
+    int     end      = offset + WIDTH;
+    if (negative) {
+      out[position++] = '-';
+    }
+    int intDigits = countDigits(integer);
+    for (int i = intDigits - 1; i >= 0 && position < end; i--) {
+      out[position++] = DIGITS[(int) (integer / pow10(i) % 10)];
+    }
+    if (position < end) {
+      out[position++] = '.';
+    }
+    for (int i = FRACTION_DIGITS - 1; i >= 0 && position < end; i--) {
+      out[position++] = DIGITS[(int) (fraction / pow10(i) % 10)];
+    }
+  }
+
+  /**
+   * Write an integer like {@code %05d}.
+   * 
+   * @param data   the value to write
+   * @param out    the array to write into
+   * @param offset the index of the first character
+   */
+  static void formatDecimal(int data, char[] out, int offset) {
+    formatInteger(data, Telemetry.BASE_10, Telemetry.MAX_PACKET_BASE_10,
+            Telemetry.MIN_PACKET_BASE_10, out, offset);
+  }
+
+  /**
+   * Write an integer in upper case hex like {@code %05X}. Negative values are
+   * written as a minus sign and four digits.
+   * 
+   * @param data   the value to write
+   * @param out    the array to write into
+   * @param offset the index of the first character
+   */
+  static void formatHex(int data, char[] out, int offset) {
+    formatInteger(data, Telemetry.BASE_16, Telemetry.MAX_PACKET_BASE_16,
+            Telemetry.MIN_PACKET_BASE_16, out, offset);
+  }
+
+  private static void formatInteger(int data, int base, int max, int min, char[] out, int offset) {
+    if (data > max) {
+      copy(Telemetry.INFINITY, out, offset);
+      return;
+    } else if (data < min) {
+      copy(Telemetry.NEG_INFINITY, out, offset);
+      return;
+    }
+    int value = Math.abs(data);
+    int start = offset;
+    if (data < 0) {
+      out[start++] = '-';
+    }
+    for (int i = offset + WIDTH - 1; i >= start; i--) {
+      out[i] = DIGITS[value % base];
+      value /= base;
+    }
+  }
+
+  private static int countDigits(long value) {
+    int digits = 1;
+    while (value >= 10) {
+      value /= 10;
+      digits++;
+    }
+    return digits;
+  }
+
+  private static long pow10(int exponent) {
+    long result = 1;
+    for (int i = 0; i < exponent; i++) {
+      result *= 10;
+    }
+    return result;
+  }
+
+  private static void copy(String text, char[] out, int offset) {
+    text.getChars(0, WIDTH, out, offset);
+  }
+}
@@ -0,0 +1,288 @@
+package org.rocketproplab.marginalstability.flightcomputer.subsystems;
+
+import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRelay;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketSources;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
+import org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrame;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
+
+/**
+ * Limits the SCM packets sent to the Command Box to what the radio link can
+ * carry. It sits between {@link Telemetry} and the real relay and hands
+ * packets on as long as the link budget, a token bucket in bytes per second,
+ * allows. Everything else waits in a queue per {@link SCMPacketType} until the
+ * looper finds budget for it. <br>
+ * <br>
+ * When budget frees up the pending packet with the highest priority is sent
+ * first. Among types of equal priority the one which was sent least recently
+ * goes first, so under overload every type still gets its turn. Each type can also be limited to a maximum rate. Types which coalesce
+ * only keep the newest pending packet, for periodic measurements an old value
+ * is worthless once a new one exists. Other types keep up to
+ * {@link #QUEUE_LENGTH} packets in order and drop the oldest when full. <br>
+ * <br>
+ * By default heartbeats, chute deploys, errors and warnings have
+ * {@link #HIGH_PRIORITY} and the GPS, velocity, thermocouple and pressure
+ * channels coalesce. Packets to other sources and packets which are not SCM
+ * packets are passed on immediately. {@link TelemetryFrame}s to the Command Box
+ * can not wait since their buffer is reused, they are passed on immediately as
+ * well but their encoded length is taken from the budget. The budget can go
+ * into debt for this by up to one burst, SCM packets wait until it is paid
+ * back.
+ */
+public class TelemetryScheduler implements PacketRelay, Subsystem {
+
+  public static final int QUEUE_LENGTH    = 16;
+  public static final int NORMAL_PRIORITY = 0;
+  public static final int HIGH_PRIORITY   = 10;
+
+  private static final String FLUSH_TAG    = "TelemetrySchedulerFlush";
+  private static final int    PACKET_BYTES = SCMPacket.NUM_CHARS_PACKET;
+  private static final int    NUM_TYPES    = SCMPacketType.values().length;
+
+  private static final SCMPacketType[] HIGH_PRIORITY_TYPES = { SCMPacketType.HB, SCMPacketType.DD,
+      SCMPacketType.MD, SCMPacketType.ER, SCMPacketType.WA };
+  private static final SCMPacketType[] COALESCED_TYPES     = { SCMPacketType.GX, SCMPacketType.GY,
+      SCMPacketType.GZ, SCMPacketType.VX, SCMPacketType.VY, SCMPacketType.VZ, SCMPacketType.T0,
+      SCMPacketType.T1, SCMPacketType.T2, SCMPacketType.T3, SCMPacketType.T4, SCMPacketType.P0,
+      SCMPacketType.P1, SCMPacketType.P2, SCMPacketType.P3, SCMPacketType.P4, SCMPacketType.P5,
+      SCMPacketType.P6, SCMPacketType.P7, SCMPacketType.P8, SCMPacketType.P9, SCMPacketType.PA,
+      SCMPacketType.PB, SCMPacketType.PC, SCMPacketType.PD, SCMPacketType.PE, SCMPacketType.PF };
+
+  private final PacketRelay relay;
+  private final Time        time;
+  private final double      bytesPerSecond;
+  private final double      burstBytes;
+
+  private final int[]         priorities;
+  private final double[]      minIntervals;
+  private final boolean[]     coalesced;
+  private final double[]      lastSendTimes;
+  private final long[]        lastSendOrder;
+  private final SCMPacket[][] queues;
+  private final int[]         queueHeads;
+  private final int[]         queueSizes;
+
+  private double tokens;
+  private double lastRefillTime;
+  private int    pending;
+
+  private long sent;
+  private long deferred;
+  private long dropped;
+
+  /**
+   * Create a new scheduler which starts with a full burst of budget.
+   * 
+   * @param relay          the relay to hand packets on to
+   * @param time           the time used to refill the budget
+   * @param bytesPerSecond how many bytes per second the link can carry
+   * @param burstBytes     how many bytes can be sent at once after the link has
+   *                       been idle, at least one packet
+   */
+  public TelemetryScheduler(PacketRelay relay, Time time, double bytesPerSecond, double burstBytes) {
+    this.relay          = relay;
+    this.time           = time;
+    this.bytesPerSecond = bytesPerSecond;
+    this.burstBytes     = Math.max(burstBytes, PACKET_BYTES);
+    this.priorities     = new int[NUM_TYPES];
+    this.minIntervals   = new double[NUM_TYPES];
+    this.coalesced      = new boolean[NUM_TYPES];
+    this.lastSendTimes  = new double[NUM_TYPES];
+    this.lastSendOrder  = new long[NUM_TYPES];
+    this.queues         = new SCMPacket[NUM_TYPES][QUEUE_LENGTH];
+    this.queueHeads     = new int[NUM_TYPES];
+    this.queueSizes     = new int[NUM_TYPES];
+    this.tokens         = this.burstBytes;
+    this.lastRefillTime = time.getSystemTime();
+
+    for (int i = 0; i < NUM_TYPES; i++) {
+      this.lastSendTimes[i] = Double.NEGATIVE_INFINITY;
+    }
+    for (SCMPacketType type : HIGH_PRIORITY_TYPES) {
+      this.setPriority(type, HIGH_PRIORITY);
+    }
+    for (SCMPacketType type : COALESCED_TYPES) {
+      this.setCoalesced(type, true);
+    }
+  }
+
+  @Override
+  public void prepare(Looper looper) {
+    looper.emitIf(FLUSH_TAG, this::hasPending, (tag, from) -> this.flush());
+  }
+
+  /**
+   * Set the priority of a packet type, pending packets with a higher priority
+   * are sent first.
+   * 
+   * @param type     the packet type
+   * @param priority the new priority, {@link #NORMAL_PRIORITY} by default
+   */
+  public void setPriority(SCMPacketType type, int priority) {
+    this.priorities[type.ordinal()] = priority;
+  }
+
+  /**
+   * Limit how often a packet type can be sent.
+   * 
+   * @param type    the packet type
+   * @param maxRate the maximum number of packets per second, 0 or less for no
+   *                limit
+   */
+  public void setMaxRate(SCMPacketType type, double maxRate) {
+    this.minIntervals[type.ordinal()] = maxRate > 0 ? 1 / maxRate : 0;
+  }
+
+  /**
+   * Set if a packet type only keeps its newest pending packet.
+   * 
+   * @param type      the packet type
+   * @param coalesced true to replace pending packets with newer ones
+   */
+  public void setCoalesced(SCMPacketType type, boolean coalesced) {
+    this.coalesced[type.ordinal()] = coalesced;
+  }
+
+  @Override
+  public void sendPacket(Object o, PacketSources source) {
+    if (source == PacketSources.CommandBox && o instanceof TelemetryFrame) {
+      this.refill(this.time.getSystemTime());
+      this.tokens = Math.max(-this.burstBytes,
+              this.tokens - ((TelemetryFrame) o).getBuffer().remaining());
+      this.relay.sendPacket(o, source);
+      return;
+    }
+    if (source != PacketSources.CommandBox || !(o instanceof SCMPacket)
+            || ((SCMPacket) o).getID() == null) {
+      this.relay.sendPacket(o, source);
+      return;
+    }
+    SCMPacket packet = (SCMPacket) o;
+    int       index  = packet.getID().ordinal();
+    this.enqueue(index, packet);
+    this.flush();
+    if (this.queueSizes[index] > 0) {
+      this.deferred++;
+    }
+  }
+
+  private void enqueue(int index, SCMPacket packet) {
+    SCMPacket[] queue = this.queues[index];
+    int         size  = this.queueSizes[index];
+    if (this.coalesced[index] && size > 0) {
+      queue[(this.queueHeads[index] + size - 1) % QUEUE_LENGTH] = packet;
+      this.dropped++;
+      return;
+    }
+    if (size == QUEUE_LENGTH) {
+      queue[this.queueHeads[index]] = null;
+      this.queueHeads[index]        = (this.queueHeads[index] + 1) % QUEUE_LENGTH;
+      this.dropped++;
+      size--;
+      this.pending--;
+    }
+    queue[(this.queueHeads[index] + size) % QUEUE_LENGTH] = packet;
+    this.queueSizes[index]                                 = size + 1;
+    this.pending++;
+  }
+
+  /**
+   * Send as many pending packets as the budget and rate limits allow, highest
+   * priority first.
+   */
+  public void flush() {
+    if (this.pending == 0) {
+      return;
+    }
+    double now = this.time.getSystemTime();
+    this.refill(now);
+
+    while (this.pending > 0 && this.tokens >= PACKET_BYTES) {
+      int index = this.nextType(now);
+      if (index < 0) {
+        return;
+      }
+      SCMPacket packet = this.queues[index][this.queueHeads[index]];
+      this.queues[index][this.queueHeads[index]] = null;
+      this.queueHeads[index]                      = (this.queueHeads[index] + 1) % QUEUE_LENGTH;
+      this.queueSizes[index]--;
+      this.pending--;
+      this.tokens              -= PACKET_BYTES;
+      this.lastSendTimes[index] = now;
+      this.sent++;
+      this.lastSendOrder[index] = this.sent;
+      this.relay.sendPacket(packet, PacketSources.CommandBox);
+    }
+  }
+
+  /**
+   * Add the budget gained since the last refill, up to one burst.
+   * 
+   * @param now the current time
+   */
+  private void refill(double now) {
+    this.tokens         = Math.min(this.burstBytes,
+            this.tokens + (now - this.lastRefillTime) * this.bytesPerSecond);
+    this.lastRefillTime = now;
+  }
+
+  /**
+   * Find the pending type with the highest priority which is not rate
+   * limited. Ties go to the type which was sent least recently.
+   * 
+   * @param now the current time
+   * @return the ordinal of the type or -1 if none can be sent
+   */
+  private int nextType(double now) {
+    int best = -1;
+    for (int i = 0; i < NUM_TYPES; i++) {
+      if (this.queueSizes[i] == 0 || now - this.lastSendTimes[i] < this.minIntervals[i]) {
+        continue;
+      }
+      if (best < 0 || this.priorities[i] > this.priorities[best]
+              || this.priorities[i] == this.priorities[best]
+                      && this.lastSendOrder[i] < this.lastSendOrder[best]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return if there are packets waiting to be sent
+   */
+  public boolean hasPending() {
+    return this.pending > 0;
+  }
+
+  /**
+   * @return how many packets are waiting to be sent
+   */
+  public int getPendingCount() {
+    return this.pending;
+  }
+
+  /**
+   * @return how many packets were handed on to the relay
+   */
+  public long getSentCount() {
+    return this.sent;
+  }
+
+  /**
+   * @return how many packets could not be sent right away
+   */
+  public long getDeferredCount() {
+    return this.deferred;
+  }
+
+  /**
+   * @return how many packets were replaced by newer ones or pushed out of a
+   *         full queue
+   */
+  public long getDroppedCount() {
+    return this.dropped;
+  }
+}
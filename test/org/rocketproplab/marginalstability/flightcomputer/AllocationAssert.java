@@ -0,0 +1,65 @@
+package org.rocketproplab.marginalstability.flightcomputer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Checks that a piece of code does not allocate once it is warmed up. The
+ * code is run {@link #WARMUP_ITERATIONS} times so the JIT has compiled it,
+ * then the bytes allocated by the test thread during one measured run are
+ * asserted to be zero. The test is skipped on JVMs which can not measure
+ * allocations per thread.
+ */
+public final class AllocationAssert {
+
+  /**
+   * How often the code is run before measuring.
+   */
+  public static final int WARMUP_ITERATIONS = 50000;
+
+  /**
+   * One iteration of the code under test.
+   */
+  @FunctionalInterface
+  public interface Iteration {
+    void run(int iteration);
+  }
+
+  private AllocationAssert() {
+  }
+
+  /**
+   * Warm up the code and assert that running it the given number of times
+   * does not allocate.
+   *
+   * @param iterations how often to run the code in the measured run
+   * @param iteration  the code to run, given the index of the iteration
+   *                   counting on from the warm up
+   */
+  public static void assertDoesNotAllocate(int iterations, Iteration iteration) {
+    Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+    ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      iteration.run(i);
+    }
+
+    long threadId      = Thread.currentThread().getId();
+    long baselineStart = threadBean.getThreadAllocatedBytes(threadId);
+    long baselineEnd   = threadBean.getThreadAllocatedBytes(threadId);
+    long start         = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = WARMUP_ITERATIONS; i < WARMUP_ITERATIONS + iterations; i++) {
+      iteration.run(i);
+    }
+    long end = threadBean.getThreadAllocatedBytes(threadId);
+
+    assertEquals("Bytes allocated", 0, (end - start) - (baselineEnd - baselineStart));
+  }
+}
@@ -1,21 +1,25 @@
 package org.rocketproplab.marginalstability.flightcomputer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
 import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.Subsystem;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.Telemetry;
 
 public class FlightComputerTest {
-  private Telemetry         telemetry;
-  private ArrayList<Errors> errorList;
-  private boolean           throwErrorOnError;
+  private Telemetry          telemetry;
+  private ArrayList<Errors>  errorList;
+  private ArrayList<Integer> overrunCounts;
+  private boolean            throwErrorOnError;
 
   private class MockSubsystem implements Subsystem {
     public boolean hasUpdateCalled = false;
@@ -37,7 +41,16 @@ public class FlightComputerTest {
   public void beforeEach() {
     this.throwErrorOnError = false;
     errorList              = new ArrayList<>();
+    overrunCounts          = new ArrayList<>();
     this.telemetry         = new Telemetry(Logger.getLogger("Dummy"), null) {
+      @Override
+      public void reportTelemetry(SCMPacketType type, int data) {
+        if (type == SCMPacketType.LO) {
+          overrunCounts.add(data);
+        }
+      }
+
+
       @Override
       public void reportError(Errors error) {
         errorList.add(error);
@@ -107,4 +120,91 @@ public class FlightComputerTest {
     flightComputer.tick();
     assertTrue(mockSubsystem2.hasUpdateCalled);
   }
+
+  @Test
+  public void runTicksUntilStopped() {
+    FlightComputer flightComputer = new FlightComputer(this.telemetry, null);
+    int[]          ticks          = new int[1];
+    flightComputer.registerSubsystem(looper -> looper.emitAlways(this, (tag, from) -> {
+      ticks[0]++;
+      if (ticks[0] == 10) {
+        flightComputer.stop();
+      }
+    }));
+    flightComputer.run(1000);
+    assertEquals(10, ticks[0]);
+    assertEquals(10, flightComputer.getLoopStatistics().getTickCount());
+    assertFalse(flightComputer.isRunning());
+  }
+
+  @Test
+  public void runPacesTicksAtRate() {
+    FlightComputer flightComputer = new FlightComputer(this.telemetry, null);
+    int[]          ticks          = new int[1];
+    flightComputer.registerSubsystem(looper -> looper.emitAlways(this, (tag, from) -> {
+      ticks[0]++;
+      if (ticks[0] == 6) {
+        flightComputer.stop();
+      }
+    }));
+    long start = System.nanoTime();
+    flightComputer.run(200);
+    long elapsed = System.nanoTime() - start;
+    assertTrue(elapsed >= 25_000_000L);
+  }
+
+  @Test
+  public void runReportsOverruns() {
+    FlightComputer flightComputer = new FlightComputer(this.telemetry, null);
+    int[]          ticks          = new int[1];
+    flightComputer.registerSubsystem(looper -> looper.emitAlways(this, (tag, from) -> {
+      ticks[0]++;
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      if (ticks[0] == 3) {
+        flightComputer.stop();
+      }
+    }));
+    flightComputer.run(1000);
+    LoopStatistics statistics = flightComputer.getLoopStatistics();
+    assertEquals(3, statistics.getOverrunCount());
+    assertTrue(statistics.getMinDuration() >= 5_000_000L);
+    assertEquals(1, this.errorList.size());
+    assertEquals(Errors.LOOP_OVERRUN, this.errorList.get(0));
+  }
+
+  @Test
+  public void runSendsOverrunCountPeriodically() {
+    double interval = Settings.LOOP_OVERRUN_REPORT_INTERVAL;
+    Settings.LOOP_OVERRUN_REPORT_INTERVAL = 0.004;
+    try {
+      FlightComputer flightComputer = new FlightComputer(this.telemetry, null);
+      int[]          ticks          = new int[1];
+      flightComputer.registerSubsystem(looper -> looper.emitAlways(this, (tag, from) -> {
+        ticks[0]++;
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        if (ticks[0] == 3) {
+          flightComputer.stop();
+        }
+      }));
+      flightComputer.run(1000);
+    } finally {
+      Settings.LOOP_OVERRUN_REPORT_INTERVAL = interval;
+    }
+    assertEquals(1, this.errorList.size());
+    assertEquals(Arrays.asList(2, 3), this.overrunCounts);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void runRejectsNonPositiveRate() {
+    FlightComputer flightComputer = new FlightComputer(this.telemetry, null);
+    flightComputer.run(0);
+  }
 }
@@ -0,0 +1,81 @@
+package org.rocketproplab.marginalstability.flightcomputer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
+
+public class TimeTest {
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void timeStartsAtWallClockTime() {
+    double wallClock = System.currentTimeMillis() / Settings.MS_PER_SECOND;
+    Time   time      = new Time();
+    assertEquals(wallClock, time.getSystemTime(), 1);
+  }
+
+  @Test
+  public void timeIsMonotonic() {
+    Time   time     = new Time();
+    double previous = time.getSystemTime();
+    for (int i = 0; i < 1000; i++) {
+      double current = time.getSystemTime();
+      assertTrue(current >= previous);
+      previous = current;
+    }
+  }
+
+  @Test
+  public void latchedTimeDoesNotChange() {
+    Time time = new Time();
+    time.latch();
+    double latched = time.getSystemTime();
+    sleep(2);
+    assertEquals(latched, time.getSystemTime(), 0);
+    assertTrue(time.isLatched());
+
+    time.unlatch();
+    assertFalse(time.isLatched());
+    assertNotEquals(latched, time.getSystemTime(), 0);
+  }
+
+  @Test
+  public void latchOnlyAffectsLatchingThread() throws InterruptedException {
+    Time time = new Time();
+    time.latch();
+    double   latched = time.getSystemTime();
+    double[] other   = new double[1];
+    sleep(2);
+    Thread thread = new Thread(() -> other[0] = time.getSystemTime());
+    thread.start();
+    thread.join();
+    assertTrue(other[0] > latched);
+    time.unlatch();
+  }
+
+  @Test
+  public void looperLatchesTimeForWholeTick() {
+    Time     time   = new Time();
+    Looper   looper = new Looper(time);
+    double[] seen   = new double[2];
+    looper.emitAlways("first", (tag, from) -> {
+      seen[0] = time.getSystemTime();
+      sleep(2);
+    });
+    looper.emitAlways("second", (tag, from) -> seen[1] = time.getSystemTime());
+    looper.tick();
+    assertEquals(seen[0], seen[1], 0);
+    assertFalse(time.isLatched());
+  }
+}
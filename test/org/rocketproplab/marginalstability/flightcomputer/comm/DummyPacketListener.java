@@ -19,10 +19,16 @@ public class DummyPacketListener<E> implements PacketListener<E> {
    */
   public PacketDirection lastDirection;
 
+  /**
+   * How many packets have been received
+   */
+  public int             packetCount;
+
   @Override
   public void onPacket(PacketDirection direction, E packet) {
     this.lastPacket    = packet;
     this.lastDirection = direction;
+    this.packetCount++;
   }
 
 }
\ No newline at end of file
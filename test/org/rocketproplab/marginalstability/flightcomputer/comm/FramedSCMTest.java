@@ -325,6 +325,102 @@ public class FramedSCMTest {
     assertEquals(PacketSources.CommandBox, packetRelay.sentPackets.get(1).source);
   }
 
+  private static SCMPacket windowed(SCMPacketType type, char sequence, String data) {
+    return new SCMPacket(type, sequence + data);
+  }
+
+  @Test
+  public void windowedMessageInOrderIsReconstructed() {
+    FramedSCM framedSCM = new FramedSCM(null, null);
+    SCMPacket ack       = framedSCM.processNextPacket(windowed(SCMPacketType.XT, '0', "11|H"));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "0    "), ack);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, '1', "ello"));
+    assertFalse(framedSCM.hasCompletedMessage());
+    ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, '2', " Wor"));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "2    "), ack);
+    ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, '3', "ld  "));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "3    "), ack);
+
+    assertTrue(framedSCM.hasCompletedMessage());
+    assertEquals("Hello World", framedSCM.getCompletedMessage());
+  }
+
+  @Test
+  public void windowedFramesOutOfOrderAreHeldUntilGapIsFilled() {
+    FramedSCM framedSCM = new FramedSCM(null, null);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XT, 'Y', "9|AB"));
+    SCMPacket ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, '0', "GHI "));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "Y    "), ack);
+    assertFalse(framedSCM.hasCompletedMessage());
+
+    ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, 'Z', "CDEF"));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "0    "), ack);
+    assertTrue(framedSCM.hasCompletedMessage());
+    assertEquals("ABCDEFGHI", framedSCM.getCompletedMessage());
+  }
+
+  @Test
+  public void windowedFramesAcrossSequenceWrapDoNotShareSlots() {
+    FramedSCM framedSCM = new FramedSCM(null, null);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XT, 'X', "8|AB"));
+    SCMPacket ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, '2', "JUNK"));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "X    "), ack);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, 'Z', "GH  "));
+    assertFalse(framedSCM.hasCompletedMessage());
+
+    ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, 'Y', "CDEF"));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "Z    "), ack);
+    assertEquals("ABCDEFGH", framedSCM.getCompletedMessage());
+  }
+
+  @Test
+  public void windowedDuplicateFrameIsReacked() {
+    FramedSCM framedSCM = new FramedSCM(null, null);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XT, '0', "6|AB"));
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, '1', "CD  "));
+    assertEquals("ABCD  ", framedSCM.getCompletedMessage());
+    SCMPacket ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, '1', "CD  "));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "1    "), ack);
+    assertFalse(framedSCM.hasCompletedMessage());
+  }
+
+  @Test
+  public void windowedFrameBeyondWindowIsDropped() {
+    FramedSCM framedSCM = new FramedSCM(null, null, 2);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XT, '0', "8|AB"));
+    SCMPacket ack = framedSCM.processNextPacket(windowed(SCMPacketType.XW, '3', "GH  "));
+    assertEquals(new SCMPacket(SCMPacketType.XC, "0    "), ack);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, '1', "CDEF"));
+    assertFalse(framedSCM.hasCompletedMessage());
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, '2', "GH  "));
+    assertEquals("ABCDEFGH", framedSCM.getCompletedMessage());
+  }
+
+  @Test
+  public void windowedAndLegacyMessagesCanBeMixed() {
+    FramedSCM framedSCM = new FramedSCM(null, null);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XT, '0', "3|AB"));
+    SCMPacket ack = framedSCM.processNextPacket(new SCMPacket(SCMPacketType.XS, "2|XY "));
+    assertEquals(SCMPacketType.XB, ack.getID());
+    assertEquals("XY", framedSCM.getCompletedMessage());
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, '1', "C   "));
+    assertEquals("ABC", framedSCM.getCompletedMessage());
+  }
+
+  @Test
+  public void windowedMalformedLengthIsDropped() {
+    FramedSCM framedSCM = new FramedSCM(null, null);
+    framedSCM.processNextPacket(windowed(SCMPacketType.XT, '0', "1a|B"));
+    framedSCM.processNextPacket(windowed(SCMPacketType.XW, '1', "CD  "));
+    assertFalse(framedSCM.hasCompletedMessage());
+    assertNull(framedSCM.processNextPacket(windowed(SCMPacketType.XW, '#', "CD  ")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void windowLargerThanHalfTheSequenceSpaceIsRejected() {
+    new FramedSCM(null, null, FramedSCM.MAX_WINDOW_SIZE + 1);
+  }
+
   @Test
   public void packetDirectionSendDoesNotCauseError() {
     FakePacketRelay           packetRelay           = new FakePacketRelay();
@@ -0,0 +1,169 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.comm.AsyncPacketListener.OverflowPolicy;
+import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
+
+public class TestAsyncPacketListener {
+
+  private static class RecordingListener implements PacketListener<String> {
+    public List<String> packets = new ArrayList<>();
+
+    @Override
+    public void onPacket(PacketDirection direction, String packet) {
+      packets.add(packet);
+    }
+  }
+
+  @Test
+  public void packetsAreOnlyDeliveredWhenDrained() {
+    PacketRouter      router    = new PacketRouter();
+    RecordingListener recording = new RecordingListener();
+    AsyncPacketListener<String> async = router.addAsyncListener(recording, String.class,
+        PacketSources.CommandBox, 4, OverflowPolicy.DROP_NEWEST);
+
+    router.recivePacket("a", PacketSources.CommandBox);
+    router.recivePacket("b", PacketSources.CommandBox);
+    assertEquals(0, recording.packets.size());
+    assertEquals(2, async.getDepth());
+
+    assertEquals(2, async.drain());
+    assertEquals(2, recording.packets.size());
+    assertEquals("a", recording.packets.get(0));
+    assertEquals("b", recording.packets.get(1));
+    assertEquals(0, async.getDepth());
+    assertEquals(2, async.getDeliveredCount());
+  }
+
+  @Test
+  public void drainedPacketsAreNotRetained() {
+    AsyncPacketListener<Object> async  = new AsyncPacketListener<>((direction, packet) -> {
+    }, 4, OverflowPolicy.DROP_NEWEST);
+    Object                      packet = new Object();
+    WeakReference<Object>       weak   = new WeakReference<>(packet);
+    async.onPacket(PacketDirection.RECIVE, packet);
+    packet = null;
+    assertEquals(1, async.drain());
+
+    for (int i = 0; i < 10 && weak.get() != null; i++) {
+      System.gc();
+    }
+    assertNull(weak.get());
+  }
+
+  @Test
+  public void capacityIsRoundedUpToPowerOfTwo() {
+    AsyncPacketListener<String> async = new AsyncPacketListener<>(new RecordingListener(), 5,
+        OverflowPolicy.DROP_NEWEST);
+    assertEquals(8, async.getCapacity());
+  }
+
+  @Test
+  public void dropNewestKeepsOldPackets() {
+    RecordingListener           recording = new RecordingListener();
+    AsyncPacketListener<String> async     = new AsyncPacketListener<>(recording, 2,
+        OverflowPolicy.DROP_NEWEST);
+    for (String packet : new String[] { "a", "b", "c", "d" }) {
+      async.onPacket(PacketDirection.RECIVE, packet);
+    }
+    assertEquals(2, async.getDropCount());
+    async.drain();
+    assertEquals("a", recording.packets.get(0));
+    assertEquals("b", recording.packets.get(1));
+  }
+
+  @Test
+  public void dropOldestKeepsNewPackets() {
+    RecordingListener           recording = new RecordingListener();
+    AsyncPacketListener<String> async     = new AsyncPacketListener<>(recording, 2,
+        OverflowPolicy.DROP_OLDEST);
+    for (String packet : new String[] { "a", "b", "c", "d" }) {
+      async.onPacket(PacketDirection.RECIVE, packet);
+    }
+    assertEquals(2, async.getDropCount());
+    assertEquals(2, async.getDepth());
+    async.drain();
+    assertEquals(2, recording.packets.size());
+    assertEquals("c", recording.packets.get(0));
+    assertEquals("d", recording.packets.get(1));
+  }
+
+  @Test
+  public void drainOnLooperDeliversOnTick() {
+    RecordingListener           recording = new RecordingListener();
+    AsyncPacketListener<String> async     = new AsyncPacketListener<>(recording, 4,
+        OverflowPolicy.DROP_NEWEST);
+    Looper looper = new Looper(new Time());
+    async.drainOn(looper, "drain");
+
+    async.onPacket(PacketDirection.SEND, "a");
+    assertEquals(0, recording.packets.size());
+    looper.tick();
+    assertEquals(1, recording.packets.size());
+  }
+
+  @Test
+  public void blockWaitsForExecutorToCatchUp() throws InterruptedException {
+    int                packetCount = 1000;
+    CountDownLatch     done        = new CountDownLatch(packetCount);
+    List<String>       received    = new ArrayList<>();
+    ExecutorService    executor    = Executors.newSingleThreadExecutor();
+    AsyncPacketListener<String> async = new AsyncPacketListener<>((direction, packet) -> {
+      received.add(packet);
+      done.countDown();
+    }, 4, OverflowPolicy.BLOCK);
+    async.drainOn(executor);
+
+    for (int i = 0; i < packetCount; i++) {
+      async.onPacket(PacketDirection.RECIVE, Integer.toString(i));
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(0, async.getDropCount());
+    assertEquals(packetCount, received.size());
+    for (int i = 0; i < packetCount; i++) {
+      assertEquals(Integer.toString(i), received.get(i));
+    }
+  }
+
+  @Test
+  public void dropOldestWithConcurrentDrainDeliversInOrder() throws InterruptedException {
+    int                         packetCount = 100000;
+    List<Integer>               received    = new ArrayList<>();
+    AsyncPacketListener<Integer> async      = new AsyncPacketListener<>(
+        (direction, packet) -> received.add(packet), 8, OverflowPolicy.DROP_OLDEST);
+    Thread consumer = new Thread(() -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        async.drain();
+      }
+      async.drain();
+    });
+    consumer.start();
+    for (int i = 0; i < packetCount; i++) {
+      async.onPacket(PacketDirection.RECIVE, i);
+    }
+    consumer.interrupt();
+    consumer.join();
+
+    assertEquals(packetCount, received.size() + async.getDropCount());
+    for (int i = 1; i < received.size(); i++) {
+      assertTrue(received.get(i) > received.get(i - 1));
+    }
+  }
+}
@@ -1,8 +1,17 @@
 package org.rocketproplab.marginalstability.flightcomputer.comm;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.ErrorReporter;
+import org.rocketproplab.marginalstability.flightcomputer.Errors;
+import org.rocketproplab.marginalstability.flightcomputer.subsystems.Telemetry;
 
 public class TestGPSTransceiver {
 
@@ -15,7 +24,7 @@ public class TestGPSTransceiver {
     
     router.addListener(listener, GPSPacket.class, PacketSources.GPS);
     
-    String nEMA = "$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*4F";
+    String nEMA = "$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*6C";
     tx.onSerialData(nEMA);
     GPSPacket comparePacket = new GPSPacket(nEMA);
 
@@ -31,9 +40,119 @@ public class TestGPSTransceiver {
 
     router.addListener(listener, GPSPacket.class,
         PacketSources.EngineControllerUnit);
+    tx.onSerialData("$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*6C");
+
+    assertEquals(null, listener.lastPacket);
+  }
+
+  @Test
+  public void testGPSTransceiverDropsSentenceWithBadChecksum() {
+    PacketRouter   router = new PacketRouter();
+    GPSTransceiver tx     = new GPSTransceiver(router);
+
+    DummyPacketListener<GPSPacket> listener = new DummyPacketListener<GPSPacket>();
+
+    router.addListener(listener, GPSPacket.class, PacketSources.GPS);
     tx.onSerialData("$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*4F");
 
     assertEquals(null, listener.lastPacket);
+    assertEquals(1, tx.getParser().getChecksumErrorCount());
+  }
+
+  @Test
+  public void testGPSTransceiverAssemblesSplitSentences() {
+    PacketRouter   router = new PacketRouter();
+    GPSTransceiver tx     = new GPSTransceiver(router);
+
+    DummyPacketListener<GPSPacket> listener = new DummyPacketListener<GPSPacket>();
+
+    router.addListener(listener, GPSPacket.class, PacketSources.GPS);
+    String nEMA = "$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*6C\r\n";
+    tx.onSerialData(nEMA.substring(0, 20));
+    assertEquals(null, listener.lastPacket);
+    tx.onSerialData(nEMA.substring(20));
+
+    assertEquals(new GPSPacket(nEMA.trim()), listener.lastPacket);
+    assertEquals(1, listener.packetCount);
+  }
+
+  @Test
+  public void testGPSTransceiverDropsGGAWithoutFix() {
+    PacketRouter   router = new PacketRouter();
+    GPSTransceiver tx     = new GPSTransceiver(router);
+
+    DummyPacketListener<GPSPacket> listener = new DummyPacketListener<GPSPacket>();
+
+    router.addListener(listener, GPSPacket.class, PacketSources.GPS);
+    tx.onSerialData("$GPGGA,420,-32,N,7,W,0,00,99.9,100000,M,-25.669,M,,*79\r\n");
+    assertEquals(null, listener.lastPacket);
+    assertEquals(1, tx.getParser().getSentenceCount());
+
+    String nEMA = "$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*6C";
+    tx.onSerialData(nEMA + "\r\n");
+    assertEquals(new GPSPacket(nEMA), listener.lastPacket);
+    assertTrue(listener.lastPacket.isValid());
+    assertEquals(1, listener.packetCount);
+  }
+
+  @Test
+  public void testGPSTransceiverRoutesCourseFromRMCAndVTG() {
+    PacketRouter   router = new PacketRouter();
+    GPSTransceiver tx     = new GPSTransceiver(router);
+
+    DummyPacketListener<GPSCoursePacket> listener = new DummyPacketListener<GPSCoursePacket>();
+
+    router.addListener(listener, GPSCoursePacket.class, PacketSources.GPS);
+    tx.onSerialData("$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*6A\r\n");
+    assertEquals(new GPSCoursePacket(22.4 * 1852 / 3600, 84.4, 123519), listener.lastPacket);
+
+    byte[] vtg = "$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K*48\r\n".getBytes();
+    tx.onSerialData(vtg, 0, vtg.length);
+    GPSCoursePacket expected = new GPSCoursePacket(10.2 / 3.6, 54.7, 123519);
+    assertEquals(expected, listener.lastPacket);
+    assertEquals(expected.hashCode(), listener.lastPacket.hashCode());
+    assertEquals(2, listener.packetCount);
+  }
+
+  @Test
+  public void testGPSTransceiverDropsVTGMarkedNotValid() {
+    PacketRouter   router = new PacketRouter();
+    GPSTransceiver tx     = new GPSTransceiver(router);
+
+    DummyPacketListener<GPSCoursePacket> listener = new DummyPacketListener<GPSCoursePacket>();
+
+    router.addListener(listener, GPSCoursePacket.class, PacketSources.GPS);
+    tx.onSerialData("$GPVTG,,T,,M,0.0,N,0.0,K,N*2C\r\n");
+    assertEquals(null, listener.lastPacket);
+    assertEquals(1, tx.getParser().getSentenceCount());
+
+    tx.onSerialData("$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K,A*25\r\n");
+    assertEquals(1, listener.packetCount);
+    assertEquals(54.7, listener.lastPacket.getCourse(), 0);
+  }
+
+  @Test
+  public void testGPSTransceiverReportsOverflowSeparately() {
+    ArrayList<Errors> errors    = new ArrayList<>();
+    Telemetry         telemetry = new Telemetry(null, null) {
+      @Override
+      public void reportError(Errors error) {
+        errors.add(error);
+      }
+    };
+    ErrorReporter.setInstance(new ErrorReporter(new PrintStream(new ByteArrayOutputStream()), telemetry));
+    try {
+      GPSTransceiver tx = new GPSTransceiver(new PacketRouter());
+      StringBuilder  longSentence = new StringBuilder("$GPGGA");
+      for (int i = 0; i < NMEAParser.MAX_SENTENCE_LENGTH; i++) {
+        longSentence.append(',');
+      }
+      tx.onSerialData(longSentence.toString());
+      tx.onSerialData("$GPGGA,420,-32,N,7,W,2,12,1.2,100000,M,-25.669,M,2.0,0031*4F");
+    } finally {
+      ErrorReporter.setInstance(null);
+    }
+    assertEquals(Arrays.asList(Errors.NMEA_OVERFLOW_ERROR, Errors.NMEA_CHECKSUM_ERROR), errors);
   }
 
 }
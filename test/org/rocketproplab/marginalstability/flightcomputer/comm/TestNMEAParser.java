@@ -0,0 +1,168 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.AllocationAssert;
+import org.rocketproplab.marginalstability.flightcomputer.comm.NMEAParser.SentenceType;
+
+public class TestNMEAParser {
+
+  private static final String GGA = "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47\r\n";
+  private static final String RMC = "$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*6A\r\n";
+  private static final String VTG = "$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K*48\r\n";
+
+  private NMEAParser   parser;
+  private SentenceType lastType;
+  private int          sentenceCount;
+
+  @Before
+  public void before() {
+    this.parser        = new NMEAParser(this::onSentence);
+    this.lastType      = null;
+    this.sentenceCount = 0;
+  }
+
+  private void onSentence(SentenceType type, NMEAParser parser) {
+    this.lastType = type;
+    this.sentenceCount++;
+  }
+
+  @Test
+  public void parsesGGA() {
+    parser.accept(GGA);
+    assertEquals(SentenceType.GGA, lastType);
+    assertEquals(123519, parser.getTime(), 1e-9);
+    assertEquals(4807.038, parser.getLatitude(), 1e-9);
+    assertEquals(1131.000, parser.getLongitude(), 1e-9);
+    assertEquals(1, parser.getFixQuality());
+    assertEquals(8, parser.getSVCount());
+    assertEquals(545.4, parser.getAltitude(), 1e-9);
+  }
+
+  @Test
+  public void parsesRMC() {
+    parser.accept(RMC);
+    assertEquals(SentenceType.RMC, lastType);
+    assertTrue(parser.isFixValid());
+    assertEquals(4807.038, parser.getLatitude(), 1e-9);
+    assertEquals(22.4 * 1852 / 3600, parser.getGroundSpeed(), 1e-9);
+    assertEquals(84.4, parser.getCourse(), 1e-9);
+  }
+
+  @Test
+  public void parsesVTGPreferringKilometersPerHour() {
+    parser.accept(VTG);
+    assertEquals(SentenceType.VTG, lastType);
+    assertEquals(54.7, parser.getCourse(), 1e-9);
+    assertEquals(10.2 / 3.6, parser.getGroundSpeed(), 1e-9);
+  }
+
+  @Test
+  public void emptyFieldsAreNaN() {
+    String vtg = "GPVTG,,T,,M,,N,,K";
+    parser.accept("$" + vtg + "*" + checksum(vtg));
+    assertEquals(1, sentenceCount);
+    assertTrue(Double.isNaN(parser.getCourse()));
+    assertTrue(Double.isNaN(parser.getGroundSpeed()));
+  }
+
+  @Test
+  public void sentenceSplitAcrossChunksIsAssembled() {
+    byte[] data = (GGA + RMC + VTG).getBytes(StandardCharsets.US_ASCII);
+    for (int i = 0; i < data.length; i += 7) {
+      parser.accept(data, i, Math.min(7, data.length - i));
+    }
+    assertEquals(3, sentenceCount);
+    assertEquals(SentenceType.VTG, lastType);
+    assertEquals(545.4, parser.getAltitude(), 1e-9);
+    assertEquals(0, parser.getChecksumErrorCount());
+  }
+
+  @Test
+  public void badChecksumIsRejected() {
+    parser.accept(GGA.replace("*47", "*48"));
+    assertEquals(0, sentenceCount);
+    assertEquals(1, parser.getChecksumErrorCount());
+    parser.accept(GGA);
+    assertEquals(1, sentenceCount);
+  }
+
+  @Test
+  public void missingChecksumIsRejected() {
+    parser.accept("$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K\r\n");
+    assertEquals(0, sentenceCount);
+    assertEquals(1, parser.getChecksumErrorCount());
+  }
+
+  @Test
+  public void truncatedSentenceResyncsOnNextStart() {
+    parser.accept(GGA.substring(0, 30));
+    parser.accept(RMC);
+    assertEquals(1, sentenceCount);
+    assertEquals(SentenceType.RMC, lastType);
+  }
+
+  @Test
+  public void overlongSentenceIsDropped() {
+    StringBuilder builder = new StringBuilder("$GPGGA");
+    for (int i = 0; i < NMEAParser.MAX_SENTENCE_LENGTH; i++) {
+      builder.append('1');
+    }
+    parser.accept(builder.toString());
+    parser.accept(VTG);
+    assertEquals(1, parser.getOverflowCount());
+    assertEquals(1, sentenceCount);
+  }
+
+  @Test
+  public void otherSentencesAreCountedButNotReported() {
+    String gsa = "GPGSA,A,3,04,05,,09,12,,,24,,,,,2.5,1.3,2.1";
+    parser.accept("$" + gsa + "*" + checksum(gsa) + "\r\n");
+    assertEquals(1, parser.getSentenceCount());
+    assertEquals(0, sentenceCount);
+  }
+
+  @Test
+  public void voidRMCIsNotValid() {
+    String rmc = "GPRMC,123519,V,,,,,,,230394,,";
+    parser.accept("$" + rmc + "*" + checksum(rmc));
+    assertEquals(SentenceType.RMC, lastType);
+    assertFalse(parser.isFixValid());
+  }
+
+  @Test
+  public void vtgModeIndicatorSetsCourseValidity() {
+    parser.accept(VTG);
+    assertTrue(parser.isCourseValid());
+
+    String invalid = "GPVTG,,T,,M,0.0,N,0.0,K,N";
+    parser.accept("$" + invalid + "*" + checksum(invalid));
+    assertEquals(SentenceType.VTG, lastType);
+    assertFalse(parser.isCourseValid());
+
+    String autonomous = "GPVTG,054.7,T,034.4,M,005.5,N,010.2,K,A";
+    parser.accept("$" + autonomous + "*" + checksum(autonomous));
+    assertTrue(parser.isCourseValid());
+  }
+
+  @Test
+  public void parserDoesNotAllocate() {
+    byte[] data = (GGA + RMC + VTG).getBytes(StandardCharsets.US_ASCII);
+    AllocationAssert.assertDoesNotAllocate(10000, i -> parser.accept(data, 0, data.length));
+    assertEquals((AllocationAssert.WARMUP_ITERATIONS + 10000) * 3, sentenceCount);
+  }
+
+  private static String checksum(String body) {
+    int checksum = 0;
+    for (int i = 0; i < body.length(); i++) {
+      checksum ^= body.charAt(i);
+    }
+    return String.format("%02X", checksum);
+  }
+}
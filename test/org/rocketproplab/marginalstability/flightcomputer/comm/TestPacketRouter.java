@@ -2,6 +2,9 @@ package org.rocketproplab.marginalstability.flightcomputer.comm;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
@@ -81,6 +84,56 @@ public class TestPacketRouter {
     assertEquals(PacketDirection.SEND, scmListener.lastDirection);
   }
 
+  @Test
+  public void testPacketRouterForwardsToAllListeners() {
+    DummyPacketListener<SCMPacket> otherListener = new DummyPacketListener<SCMPacket>();
+    router.addListener(scmListener, SCMPacket.class, PacketSources.CommandBox);
+    router.addListener(otherListener, SCMPacket.class, PacketSources.CommandBox);
+    SCMPacket scmPacket = new SCMPacket("");
+    router.recivePacket(scmPacket, PacketSources.CommandBox);
+    assertEquals(scmPacket, scmListener.lastPacket);
+    assertEquals(scmPacket, otherListener.lastPacket);
+  }
+
+  @Test
+  public void testEachTypeAndSourceOnlyReachesItsListeners() {
+    Object[] packets = { "", 1, 1L, 1.0, 1.0f, 'c', (byte) 1, (short) 1, true,
+        new Object(), new StringBuilder(), new int[0], new SCMPacket(""), new GPSPacket("") };
+    PacketSources[] sources = PacketSources.values();
+    List<DummyPacketListener<Object>> listeners = new ArrayList<>();
+    for (int i = 0; i < packets.length; i++) {
+      for (int j = 0; j < sources.length; j++) {
+        DummyPacketListener<Object> listener = new DummyPacketListener<Object>();
+        listeners.add(listener);
+        router.addListener(listener, packets[i].getClass(), sources[j]);
+      }
+    }
+
+    for (int i = 0; i < packets.length; i++) {
+      for (int j = 0; j < sources.length; j++) {
+        router.recivePacket(packets[i], sources[j]);
+      }
+    }
+
+    for (int i = 0; i < packets.length; i++) {
+      for (int j = 0; j < sources.length; j++) {
+        DummyPacketListener<Object> listener = listeners.get(i * sources.length + j);
+        assertEquals(1, listener.packetCount);
+        assertEquals(packets[i], listener.lastPacket);
+      }
+    }
+  }
+
+  @Test
+  public void testPacketSentBeforeListenerIsAddedReachesLaterListener() {
+    GPSPacket gpsPacket = new GPSPacket("");
+    router.recivePacket(gpsPacket, PacketSources.GPS);
+    router.addListener(gpsListener, GPSPacket.class, PacketSources.GPS);
+    router.recivePacket(gpsPacket, PacketSources.GPS);
+    assertEquals(1, gpsListener.packetCount);
+    assertEquals(gpsPacket, gpsListener.lastPacket);
+  }
+
   @Test
   public void testDoesNotFailOnBadPacket() {
     router.addListener(new TestListenerTyped(), Object.class,
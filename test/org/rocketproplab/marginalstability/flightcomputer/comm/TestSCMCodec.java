@@ -0,0 +1,123 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.AllocationAssert;
+
+public class TestSCMCodec {
+
+  private static final String[] DATA = { "12345", "00000", "99999", "abcde", "-1.23", "ZZ;ZZ",
+      "  1 2", "1E+05" };
+
+  private static byte[] bytes(String packet) {
+    return packet.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void encodeMatchesSCMPacketForAllTypes() {
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    byte[]            buffer = new byte[SCMPacket.NUM_CHARS_PACKET];
+    for (SCMPacketType type : SCMPacketType.values()) {
+      for (String data : DATA) {
+        packet.set(type, data);
+        assertEquals(SCMPacket.NUM_CHARS_PACKET, SCMCodec.encode(packet, buffer, 0));
+        assertArrayEquals(bytes(new SCMPacket(type, data).toString()), buffer);
+      }
+    }
+  }
+
+  @Test
+  public void decodeMatchesSCMPacketForAllTypes() {
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    for (SCMPacketType type : SCMPacketType.values()) {
+      for (String data : DATA) {
+        String    encoded  = new SCMPacket(type, data).toString();
+        SCMPacket expected = new SCMPacket(encoded);
+        assertTrue(SCMCodec.decode(bytes(encoded), 0, packet));
+        assertEquals(expected.getID(), packet.getID());
+        assertEquals(expected.getData(), packet.getData());
+        assertTrue(packet.dataEquals(data));
+        assertEquals(expected, packet.toPacket());
+      }
+    }
+  }
+
+  @Test
+  public void invalidPacketsAreRejectedLikeSCMPacket() {
+    String[] packets = { "HB,12345,82;", "HB,12345,dd;", "QQ,12345,89;", "HB,1234,,81;",
+        "HB,123456,1;", "H,B12345,81;", "HB12345,,81;", "hb,12345,45;" };
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    for (String encoded : packets) {
+      assertFalse(encoded, new SCMPacket(encoded).isValid());
+      assertFalse(encoded, SCMCodec.decode(bytes(encoded), 0, packet));
+      assertFalse(encoded, packet.isValid());
+    }
+  }
+
+  @Test
+  public void shortInputIsInvalid() {
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    assertFalse(SCMCodec.decode(bytes("HB,12345,81"), 0, packet));
+    assertFalse(SCMCodec.decode(bytes("HB,12345,81;"), 1, packet));
+  }
+
+  @Test
+  public void lookupIDFindsEveryType() {
+    for (SCMPacketType type : SCMPacketType.values()) {
+      assertEquals(type, SCMCodec.lookupID(type.name().charAt(0), type.name().charAt(1)));
+    }
+    assertNull(SCMCodec.lookupID('Q', 'Q'));
+    assertNull(SCMCodec.lookupID('h', 'b'));
+  }
+
+  @Test
+  public void byteBufferRoundTripAdvancesPosition() {
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64) }) {
+      packet.set(SCMPacketType.HB, "12345");
+      SCMCodec.encode(packet, buffer);
+      packet.set(SCMPacketType.GX, "00042");
+      SCMCodec.encode(packet, buffer);
+      assertEquals(2 * SCMPacket.NUM_CHARS_PACKET, buffer.position());
+
+      buffer.flip();
+      byte[] first = new byte[SCMPacket.NUM_CHARS_PACKET];
+      buffer.duplicate().get(first);
+      assertArrayEquals(bytes("HB,12345,81;"), first);
+
+      assertTrue(SCMCodec.decode(buffer, packet));
+      assertEquals(SCMPacketType.HB, packet.getID());
+      assertTrue(packet.dataEquals("12345"));
+      assertTrue(SCMCodec.decode(buffer, packet));
+      assertEquals(SCMPacketType.GX, packet.getID());
+      assertTrue(packet.dataEquals("00042"));
+      assertFalse(SCMCodec.decode(buffer, packet));
+    }
+  }
+
+  @Test
+  public void decodeAtOffset() {
+    byte[]            stream = bytes("xxHB,12345,81;");
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    assertTrue(SCMCodec.decode(stream, 2, packet));
+    assertEquals(SCMPacketType.HB, packet.getID());
+  }
+
+  @Test
+  public void codecDoesNotAllocate() {
+    ReusableSCMPacket packet = new ReusableSCMPacket();
+    byte[]            buffer = bytes("HB,12345,81;");
+    AllocationAssert.assertDoesNotAllocate(10000, i -> {
+      SCMCodec.decode(buffer, 0, packet);
+      SCMCodec.encode(packet, buffer, 0);
+    });
+  }
+}
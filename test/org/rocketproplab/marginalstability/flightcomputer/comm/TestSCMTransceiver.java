@@ -90,4 +90,67 @@ public class TestSCMTransceiver {
     assertEquals(0, port.lastWritten.size());
   }
 
+  private SCMTransceiver createReceiver(DummyPacketListener<SCMPacket> listener) {
+    PacketRouter router = new PacketRouter();
+    router.addListener(listener, SCMPacket.class, PacketSources.EngineControllerUnit);
+    return new SCMTransceiver(new TestSerialPort(), router, PacketSources.EngineControllerUnit);
+  }
+
+  @Test
+  public void testPacketSplitAcrossChunksIsReceived() {
+    DummyPacketListener<SCMPacket> listener = new DummyPacketListener<SCMPacket>();
+    SCMTransceiver                 tx       = createReceiver(listener);
+    String first  = new SCMPacket(SCMPacketType.VS, "10010").toString();
+    String second = new SCMPacket(SCMPacketType.HB, "12345").toString();
+    String stream = first + second;
+
+    tx.onSerialData(stream.substring(0, 18));
+    assertEquals(1, listener.packetCount);
+    assertEquals(new SCMPacket(first), listener.lastPacket);
+
+    tx.onSerialData(stream.substring(18, 20));
+    tx.onSerialData(stream.substring(20));
+    assertEquals(2, listener.packetCount);
+    assertEquals(new SCMPacket(second), listener.lastPacket);
+    assertEquals(0, tx.getFramingErrorCount());
+  }
+
+  @Test
+  public void testEveryPacketInChunkIsReceived() {
+    DummyPacketListener<SCMPacket> listener = new DummyPacketListener<SCMPacket>();
+    SCMTransceiver                 tx       = createReceiver(listener);
+    String packet = new SCMPacket(SCMPacketType.VS, "10010").toString();
+
+    tx.onSerialData(packet + packet + packet);
+    assertEquals(3, listener.packetCount);
+    assertEquals(3, tx.getPacketCount());
+  }
+
+  @Test
+  public void testResyncAfterGarbage() {
+    DummyPacketListener<SCMPacket> listener = new DummyPacketListener<SCMPacket>();
+    SCMTransceiver                 tx       = createReceiver(listener);
+    String packet = new SCMPacket(SCMPacketType.VS, "10010").toString();
+
+    tx.onSerialData("garbage;" + packet.substring(4) + "xx;junk" + packet);
+    assertEquals(1, listener.packetCount);
+    assertEquals(new SCMPacket(packet), listener.lastPacket);
+    assertEquals(3, tx.getFramingErrorCount());
+    assertEquals(1, tx.getResyncCount());
+
+    tx.onSerialData(packet);
+    assertEquals(2, listener.packetCount);
+    assertEquals(1, tx.getResyncCount());
+  }
+
+  @Test
+  public void testBadChecksumIsFramingError() {
+    DummyPacketListener<SCMPacket> listener = new DummyPacketListener<SCMPacket>();
+    SCMTransceiver                 tx       = createReceiver(listener);
+
+    tx.onSerialData("HB,12345,82;");
+    assertEquals(0, listener.packetCount);
+    assertEquals(1, tx.getFramingErrorCount());
+  }
+
 }
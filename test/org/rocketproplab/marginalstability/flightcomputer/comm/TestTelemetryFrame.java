@@ -0,0 +1,146 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.AllocationAssert;
+
+public class TestTelemetryFrame {
+
+  private TelemetryFrameEncoder encoder;
+  private List<SCMPacketType>   types;
+  private List<Double>          values;
+  private double                lastTime;
+
+  @Before
+  public void before() {
+    this.encoder = new TelemetryFrameEncoder();
+    this.types   = new ArrayList<>();
+    this.values  = new ArrayList<>();
+  }
+
+  private void onChannel(double time, SCMPacketType type, double value) {
+    this.lastTime = time;
+    this.types.add(type);
+    this.values.add(value);
+  }
+
+  @Test
+  public void crcMatchesCCITTFalseCheckValue() {
+    ByteBuffer buffer = ByteBuffer.wrap("123456789".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(0x29B1, TelemetryFrame.crc16(buffer, 0, 9));
+  }
+
+  @Test
+  public void frameRoundTrips() {
+    encoder.start(1234.5);
+    assertTrue(encoder.addFloat(SCMPacketType.T0, 35.25f));
+    assertTrue(encoder.addShort(SCMPacketType.P3, (short) -512));
+    assertTrue(encoder.addFloat(SCMPacketType.VZ, -3.5f));
+    ByteBuffer frame = encoder.finish().getBuffer();
+    assertEquals(3 + 9 + 5 + 3 + 5 + 2, frame.remaining());
+
+    assertTrue(TelemetryFrame.decode(frame, this::onChannel));
+    assertEquals(0, frame.remaining());
+    assertEquals(1234.5, lastTime, 0);
+    assertEquals(3, types.size());
+    assertEquals(SCMPacketType.T0, types.get(0));
+    assertEquals(35.25, values.get(0), 0);
+    assertEquals(SCMPacketType.P3, types.get(1));
+    assertEquals(-512, values.get(1), 0);
+    assertEquals(SCMPacketType.VZ, types.get(2));
+    assertEquals(-3.5, values.get(2), 0);
+  }
+
+  @Test
+  public void corruptedFrameIsRejected() {
+    encoder.start(1);
+    encoder.addFloat(SCMPacketType.T0, 1);
+    ByteBuffer frame = encoder.finish().getBuffer();
+    frame.put(TelemetryFrame.FIRST_CHANNEL + 2, (byte) 0x12);
+
+    assertFalse(TelemetryFrame.decode(frame, this::onChannel));
+    assertEquals(0, frame.position());
+    assertEquals(0, types.size());
+  }
+
+  @Test
+  public void frameWithTooLargeCountIsRejected() {
+    encoder.start(1);
+    encoder.addFloat(SCMPacketType.T0, 1);
+    encoder.addShort(SCMPacketType.P0, (short) 2);
+    ByteBuffer frame     = encoder.finish().getBuffer();
+    int        crcOffset = frame.limit() - TelemetryFrame.CRC_LENGTH;
+    frame.put(TelemetryFrame.COUNT_OFFSET, (byte) 3);
+    frame.putShort(crcOffset, (short) TelemetryFrame.crc16(frame, TelemetryFrame.LENGTH_OFFSET,
+            crcOffset - TelemetryFrame.LENGTH_OFFSET));
+
+    assertFalse(TelemetryFrame.decode(frame, this::onChannel));
+    assertEquals(0, frame.position());
+    assertEquals(0, types.size());
+  }
+
+  @Test
+  public void truncatedFrameIsRejected() {
+    encoder.start(1);
+    encoder.addFloat(SCMPacketType.T0, 1);
+    ByteBuffer frame = encoder.finish().getBuffer();
+    frame.limit(frame.limit() - 1);
+    assertFalse(TelemetryFrame.decode(frame, this::onChannel));
+  }
+
+  @Test
+  public void consecutiveFramesDecodeFromOneBuffer() {
+    ByteBuffer stream = ByteBuffer.allocate(2 * TelemetryFrame.MAX_FRAME_LENGTH);
+    for (int i = 0; i < 2; i++) {
+      encoder.start(i);
+      encoder.addShort(SCMPacketType.P0, (short) i);
+      stream.put(encoder.finish().getBuffer());
+    }
+    stream.flip();
+    assertTrue(TelemetryFrame.decode(stream, this::onChannel));
+    assertTrue(TelemetryFrame.decode(stream, this::onChannel));
+    assertEquals(1, lastTime, 0);
+    assertEquals(2, values.size());
+  }
+
+  @Test
+  public void fullFrameRefusesChannels() {
+    encoder.start(0);
+    int added = 0;
+    while (encoder.addFloat(SCMPacketType.T1, added)) {
+      added++;
+    }
+    assertEquals((TelemetryFrame.MAX_PAYLOAD_LENGTH - 9) / 5, added);
+    TelemetryFrame frame = encoder.finish();
+    assertTrue(frame.getBuffer().remaining() <= TelemetryFrame.MAX_FRAME_LENGTH);
+    assertTrue(frame.decode(this::onChannel));
+    assertEquals(0, frame.getBuffer().position());
+    assertEquals(added, values.size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void addingWithoutStartThrows() {
+    encoder.addFloat(SCMPacketType.T0, 0);
+  }
+
+  @Test
+  public void encoderDoesNotAllocate() {
+    AllocationAssert.assertDoesNotAllocate(10000, this::encodeFrame);
+  }
+
+  private void encodeFrame(int i) {
+    encoder.start(i);
+    encoder.addFloat(SCMPacketType.T0, i);
+    encoder.addShort(SCMPacketType.P0, (short) i);
+    encoder.finish();
+  }
+}
@@ -0,0 +1,91 @@
+package org.rocketproplab.marginalstability.flightcomputer.comm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialListener;
+import org.rocketproplab.marginalstability.flightcomputer.hal.SerialPort;
+
+public class TestTelemetryFrameWriter {
+
+  private class TestSerialPort implements SerialPort {
+
+    public ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    @Override
+    public void registerListener(SerialListener listener) {
+    }
+
+    @Override
+    public void write(String data) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+      this.written.write(data, offset, length);
+    }
+  }
+
+  private static byte[] expectedBytes(TelemetryFrame frame) {
+    ByteBuffer buffer = frame.getBuffer().duplicate();
+    byte[]     bytes  = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static TelemetryFrame encodeFrame(TelemetryFrameEncoder encoder) {
+    encoder.start(12.5);
+    encoder.addFloat(SCMPacketType.T0, 35.5f);
+    encoder.addShort(SCMPacketType.P0, (short) 100);
+    return encoder.finish();
+  }
+
+  @Test
+  public void sentFrameIsWrittenToSerialPort() {
+    TestSerialPort       port   = new TestSerialPort();
+    TelemetryFrameWriter writer = new TelemetryFrameWriter(port);
+    TelemetryFrame       frame  = encodeFrame(new TelemetryFrameEncoder());
+
+    writer.onPacket(PacketDirection.SEND, frame);
+    assertArrayEquals(expectedBytes(frame), port.written.toByteArray());
+    assertEquals(1, writer.getFramesWritten());
+  }
+
+  @Test
+  public void frameInDirectBufferIsWritten() {
+    TestSerialPort       port   = new TestSerialPort();
+    TelemetryFrameWriter writer = new TelemetryFrameWriter(port);
+    ByteBuffer           buffer = ByteBuffer.allocateDirect(TelemetryFrame.MAX_FRAME_LENGTH);
+    TelemetryFrame       frame  = encodeFrame(new TelemetryFrameEncoder(buffer));
+
+    writer.onPacket(PacketDirection.SEND, frame);
+    assertArrayEquals(expectedBytes(frame), port.written.toByteArray());
+  }
+
+  @Test
+  public void receivedFrameIsNotWritten() {
+    TestSerialPort       port   = new TestSerialPort();
+    TelemetryFrameWriter writer = new TelemetryFrameWriter(port);
+
+    writer.onPacket(PacketDirection.RECIVE, encodeFrame(new TelemetryFrameEncoder()));
+    assertEquals(0, port.written.size());
+    assertEquals(0, writer.getFramesWritten());
+  }
+
+  @Test
+  public void routedFramesReachSerialPort() {
+    PacketRouter         router = new PacketRouter();
+    TestSerialPort       port   = new TestSerialPort();
+    TelemetryFrameWriter writer = new TelemetryFrameWriter(port);
+    router.addListener(writer, TelemetryFrame.class, PacketSources.CommandBox);
+
+    TelemetryFrame frame = encodeFrame(new TelemetryFrameEncoder());
+    router.sendPacket(frame, PacketSources.CommandBox);
+    assertArrayEquals(expectedBytes(frame), port.written.toByteArray());
+  }
+}
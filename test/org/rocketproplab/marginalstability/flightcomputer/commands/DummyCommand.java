@@ -24,6 +24,16 @@ public class DummyCommand implements Command {
    */
   public int doneAfter = 1;
 
+  /**
+   * The priority the scheduler should run the command with.
+   */
+  public CommandPriority priority = CommandPriority.NORMAL;
+
+  /**
+   * Whether end has been called by the scheduler.
+   */
+  public boolean ended = false;
+
   /**
    * Number of times execute has been called.
    */
@@ -54,6 +64,7 @@ public class DummyCommand implements Command {
   @Override
   public void end() {
     started = false;
+    ended = true;
   }
 
   @Override
@@ -61,4 +72,9 @@ public class DummyCommand implements Command {
     return dependencies;
   }
 
+  @Override
+  public CommandPriority getPriority() {
+    return priority;
+  }
+
 }
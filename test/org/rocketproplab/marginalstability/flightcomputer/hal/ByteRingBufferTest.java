@@ -0,0 +1,81 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ByteRingBufferTest {
+
+  private static byte[] bytes(String data) {
+    return data.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void readReturnsWrittenBytesInOrder() {
+    ByteRingBuffer buffer = new ByteRingBuffer(8);
+    assertEquals(5, buffer.write(bytes("Hello"), 0, 5));
+    assertEquals(5, buffer.size());
+    assertEquals(3, buffer.getFree());
+
+    byte[] out = new byte[5];
+    assertEquals(5, buffer.read(out, 0, 5));
+    assertArrayEquals(bytes("Hello"), out);
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void writeWrapsAroundTheEnd() {
+    ByteRingBuffer buffer = new ByteRingBuffer(8);
+    byte[]         out    = new byte[8];
+    buffer.write("abcdef");
+    buffer.read(out, 0, 4);
+    assertEquals(6, buffer.write("ghijkl"));
+    assertEquals(8, buffer.size());
+    assertEquals(8, buffer.read(out, 0, 8));
+    assertArrayEquals(bytes("efghijkl"), out);
+  }
+
+  @Test
+  public void writeStopsWhenFull() {
+    ByteRingBuffer buffer = new ByteRingBuffer(4);
+    assertEquals(4, buffer.write(bytes("xHello"), 1, 5));
+    assertEquals(0, buffer.write("!"));
+    assertEquals(0, buffer.getFree());
+
+    byte[] out = new byte[6];
+    assertEquals(4, buffer.read(out, 1, 6));
+    assertEquals("Hell", new String(out, 1, 4, StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void peekDoesNotRemoveAndSkipDoes() {
+    ByteRingBuffer buffer = new ByteRingBuffer(4);
+    byte[]         out    = new byte[2];
+    buffer.write("abc");
+    assertEquals(2, buffer.peek(out, 0, 2));
+    assertArrayEquals(bytes("ab"), out);
+    assertEquals(3, buffer.size());
+    assertEquals(2, buffer.skip(2));
+    assertEquals(1, buffer.read(out, 0, 2));
+    assertEquals('c', out[0]);
+    assertEquals(0, buffer.skip(1));
+  }
+
+  @Test
+  public void clearEmptiesBuffer() {
+    ByteRingBuffer buffer = new ByteRingBuffer(4);
+    buffer.write("abc");
+    buffer.clear();
+    assertEquals(0, buffer.size());
+    assertEquals(4, buffer.getFree());
+    assertEquals(4, buffer.getCapacity());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroCapacityIsRejected() {
+    new ByteRingBuffer(0);
+  }
+}
@@ -2,15 +2,22 @@ package org.rocketproplab.marginalstability.flightcomputer.hal;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.AllocationAssert;
 import org.rocketproplab.marginalstability.flightcomputer.Settings;
 import org.rocketproplab.marginalstability.flightcomputer.hal.MAX14830.Port;
+import org.rocketproplab.marginalstability.flightcomputer.mockPi4J.DummyGpioPinImpl;
+
+import com.pi4j.io.gpio.PinState;
 
 public class MAX14830Test {
   private MockSPI spi;
@@ -141,22 +148,23 @@ public class MAX14830Test {
   }
   
   @Test
-  public void doublePollReadsOnce() throws IOException {
+  public void doublePollReadsBothLevelsInOneTransfer() throws IOException {
     this.spi.toReturn = new byte[] {0, 0};
-    this.spi.toReturnMap.put(0x11, new byte[] {0, 110});
+    this.spi.toReturnMap.put(0x11, new byte[] {0, 110, 0});
     SerialPort port = this.max14830.getPort(Port.UART0);
     port.write("Hello World");
     this.max14830.poll();
     port.write("Hello");
     this.spi.lastWrittenMap.clear();
-    this.spi.toReturnMap.put(0x11, new byte[] {0, 121});
+    this.spi.toReturnMap.put(0x11, new byte[] {0, 121, 0});
     this.max14830.poll();
     byte[] written = this.spi.lastWrittenMap.get(-0x80);
     assertEquals(6, written.length);
     assertEquals((byte)0b10000000, written[0]);
     String testString = new String(written, 1, 5);
     assertEquals("Hello", testString);
-    assertFalse(this.spi.lastWrittenMap.containsKey(0x11));
+    assertEquals(3, this.spi.lastWrittenMap.get(0x11).length);
+    assertFalse(this.spi.lastWrittenMap.containsKey(0x12));
   }
   
   @Test
@@ -174,13 +182,268 @@ public class MAX14830Test {
     this.spi.toReturn = new byte[] {0, 0};
     final ArrayList<String> writeList = new ArrayList<>();
     this.max14830.getPort(Port.UART0).registerListener(writeList::add);
-    this.spi.toReturnMap.put(0x12, new byte[] {0, 11});
+    this.spi.toReturnMap.put(0x11, new byte[] {0, 0, 11});
     this.spi.toReturnMap.put(0, "\0Hello World".getBytes(Charset.forName("US-ASCII")));
     this.max14830.poll();
     assertEquals(1, writeList.size());
     assertEquals("Hello World", writeList.get(0));
   }
   
+  @Test
+  public void byteListenerCalledWithSliceWithoutCommandByte() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    final ArrayList<String> writeList = new ArrayList<>();
+    this.max14830.getPort(Port.UART1).registerByteListener(
+        (data, offset, length) -> writeList.add(new String(data, offset, length)));
+    this.spi.toReturnMap.put(0b00100000 | 0x11, new byte[] {0, 0, 5});
+    this.spi.toReturnMap.put(0b00100000, "\0Hello".getBytes(Charset.forName("US-ASCII")));
+    this.max14830.poll();
+    assertEquals(1, writeList.size());
+    assertEquals("Hello", writeList.get(0));
+    assertEquals(6, this.spi.lastWrittenMap.get(0b00100000).length);
+  }
+
+  @Test
+  public void framedPortJoinsLineSplitAcrossPolls() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0, 0};
+    final ArrayList<String> writeList = new ArrayList<>();
+    this.max14830.setFramer(Port.UART0, SerialFramer.newline(82));
+    this.max14830.getPort(Port.UART0).registerListener(writeList::add);
+    this.spi.toReturnMap.put(0x11, new byte[] {0, 0, 5});
+    this.spi.toReturnMap.put(0, "\0$GPGG".getBytes(Charset.forName("US-ASCII")));
+    this.max14830.poll();
+    assertEquals(0, writeList.size());
+    this.spi.toReturnMap.put(0x11, new byte[] {0, 0, 4});
+    this.spi.toReturnMap.put(0, "\0A\r\n$".getBytes(Charset.forName("US-ASCII")));
+    this.max14830.poll();
+    assertEquals(1, writeList.size());
+    assertEquals("$GPGGA\r\n", writeList.get(0));
+  }
+
+  @Test
+  public void writeBytesToSerialPortQueuesSlice() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    SerialPort port = this.max14830.getPort(Port.UART0);
+    port.write("xHellox".getBytes(), 1, 5);
+    int writeLen = this.max14830.writeToTxFifo(Port.UART0, 10);
+    byte[] written = this.spi.lastWritten;
+    assertEquals(6, written.length);
+    assertEquals("Hello", new String(written, 1, 5));
+    assertEquals(5, writeLen);
+  }
+
+  @Test
+  public void writeToTxFifoWritesAtMostOneFifo() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+    this.max14830.writeToPort(Port.UART0, builder.toString());
+    assertEquals(128, this.max14830.writeToTxFifo(Port.UART0, 200));
+    assertEquals(129, this.spi.lastWritten.length);
+    assertEquals(72, this.max14830.writeToTxFifo(Port.UART0, 200));
+    assertEquals('a' + 128 % 26, this.spi.lastWritten[1]);
+  }
+
+  @Test
+  public void fullQueueDropsExtraBytes() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    byte[] data = new byte[Settings.MAX14830_TX_QUEUE_SIZE + 10];
+    this.max14830.getPort(Port.UART0).write(data, 0, data.length);
+    int total = 0;
+    int written;
+    while ((written = this.max14830.writeToTxFifo(Port.UART0, 128)) > 0) {
+      total += written;
+    }
+    assertEquals(Settings.MAX14830_TX_QUEUE_SIZE, total);
+  }
+
+  @Test
+  public void pollDoesNotAllocate() throws IOException {
+    final byte[] level   = { 0, 4, 4 };
+    final byte[] message = "\0ping".getBytes(Charset.forName("US-ASCII"));
+    MockSPI      spi     = new MockSPI() {
+      @Override
+      public byte[] write(byte[] data, int start, int length) {
+        return (data[start] & 0x1F) == 0 && (data[start] & 0x80) == 0 ? message : level;
+      }
+    };
+    MAX14830     max     = new MAX14830(spi);
+    final int[]  count   = new int[1];
+    byte[]       toSend  = "pong".getBytes(Charset.forName("US-ASCII"));
+    SerialPort   port    = max.getPort(Port.UART0);
+    port.registerByteListener((data, offset, length) -> count[0] += length);
+
+    AllocationAssert.assertDoesNotAllocate(10000, i -> {
+      port.write(toSend, 0, toSend.length);
+      max.poll();
+    });
+    assertEquals((AllocationAssert.WARMUP_ITERATIONS + 10000) * 4, count[0]);
+  }
+
+  @Test
+  public void writesFromAnotherThreadArriveInOrder() throws InterruptedException {
+    final int                   total    = 200000;
+    final ByteArrayOutputStream sent     = new ByteArrayOutputStream();
+    final AtomicInteger         sentSize = new AtomicInteger();
+    MockSPI                     spi      = new MockSPI() {
+      @Override
+      public byte[] write(byte[] data, int start, int length) {
+        if (data[start] == (byte) 0x80) {
+          sent.write(data, start + 1, length - 1);
+          sentSize.addAndGet(length - 1);
+        }
+        return new byte[length];
+      }
+    };
+    MAX14830   max  = new MAX14830(spi);
+    SerialPort port = max.getPort(Port.UART0);
+
+    // Keep the writer at most half a queue ahead so nothing is dropped
+    Thread writer = new Thread(() -> {
+      byte[] chunk = new byte[16];
+      for (int i = 0; i < total; i += chunk.length) {
+        for (int j = 0; j < chunk.length; j++) {
+          chunk[j] = (byte) (i + j);
+        }
+        while (i - sentSize.get() > Settings.MAX14830_TX_QUEUE_SIZE / 2) {
+          Thread.yield();
+        }
+        port.write(chunk, 0, chunk.length);
+      }
+    });
+    writer.start();
+    while (writer.isAlive() || sentSize.get() < total) {
+      max.poll();
+    }
+    writer.join();
+
+    byte[] received = sent.toByteArray();
+    assertEquals(total, received.length);
+    for (int i = 0; i < total; i++) {
+      assertEquals((byte) i, received[i]);
+    }
+  }
+
+  @Test
+  public void enableInterruptsConfiguresTriggersAndIrqEn() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    this.max14830.enableInterrupts();
+    assertTrue(this.max14830.isInterruptMode());
+    int rxTrigger = Settings.MAX14830_RX_TRIGGER_LEVEL / 8;
+    assertEquals((byte) (rxTrigger << 4), this.spi.lastWrittenMap.get((int) (byte) (0x80 | 0x10))[1]);
+    assertEquals(Settings.MAX14830_RX_TIMEOUT, this.spi.lastWrittenMap.get((int) (byte) (0x80 | 0x0C))[1]);
+    assertEquals(0b00000001, this.spi.lastWrittenMap.get((int) (byte) (0x80 | 0x03))[1]);
+    assertEquals(0b00101001, this.spi.lastWrittenMap.get((int) (byte) (0x80 | 0x01))[1]);
+    assertEquals((byte) 0x80, this.spi.lastWrittenMap.get((int) (byte) (0x80 | 0x09))[1]);
+    assertEquals(0b00101001, this.spi.lastWrittenMap.get((int) (byte) (0x80 | 0b01100000 | 0x01))[1]);
+  }
+
+  @Test
+  public void idlePollWithoutIrqPinOnlyReadsGlobalIrq() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    this.spi.toReturnMap.put(0x1F, new byte[] {0, 0x0F});
+    this.max14830.enableInterrupts();
+    this.max14830.poll();
+    this.spi.writeCount = 0;
+    this.max14830.poll();
+    assertEquals(1, this.spi.writeCount);
+  }
+
+  @Test
+  public void idlePollWithIrqPinDoesNoSpiTransactions() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    this.spi.toReturnMap.put(0x1F, new byte[] {0, 0x0F});
+    DummyGpioPinImpl pin = new DummyGpioPinImpl();
+    this.max14830.enableInterrupts(pin);
+    this.max14830.poll();
+    this.spi.writeCount = 0;
+    this.max14830.poll();
+    this.max14830.poll();
+    assertEquals(0, this.spi.writeCount);
+
+    pin.setState(PinState.LOW);
+    this.max14830.poll();
+    assertEquals(1, this.spi.writeCount);
+  }
+
+  @Test
+  public void irqEdgeServicesOnlyPendingUart() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    this.spi.toReturnMap.put(0x1F, new byte[] {0, 0x0F});
+    DummyGpioPinImpl pin = new DummyGpioPinImpl();
+    this.max14830.enableInterrupts(pin);
+    this.max14830.poll();
+
+    final ArrayList<String> readList = new ArrayList<>();
+    this.max14830.getPort(Port.UART1).registerByteListener(
+        (data, offset, length) -> readList.add(new String(data, offset, length)));
+    this.spi.toReturnMap.put(0x1F, new byte[] {0, 0x0D});
+    this.spi.toReturnMap.put(0b00100000 | 0x02, new byte[] {0, 0b00001000});
+    this.spi.toReturnMap.put(0b00100000 | 0x11, new byte[] {0, 0, 5});
+    this.spi.toReturnMap.put(0b00100000, "\0Hello".getBytes(Charset.forName("US-ASCII")));
+    this.spi.lastWrittenMap.clear();
+    pin.setState(PinState.HIGH);
+    pin.setState(PinState.LOW);
+    this.max14830.poll();
+
+    assertEquals(1, readList.size());
+    assertEquals("Hello", readList.get(0));
+    assertFalse(this.spi.lastWrittenMap.containsKey(0x02));
+    assertFalse(this.spi.lastWrittenMap.containsKey(0x11));
+    assertEquals(4, this.spi.lastWrittenMap.get(0b00100000 | 0x02).length);
+    assertEquals(4, this.max14830.getLastPollTransferCount());
+    assertFalse(this.spi.lastWrittenMap.containsKey(0b01000000 | 0x02));
+  }
+
+  @Test
+  public void txEmptyInterruptReleasesQueuedOutput() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    this.spi.toReturnMap.put(0x11, new byte[] {0, (byte) 128});
+    this.spi.toReturnMap.put(0x1F, new byte[] {0, 0x0F});
+    this.max14830.enableInterrupts();
+    this.max14830.getPort(Port.UART0).write("Hello");
+    this.spi.lastWrittenMap.clear();
+    this.max14830.poll();
+    assertFalse(this.spi.lastWrittenMap.containsKey(-0x80));
+    assertFalse(this.spi.lastWrittenMap.containsKey(0x11));
+
+    this.spi.toReturnMap.put(0x1F, new byte[] {0, 0x0E});
+    this.spi.toReturnMap.put(0x02, new byte[] {0, 0b00100000});
+    this.max14830.poll();
+    byte[] written = this.spi.lastWrittenMap.get(-0x80);
+    assertEquals(6, written.length);
+    assertEquals("Hello", new String(written, 1, 5));
+    assertFalse(this.spi.lastWrittenMap.containsKey(0x11));
+  }
+
+  @Test
+  public void idlePollCountsOneTransferPerPort() {
+    this.spi.toReturn = new byte[] {0, 0, 0};
+    this.max14830.poll();
+    assertEquals(4, this.max14830.getLastPollTransferCount());
+    assertEquals(12, this.max14830.getLastPollByteCount());
+    assertEquals(4, this.spi.writeCount);
+  }
+
+  @Test
+  public void busyPortNeedsThreeTransfers() {
+    this.spi.toReturn = new byte[] {0, 0, 0};
+    this.spi.toReturnMap.put(0x11, new byte[] {0, 0, 5});
+    this.spi.toReturnMap.put(0, "\0Hello".getBytes(Charset.forName("US-ASCII")));
+    this.max14830.getPort(Port.UART0).write("Bye");
+    this.max14830.poll();
+    assertEquals(6, this.max14830.getLastPollTransferCount());
+    assertEquals(12 + 4 + 6, this.max14830.getLastPollByteCount());
+    assertEquals(6, this.max14830.getTransferCount());
+    assertEquals(22, this.max14830.getByteCount());
+
+    this.max14830.poll();
+    assertEquals(5, this.max14830.getLastPollTransferCount());
+    assertEquals(11, this.max14830.getTransferCount());
+  }
+
   @Test
   public void setBuadrateSetsBaudrateAccordingTofREF() throws IOException {
     this.spi.toReturn = new byte[] {0,0};
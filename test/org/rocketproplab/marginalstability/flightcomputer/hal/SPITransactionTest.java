@@ -0,0 +1,60 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SPITransactionTest {
+  private MockSPI        spi;
+  private SPITransaction transaction;
+
+  @Before
+  public void before() {
+    this.spi         = new MockSPI();
+    this.transaction = new SPITransaction(this.spi, 8);
+  }
+
+  @Test
+  public void writeAndReadBuildOneTransfer() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0, 0x12, (byte) 0xF0};
+    this.transaction.begin((byte) 0x81).write(0x29).read(2).execute();
+    assertArrayEquals(new byte[] {(byte) 0x81, 0x29, 0, 0}, this.spi.lastWritten);
+    assertEquals(0x12, this.transaction.getUnsigned(2));
+    assertEquals(0xF0, this.transaction.getUnsigned(3));
+    assertEquals(-1, this.transaction.getUnsigned(4));
+  }
+
+  @Test
+  public void beginDiscardsPreviousTransfer() throws IOException {
+    this.spi.toReturn = new byte[] {0, 7};
+    this.transaction.begin((byte) 1).write(5).write(6);
+    this.transaction.begin((byte) 2).read(1).execute();
+    assertArrayEquals(new byte[] {2, 0}, this.spi.lastWritten);
+    assertEquals(7, this.transaction.getUnsigned(1));
+  }
+
+  @Test
+  public void writeFromQueueIsLimitedByCapacity() throws IOException {
+    ByteRingBuffer queue = new ByteRingBuffer(16);
+    queue.write("Hello World");
+    this.transaction.begin((byte) 0x80).write(queue, 20);
+    assertEquals(8, this.transaction.length());
+    assertEquals(4, queue.size());
+    this.transaction.execute();
+    assertEquals("Hello W", new String(this.spi.lastWritten, 1, 7));
+  }
+
+  @Test
+  public void transfersAndBytesAreCounted() throws IOException {
+    this.spi.toReturn = new byte[] {0, 0};
+    this.transaction.begin((byte) 0x11).read(1).execute();
+    this.transaction.begin((byte) 0x11).read(2).execute();
+    assertEquals(2, this.transaction.getTransferCount());
+    assertEquals(5, this.transaction.getByteCount());
+    assertEquals(-1, this.transaction.getUnsigned(2));
+  }
+}
@@ -0,0 +1,191 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.comm.DummyPacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketDirection;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRouter;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketSources;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMTransceiver;
+
+public class SerialCaptureTest {
+
+  private class TestTime extends Time {
+    public double time = 1000;
+
+    @Override
+    public double getSystemTime() {
+      return this.time;
+    }
+  }
+
+  private static final int HEADER_LENGTH = 13;
+
+  private TestTime              time;
+  private ByteArrayOutputStream bytes;
+  private SerialCapture         capture;
+
+  @Before
+  public void before() throws IOException {
+    this.time    = new TestTime();
+    this.bytes   = new ByteArrayOutputStream();
+    this.capture = new SerialCapture(this.bytes, this.time);
+  }
+
+  private SerialReplay replay() throws IOException {
+    this.capture.flush();
+    return new SerialReplay(new ByteArrayInputStream(this.bytes.toByteArray()));
+  }
+
+  private static byte[] ascii(String data) {
+    return data.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void replayFeedsReceivedBytesToTheirChannel() throws IOException, InterruptedException {
+    SerialPortAdapter port = new SerialPortAdapter(message -> {
+    });
+    port.setCapture(this.capture, 2);
+    port.newMessage(ascii("xHB,1"), 1, 4);
+    this.time.time += 0.5;
+    port.newMessage("2345,81;");
+    port.write("out");
+
+    SerialReplay      replay   = this.replay();
+    ArrayList<String> received = new ArrayList<>();
+    replay.getPort(2).registerListener(received::add);
+    ArrayList<String> other = new ArrayList<>();
+    replay.getPort(0).registerListener(other::add);
+
+    assertEquals(3, replay.replayAll(false));
+    assertEquals(2, received.size());
+    assertEquals("HB,1", received.get(0));
+    assertEquals("2345,81;", received.get(1));
+    assertEquals(0, other.size());
+    assertEquals(2, replay.getRxRecordCount());
+    assertEquals(1, replay.getTxRecordCount());
+    assertEquals(12, replay.getRxByteCount());
+    assertEquals(1000, replay.getStartTime(), 0);
+    assertEquals(1000.5, replay.getRecordTime(), 1e-9);
+    assertFalse(replay.replayNext());
+  }
+
+  @Test
+  public void recordsAreCompact() {
+    this.capture.record(0, PacketDirection.RECIVE, ascii("abc"), 0, 3);
+    this.time.time += 0.001;
+    this.capture.record(3, PacketDirection.SEND, "de");
+    this.capture.flush();
+    assertEquals(HEADER_LENGTH + 3 + 3 + 4 + 2, this.bytes.size());
+    assertEquals(2, this.capture.getRecordCount());
+  }
+
+  @Test
+  public void longDelaysAndRecordsRoundTrip() throws IOException {
+    byte[] large = new byte[1000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) i;
+    }
+    this.time.time += 3600;
+    this.capture.record(127, PacketDirection.RECIVE, large, 0, large.length);
+
+    SerialReplay replay = this.replay();
+    final int[]  count  = new int[2];
+    replay.getPort(127).registerByteListener((data, offset, length) -> {
+      count[0] = length;
+      count[1] = data[offset + 999];
+    });
+    assertTrue(replay.replayNext());
+    assertEquals(1000, count[0]);
+    assertEquals((byte) 999, count[1]);
+    assertEquals(4600, replay.getRecordTime(), 1e-9);
+  }
+
+  @Test
+  public void originalTimingWaitsBetweenRecords() throws IOException, InterruptedException {
+    this.time.time += 10;
+    this.capture.record(0, PacketDirection.RECIVE, "a");
+    this.time.time += 0.05;
+    this.capture.record(0, PacketDirection.RECIVE, "b");
+
+    SerialReplay replay = this.replay();
+    long         start  = System.nanoTime();
+    assertEquals(2, replay.replayAll(true));
+    long elapsed = System.nanoTime() - start;
+    assertTrue(elapsed >= 50000000L);
+    assertTrue(elapsed < 5000000000L);
+  }
+
+  @Test
+  public void replayDrivesSCMTransceiver() throws IOException, InterruptedException {
+    MAX14830 max14830 = new MAX14830(new MockSPI() {
+      @Override
+      public byte[] write(byte[] data, int start, int length) {
+        if (data[start] == 0x11) {
+          return new byte[] { 0, 0, 16 };
+        }
+        if (data[start] == 0) {
+          return ascii("\0HB,12345,81;GX,");
+        }
+        return new byte[] { 0, 0, 0 };
+      }
+    });
+    max14830.setCapture(this.capture);
+    max14830.poll();
+    max14830.poll();
+
+    SerialReplay                   replay      = this.replay();
+    PacketRouter                   router      = new PacketRouter();
+    DummyPacketListener<SCMPacket> listener    = new DummyPacketListener<>();
+    SerialPort                     port        = replay.getPort(MAX14830.Port.UART0.ordinal());
+    SCMTransceiver                 transceiver = new SCMTransceiver(port, router, PacketSources.CommandBox);
+    port.registerByteListener(transceiver);
+    router.addListener(listener, SCMPacket.class, PacketSources.CommandBox);
+
+    assertEquals(2, replay.replayAll(false));
+    assertEquals(2, listener.packetCount);
+    assertEquals(SCMPacketType.HB, listener.lastPacket.getID());
+    assertEquals(2, transceiver.getPacketCount());
+  }
+
+  @Test(expected = IOException.class)
+  public void replayRejectsOtherData() throws IOException {
+    new SerialReplay(new ByteArrayInputStream(ascii("HB,12345,81;HB,12345,81;")));
+  }
+
+  @Test
+  public void writeErrorStopsCapture() throws IOException {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Disk full");
+      }
+    };
+    SerialCapture capture = new SerialCapture(broken, this.time);
+    capture.record(0, PacketDirection.RECIVE, "abc");
+    assertFalse(capture.isClosed());
+    capture.flush();
+    assertTrue(capture.isClosed());
+    capture.record(0, PacketDirection.RECIVE, "abc");
+    assertEquals(1, capture.getRecordCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void channelOutOfRangeIsRejected() {
+    new SerialPortAdapter(null).setCapture(this.capture, 128);
+  }
+}
@@ -0,0 +1,115 @@
+package org.rocketproplab.marginalstability.flightcomputer.hal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.events.SerialByteListener;
+
+public class SerialFramerTest {
+
+  private ArrayList<String>  frames;
+  private SerialByteListener listener;
+
+  @Before
+  public void before() {
+    this.frames   = new ArrayList<>();
+    this.listener = (data, offset, length) -> this.frames
+        .add(new String(data, offset, length, StandardCharsets.ISO_8859_1));
+  }
+
+  private void feed(SerialFramer framer, String data) {
+    byte[] bytes = ("x" + data + "x").getBytes(StandardCharsets.ISO_8859_1);
+    framer.accept(bytes, 1, bytes.length - 2, this.listener);
+  }
+
+  @Test
+  public void newlineJoinsLineSplitAcrossReads() {
+    SerialFramer framer = SerialFramer.newline(82);
+    feed(framer, "$GPGGA,1");
+    assertEquals(0, this.frames.size());
+    assertEquals(8, framer.getBufferedLength());
+    feed(framer, "23*00\r\n$GP");
+    assertEquals(1, this.frames.size());
+    assertEquals("$GPGGA,123*00\r\n", this.frames.get(0));
+    assertEquals(3, framer.getBufferedLength());
+  }
+
+  @Test
+  public void newlineSplitsSeveralLinesInOneRead() {
+    SerialFramer framer = SerialFramer.newline(16);
+    feed(framer, "OK\r\nERROR\r\n+CMGS: 1\n");
+    assertEquals(3, this.frames.size());
+    assertEquals("OK\r\n", this.frames.get(0));
+    assertEquals("ERROR\r\n", this.frames.get(1));
+    assertEquals("+CMGS: 1\n", this.frames.get(2));
+    assertEquals(3, framer.getFrameCount());
+  }
+
+  @Test
+  public void terminatorFramesSCMPackets() {
+    SerialFramer framer = SerialFramer.terminator((byte) ';', 12);
+    feed(framer, "HB,12345,81;HB,1");
+    feed(framer, "2345,81;");
+    assertEquals(2, this.frames.size());
+    assertEquals("HB,12345,81;", this.frames.get(1));
+  }
+
+  @Test
+  public void tooLongFrameIsDroppedUntilTerminator() {
+    SerialFramer framer = SerialFramer.terminator((byte) ';', 4);
+    feed(framer, "abcdefgh;ab;");
+    assertEquals(1, this.frames.size());
+    assertEquals("ab;", this.frames.get(0));
+    assertEquals(1, framer.getOverflowCount());
+  }
+
+  @Test
+  public void fixedLengthEmitsEveryNBytes() {
+    SerialFramer framer = SerialFramer.fixedLength(3);
+    feed(framer, "abcd");
+    feed(framer, "efghi");
+    assertEquals(3, this.frames.size());
+    assertEquals("abc", this.frames.get(0));
+    assertEquals("def", this.frames.get(1));
+    assertEquals("ghi", this.frames.get(2));
+  }
+
+  @Test
+  public void lengthPrefixedEmitsPayload() {
+    SerialFramer framer = SerialFramer.lengthPrefixed(8);
+    feed(framer, "\u0003ab");
+    feed(framer, "c\u0000\u0002de");
+    assertEquals(3, this.frames.size());
+    assertEquals("abc", this.frames.get(0));
+    assertEquals("", this.frames.get(1));
+    assertEquals("de", this.frames.get(2));
+  }
+
+  @Test
+  public void lengthPrefixedSkipsTooLongFrame() {
+    SerialFramer framer = SerialFramer.lengthPrefixed(4);
+    feed(framer, "\u0005abcde\u0002ok");
+    assertEquals(1, this.frames.size());
+    assertEquals("ok", this.frames.get(0));
+    assertEquals(1, framer.getOverflowCount());
+  }
+
+  @Test
+  public void resetDropsPartialFrame() {
+    SerialFramer framer = SerialFramer.newline(16);
+    feed(framer, "partial");
+    framer.reset();
+    feed(framer, "line\n");
+    assertEquals(1, this.frames.size());
+    assertEquals("line\n", this.frames.get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroLengthIsRejected() {
+    SerialFramer.fixedLength(0);
+  }
+}
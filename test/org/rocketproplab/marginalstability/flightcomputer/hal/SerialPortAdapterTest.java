@@ -26,5 +26,79 @@ public class SerialPortAdapterTest {
     assertEquals(1, stringList.size());
     assertEquals("Hello World", stringList.get(0));
   }
+
+  @Test
+  public void byteMessageSendsSliceToByteListeners() {
+    SerialPortAdapter adapter = new SerialPortAdapter(null);
+    ArrayList<String> byteList = new ArrayList<>();
+    adapter.registerByteListener((data, offset, length) -> byteList.add(new String(data, offset, length)));
+    adapter.newMessage("xTesty".getBytes(), 1, 4);
+    adapter.newMessage("Again");
+    assertEquals(2, byteList.size());
+    assertEquals("Test", byteList.get(0));
+    assertEquals("Again", byteList.get(1));
+  }
+
+  @Test
+  public void byteMessageIsConvertedForStringListeners() {
+    SerialPortAdapter adapter = new SerialPortAdapter(null);
+    ArrayList<String> stringList = new ArrayList<>();
+    adapter.registerListener(stringList::add);
+    adapter.newMessage("xTesty".getBytes(), 1, 4);
+    assertEquals(1, stringList.size());
+    assertEquals("Test", stringList.get(0));
+  }
+
+  @Test
+  public void byteWriteWithoutByteListenerIsConvertedToString() {
+    ArrayList<String> stringList = new ArrayList<>();
+    SerialPortAdapter adapter = new SerialPortAdapter(stringList::add);
+    adapter.write("xHello".getBytes(), 1, 5);
+    assertEquals(1, stringList.size());
+    assertEquals("Hello", stringList.get(0));
+  }
+
+  @Test
+  public void byteWriteTriggersByteEventHandler() {
+    ArrayList<String> byteList = new ArrayList<>();
+    SerialPortAdapter adapter = new SerialPortAdapter(null,
+        (data, offset, length) -> byteList.add(new String(data, offset, length)));
+    adapter.write("xHello".getBytes(), 1, 5);
+    assertEquals(1, byteList.size());
+    assertEquals("Hello", byteList.get(0));
+  }
+
+  @Test
+  public void framerJoinsMessagesForAllListeners() {
+    SerialPortAdapter adapter = new SerialPortAdapter(null);
+    ArrayList<String> stringList = new ArrayList<>();
+    ArrayList<String> byteList = new ArrayList<>();
+    adapter.registerListener(stringList::add);
+    adapter.registerByteListener((data, offset, length) -> byteList.add(new String(data, offset, length)));
+    adapter.setFramer(SerialFramer.newline(32));
+    adapter.newMessage("Hel".getBytes(), 0, 3);
+    adapter.newMessage("lo\nWor");
+    assertEquals(1, stringList.size());
+    assertEquals("Hello\n", stringList.get(0));
+    assertEquals(1, byteList.size());
+    assertEquals("Hello\n", byteList.get(0));
+
+    adapter.newMessage("ld\n".getBytes(), 0, 3);
+    assertEquals("World\n", stringList.get(1));
+    assertEquals("World\n", byteList.get(1));
+  }
+
+  @Test
+  public void removingFramerPassesReadsThrough() {
+    SerialPortAdapter adapter = new SerialPortAdapter(null);
+    ArrayList<String> stringList = new ArrayList<>();
+    adapter.registerListener(stringList::add);
+    adapter.setFramer(SerialFramer.newline(32));
+    adapter.newMessage("partial");
+    adapter.setFramer(null);
+    adapter.newMessage("raw");
+    assertEquals(1, stringList.size());
+    assertEquals("raw", stringList.get(0));
+  }
  
 }
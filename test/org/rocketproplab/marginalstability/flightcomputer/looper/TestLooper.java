@@ -1,7 +1,9 @@
 package org.rocketproplab.marginalstability.flightcomputer.looper;
 
 import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.AllocationAssert;
 import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.commands.CommandPriority;
 import org.rocketproplab.marginalstability.flightcomputer.commands.DummyCommand;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.DummySubsystem;
 import org.rocketproplab.marginalstability.flightcomputer.subsystems.Subsystem;
@@ -439,4 +441,642 @@ public class TestLooper {
 
     assertNull(looper.getEvent(tag));
   }
+
+  @Test
+  public void scheduledEventsNotDueAreNotChecked() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    int[] checks = new int[2];
+    looper.emitScheduledIf("fast", 10.0, () -> {
+      checks[0]++;
+      return true;
+    }, (tag, from) -> {
+    });
+    looper.emitScheduledIf("slow", 100.0, () -> {
+      checks[1]++;
+      return true;
+    }, (tag, from) -> {
+    });
+
+    looper.tick();
+    time.addTime(10.0);
+    looper.tick();
+    assertEquals(2, checks[0]);
+    assertEquals(1, checks[1]);
+
+    time.addTime(5.0);
+    looper.tick();
+    assertEquals(2, checks[0]);
+    assertEquals(1, checks[1]);
+
+    time.addTime(85.0);
+    looper.tick();
+    assertEquals(3, checks[0]);
+    assertEquals(2, checks[1]);
+  }
+
+  @Test
+  public void removeScheduledEventFromCallback() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    TestCallback callback = new TestCallback();
+    looper.emitScheduled("remover", 10.0, (tag, from) -> from.removeEvent("removed"));
+    looper.emitScheduled("removed", 10.0, callback);
+
+    looper.tick();
+    time.addTime(10.0);
+    looper.tick();
+    time.addTime(10.0);
+    looper.tick();
+
+    assertNull(looper.getEvent("removed"));
+    assertNotNull(looper.getEvent("remover"));
+  }
+
+  @Test
+  public void emitOnceIfWithOtherEventsRegistered() {
+    Looper looper = new Looper(new Time());
+    TestCallback onceCallback = new TestCallback();
+    TestCallback alwaysCallback = new TestCallback();
+    looper.emitOnceIf("once", EventCondition.TRUE, onceCallback);
+    looper.emitAlways("always", alwaysCallback);
+
+    looper.tick();
+    assertTrue(onceCallback.hasCalled);
+    assertTrue(alwaysCallback.hasCalled);
+    assertNull(looper.getEvent("once"));
+
+    alwaysCallback.hasCalled = false;
+    looper.tick();
+    assertTrue(alwaysCallback.hasCalled);
+  }
+
+  @Test
+  public void registerSubsystemAssignsDenseIds() {
+    Looper looper = new Looper(new Time());
+    Subsystem subsystemA = new DummySubsystem();
+    Subsystem subsystemB = new DummySubsystem();
+
+    assertEquals(0, looper.registerSubsystem(subsystemA));
+    assertEquals(1, looper.registerSubsystem(subsystemB));
+    assertEquals(0, looper.registerSubsystem(subsystemA));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void registerTooManySubsystemsThrows() {
+    Looper looper = new Looper(new Time());
+    for (int i = 0; i <= Looper.MAX_SUBSYSTEMS; i++) {
+      looper.registerSubsystem(new DummySubsystem());
+    }
+  }
+
+  @Test
+  public void commandUsingLastSubsystemId() {
+    Looper looper = new Looper(new Time());
+    Subsystem last = null;
+    for (int i = 0; i < Looper.MAX_SUBSYSTEMS; i++) {
+      last = new DummySubsystem();
+      looper.registerSubsystem(last);
+    }
+    DummyCommand command1 = new DummyCommand();
+    command1.dependencies = new Subsystem[]{last};
+    command1.doneAfter = 2;
+    DummyCommand command2 = new DummyCommand();
+    command2.dependencies = new Subsystem[]{last};
+
+    looper.scheduleCommand(command1);
+    looper.scheduleCommand(command2);
+    looper.tick();
+    assertEquals(command1, looper.getCommandUsingSubsystem(last));
+    assertFalse(command2.started);
+
+    looper.tick();
+    looper.tick();
+    assertEquals(command2, looper.getCommandUsingSubsystem(last));
+  }
+
+  @Test
+  public void criticalCommandPreemptsLowerPriority() {
+    Looper looper = new Looper(new Time());
+    Subsystem subsystemA = new DummySubsystem();
+
+    DummyCommand routine = new DummyCommand();
+    routine.dependencies = new Subsystem[]{subsystemA};
+    routine.doneAfter = 5;
+    looper.scheduleCommand(routine);
+    looper.tick();
+    assertEquals(routine, looper.getCommandUsingSubsystem(subsystemA));
+
+    DummyCommand critical = new DummyCommand();
+    critical.dependencies = new Subsystem[]{subsystemA};
+    critical.priority = CommandPriority.CRITICAL;
+    critical.doneAfter = 2;
+    looper.scheduleCommand(critical);
+    looper.tick();
+
+    assertEquals(critical, looper.getCommandUsingSubsystem(subsystemA));
+    assertTrue(routine.ended);
+    assertEquals(2, routine.getNumberOfTimesExecuted());
+    assertEquals(1, critical.getNumberOfTimesExecuted());
+
+    looper.tick();
+    assertTrue(critical.isDone());
+    assertEquals(2, routine.getNumberOfTimesExecuted());
+  }
+
+  @Test
+  public void criticalCommandAdmittedInSameTickAsScheduled() {
+    Looper looper = new Looper(new Time());
+    Subsystem subsystemA = new DummySubsystem();
+    DummyCommand critical = new DummyCommand();
+    critical.dependencies = new Subsystem[]{subsystemA};
+    critical.priority = CommandPriority.CRITICAL;
+    looper.emitOnceIf("abort", EventCondition.TRUE, (tag, from) -> from.scheduleCommand(critical));
+
+    looper.tick();
+    assertTrue(critical.isDone());
+  }
+
+  @Test
+  public void criticalCommandJumpsQueue() {
+    Looper looper = new Looper(new Time());
+    Subsystem subsystemA = new DummySubsystem();
+
+    DummyCommand first = new DummyCommand();
+    first.dependencies = new Subsystem[]{subsystemA};
+    first.doneAfter = 3;
+    DummyCommand second = new DummyCommand();
+    second.dependencies = new Subsystem[]{subsystemA};
+    DummyCommand critical = new DummyCommand();
+    critical.dependencies = new Subsystem[]{subsystemA};
+    critical.priority = CommandPriority.CRITICAL;
+    critical.doneAfter = 2;
+
+    looper.scheduleCommand(first);
+    looper.tick();
+    looper.scheduleCommand(second);
+    looper.scheduleCommand(critical);
+    looper.tick();
+
+    assertEquals(critical, looper.getCommandUsingSubsystem(subsystemA));
+    assertTrue(first.ended);
+    assertFalse(second.started);
+
+    looper.tick();
+    looper.tick();
+    assertEquals(second, looper.getCommandUsingSubsystem(subsystemA));
+  }
+
+  @Test
+  public void criticalCommandDoesNotPreemptCritical() {
+    Looper looper = new Looper(new Time());
+    Subsystem subsystemA = new DummySubsystem();
+
+    DummyCommand critical1 = new DummyCommand();
+    critical1.dependencies = new Subsystem[]{subsystemA};
+    critical1.priority = CommandPriority.CRITICAL;
+    critical1.doneAfter = 2;
+    DummyCommand critical2 = new DummyCommand();
+    critical2.dependencies = new Subsystem[]{subsystemA};
+    critical2.priority = CommandPriority.CRITICAL;
+
+    looper.scheduleCommand(critical1);
+    looper.tick();
+    looper.scheduleCommand(critical2);
+    looper.tick();
+
+    assertFalse(critical1.ended);
+    assertTrue(critical1.isDone());
+    assertFalse(critical2.started);
+
+    looper.tick();
+    assertTrue(critical2.isDone());
+  }
+
+  @Test
+  public void normalCommandRunsBeforeQueuedBackgroundCommand() {
+    Looper looper = new Looper(new Time());
+    Subsystem subsystemA = new DummySubsystem();
+
+    DummyCommand background = new DummyCommand();
+    background.dependencies = new Subsystem[]{subsystemA};
+    background.priority = CommandPriority.BACKGROUND;
+    DummyCommand normal = new DummyCommand();
+    normal.dependencies = new Subsystem[]{subsystemA};
+
+    looper.scheduleCommand(background);
+    looper.scheduleCommand(normal);
+    looper.tick();
+
+    assertTrue(normal.isDone());
+    assertFalse(background.started);
+    assertFalse(background.isDone());
+
+    looper.tick();
+    looper.tick();
+    assertTrue(background.isDone());
+  }
+
+  @Test
+  public void admissionLatencyRecordedPerPriority() {
+    Looper looper = new Looper(new Time());
+    DummyCommand normal = new DummyCommand();
+    DummyCommand critical = new DummyCommand();
+    critical.priority = CommandPriority.CRITICAL;
+
+    looper.scheduleCommand(normal);
+    looper.scheduleCommand(critical);
+    looper.tick();
+
+    assertEquals(1, looper.getAdmissionLatency(CommandPriority.CRITICAL).getCount());
+    assertEquals(1, looper.getAdmissionLatency(CommandPriority.NORMAL).getCount());
+    assertEquals(0, looper.getAdmissionLatency(CommandPriority.BACKGROUND).getCount());
+    assertTrue(looper.getAdmissionLatency(CommandPriority.NORMAL).getMax() >= 0);
+  }
+
+  private static void runOnOtherThread(Runnable runnable) {
+    Thread thread = new Thread(runnable);
+    thread.start();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void scheduleCommandFromOtherThreadRunsOnNextTick() {
+    Looper looper = new Looper(new Time());
+    DummyCommand command = new DummyCommand();
+    looper.tick();
+
+    runOnOtherThread(() -> looper.scheduleCommand(command));
+    assertEquals(0, command.getNumberOfTimesExecuted());
+
+    looper.tick();
+    assertTrue(command.isDone());
+    assertEquals(1, command.getNumberOfTimesExecuted());
+  }
+
+  @Test
+  public void admissionLatencyIncludesInboxWait() throws InterruptedException {
+    Looper looper = new Looper(new Time());
+    looper.tick();
+
+    runOnOtherThread(() -> looper.scheduleCommand(new DummyCommand()));
+    Thread.sleep(20);
+    looper.tick();
+    assertTrue(looper.getAdmissionLatency(CommandPriority.NORMAL).getMax() >= 20000000L);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void tickFromSecondThreadIsRejected() throws Throwable {
+    Looper looper = new Looper(new Time());
+    looper.tick();
+
+    Throwable[] thrown = new Throwable[1];
+    runOnOtherThread(() -> {
+      try {
+        looper.tick();
+      } catch (Throwable e) {
+        thrown[0] = e;
+      }
+    });
+    throw thrown[0];
+  }
+
+  @Test
+  public void firstTickClaimsOwnership() {
+    Looper[] looper = new Looper[1];
+    runOnOtherThread(() -> looper[0] = new Looper(new Time()));
+    TestCallback callback = new TestCallback();
+
+    looper[0].tick();
+    looper[0].emitAlways("tag", callback);
+    assertNotNull(looper[0].getEvent("tag"));
+  }
+
+  @Test
+  public void registerAndRemoveEventFromOtherThread() {
+    Looper looper = new Looper(new Time());
+    TestCallback callback = new TestCallback();
+    looper.tick();
+
+    runOnOtherThread(() -> looper.emitAlways("tag", callback));
+    assertNull(looper.getEvent("tag"));
+
+    looper.tick();
+    assertTrue(callback.hasCalled);
+    assertNotNull(looper.getEvent("tag"));
+
+    callback.hasCalled = false;
+    GenericEvent[] removed = new GenericEvent[] { looper.getEvent("tag") };
+    runOnOtherThread(() -> removed[0] = looper.removeEvent("tag"));
+    assertNull(removed[0]);
+    looper.tick();
+    assertFalse(callback.hasCalled);
+    assertNull(looper.getEvent("tag"));
+  }
+
+  @Test
+  public void duplicateEventFromOtherThreadReportedToErrorListener() {
+    Looper looper = new Looper(new Time());
+    looper.emitAlways("tag", new TestCallback());
+    looper.tick();
+
+    runOnOtherThread(() -> looper.emitAlways("tag", new TestCallback()));
+    Object[] errorTag = new Object[1];
+    looper.tick((tag, from, e) -> errorTag[0] = tag);
+    assertEquals("tag", errorTag[0]);
+  }
+
+  @Test
+  public void equalIntervalsShareOneScheduledGroup() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    looper.emitScheduled("a", 1.0, new TestCallback());
+    looper.emitScheduled("b", 1.0, new TestCallback());
+    looper.emitScheduled("c", 1.0, 0.5, new TestCallback());
+    looper.emitScheduled("d", 2.0, new TestCallback());
+    looper.tick();
+
+    assertEquals(3, looper.getScheduledGroupCount());
+  }
+
+  @Test
+  public void scheduledEventsRegisteredAtDifferentTimesStayAligned() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    TestCallback first = new TestCallback();
+    TestCallback second = new TestCallback();
+    looper.emitScheduled("first", 10.0, first);
+    looper.tick();
+
+    time.setTime(3.0);
+    looper.emitScheduled("second", 10.0, second);
+    looper.tick();
+
+    time.setTime(10.5);
+    looper.tick();
+    assertTrue(first.hasCalled);
+    assertTrue(second.hasCalled);
+
+    // late ticks do not shift the grid
+    first.hasCalled = false;
+    second.hasCalled = false;
+    time.setTime(19.9);
+    looper.tick();
+    assertFalse(first.hasCalled);
+    time.setTime(20.0);
+    looper.tick();
+    assertTrue(first.hasCalled);
+    assertTrue(second.hasCalled);
+  }
+
+  @Test
+  public void phaseOffsetShiftsEmitTimes() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    TestCallback noPhase = new TestCallback();
+    TestCallback halfPhase = new TestCallback();
+    looper.emitScheduled("noPhase", 1.0, noPhase);
+    looper.emitScheduled("halfPhase", 1.0, 0.5, halfPhase);
+    looper.tick();
+
+    time.setTime(0.5);
+    looper.tick();
+    assertFalse(noPhase.hasCalled);
+    assertTrue(halfPhase.hasCalled);
+
+    halfPhase.hasCalled = false;
+    time.setTime(1.0);
+    looper.tick();
+    assertTrue(noPhase.hasCalled);
+    assertFalse(halfPhase.hasCalled);
+
+    noPhase.hasCalled = false;
+    time.setTime(1.5);
+    looper.tick();
+    assertFalse(noPhase.hasCalled);
+    assertTrue(halfPhase.hasCalled);
+  }
+
+  @Test
+  public void groupMemberWithFalseConditionStaysDue() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    TestCallbackCondition condition = new TestCallbackCondition();
+    TestCallback conditional = new TestCallback();
+    TestCallback always = new TestCallback();
+    looper.emitScheduledIf("conditional", 5.0, condition, conditional);
+    looper.emitScheduled("always", 5.0, always);
+    looper.tick();
+
+    time.setTime(5.0);
+    looper.tick();
+    assertTrue(always.hasCalled);
+    assertFalse(conditional.hasCalled);
+
+    always.hasCalled = false;
+    condition.shouldEmit = true;
+    time.setTime(6.0);
+    looper.tick();
+    assertTrue(conditional.hasCalled);
+    assertFalse(always.hasCalled);
+  }
+
+  private static class CountingCondition implements EventCondition {
+    private boolean shouldEmit = false;
+    private int     checks     = 0;
+
+    @Override
+    public boolean shouldEmit() {
+      checks++;
+      return shouldEmit;
+    }
+  }
+
+  @Test
+  public void signalledConditionOnlyEvaluatedWhenRaised() {
+    Looper looper = new Looper(new TestTime());
+    Signal signal = new Signal();
+    CountingCondition condition = new CountingCondition();
+    TestCallback callback = new TestCallback();
+    looper.emitIf("tag", condition, callback, signal);
+    assertEquals(1, signal.getSubscriberCount());
+
+    looper.tick();
+    assertEquals(1, condition.checks);
+    looper.tick();
+    looper.tick();
+    assertEquals(1, condition.checks);
+    assertFalse(callback.hasCalled);
+
+    condition.shouldEmit = true;
+    looper.tick();
+    assertFalse(callback.hasCalled);
+
+    signal.raise();
+    looper.tick();
+    assertEquals(2, condition.checks);
+    assertTrue(callback.hasCalled);
+
+    // the cached value keeps emitting without evaluating the condition again
+    callback.hasCalled = false;
+    looper.tick();
+    assertEquals(2, condition.checks);
+    assertTrue(callback.hasCalled);
+
+    condition.shouldEmit = false;
+    signal.raise();
+    callback.hasCalled = false;
+    looper.tick();
+    assertEquals(3, condition.checks);
+    assertFalse(callback.hasCalled);
+  }
+
+  @Test
+  public void signalledScheduledEventParksWhileFalse() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    Signal signal = new Signal();
+    CountingCondition condition = new CountingCondition();
+    TestCallback callback = new TestCallback();
+    looper.emitScheduledIf("tag", 5.0, condition, callback, signal);
+
+    looper.tick();
+    time.addTime(10);
+    looper.tick();
+    assertFalse(callback.hasCalled);
+    assertEquals(1, condition.checks);
+
+    condition.shouldEmit = true;
+    signal.raise();
+    looper.tick();
+    assertTrue(callback.hasCalled);
+
+    callback.hasCalled = false;
+    time.addTime(1);
+    looper.tick();
+    assertFalse(callback.hasCalled);
+    time.addTime(5);
+    looper.tick();
+    assertTrue(callback.hasCalled);
+    assertEquals(2, condition.checks);
+  }
+
+  @Test
+  public void signalledDurationEventFiresWithoutNewSignal() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    Signal signal = new Signal();
+    CountingCondition condition = new CountingCondition();
+    condition.shouldEmit = true;
+    TestCallback callback = new TestCallback();
+    looper.emitOnceIf("tag", 10.0, condition, callback, signal);
+
+    looper.tick();
+    assertFalse(callback.hasCalled);
+    time.addTime(10);
+    looper.tick();
+    assertTrue(callback.hasCalled);
+    assertEquals(1, condition.checks);
+    assertNull(looper.getEvent("tag"));
+    assertEquals(0, signal.getSubscriberCount());
+  }
+
+  @Test
+  public void signalledDurationEventRestartsWhenFalse() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    Signal signal = new Signal();
+    CountingCondition condition = new CountingCondition();
+    condition.shouldEmit = true;
+    TestCallback callback = new TestCallback();
+    looper.emitOnceIf("tag", 10.0, condition, callback, signal);
+
+    looper.tick();
+    time.addTime(5);
+    condition.shouldEmit = false;
+    signal.raise();
+    looper.tick();
+
+    time.addTime(1);
+    condition.shouldEmit = true;
+    signal.raise();
+    looper.tick();
+    time.addTime(9);
+    looper.tick();
+    assertFalse(callback.hasCalled);
+    time.addTime(1);
+    looper.tick();
+    assertTrue(callback.hasCalled);
+  }
+
+  @Test
+  public void signalRaisedFromOtherThreadEvaluatedOnNextTick() {
+    Looper looper = new Looper(new TestTime());
+    Signal signal = new Signal();
+    CountingCondition condition = new CountingCondition();
+    TestCallback callback = new TestCallback();
+    looper.emitIf("tag", condition, callback, signal);
+    looper.tick();
+
+    condition.shouldEmit = true;
+    runOnOtherThread(signal::raise);
+    looper.tick();
+    assertTrue(callback.hasCalled);
+  }
+
+  @Test
+  public void removingSignalledEventUnsubscribes() {
+    Looper looper = new Looper(new TestTime());
+    Signal signal = new Signal();
+    CountingCondition condition = new CountingCondition();
+    condition.shouldEmit = true;
+    TestCallback callback = new TestCallback();
+    looper.emitIf("tag", condition, callback, signal);
+    looper.tick();
+    assertTrue(callback.hasCalled);
+
+    looper.removeEvent("tag");
+    assertEquals(0, signal.getSubscriberCount());
+    callback.hasCalled = false;
+    signal.raise();
+    looper.tick();
+    assertFalse(callback.hasCalled);
+    assertEquals(1, condition.checks);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void signalledEventRequiresSignal() {
+    Looper looper = new Looper(new TestTime());
+    looper.emitIf("tag", EventCondition.TRUE, new TestCallback(), new Signal[0]);
+  }
+
+  @Test
+  public void steadyStateTickDoesNotAllocate() {
+    TestTime time = new TestTime();
+    Looper looper = new Looper(time);
+    TestCallbackCondition condition = new TestCallbackCondition();
+    condition.shouldEmit = true;
+    looper.emitAlways("always", new TestCallback());
+    looper.emitIf("if", condition, new TestCallback());
+    looper.emitScheduled("fast", 1.0, new TestCallback());
+    looper.emitScheduled("slow", 7.0, new TestCallback());
+    looper.emitScheduledIf("scheduledIf", 3.0, condition, new TestCallback());
+    Subsystem subsystem = new DummySubsystem();
+    DummyCommand running = new DummyCommand();
+    running.dependencies = new Subsystem[]{subsystem};
+    running.doneAfter = Integer.MAX_VALUE;
+    looper.scheduleCommand(running);
+    DummyCommand waiting = new DummyCommand();
+    waiting.dependencies = new Subsystem[]{subsystem};
+    looper.scheduleCommand(waiting);
+
+    AllocationAssert.assertDoesNotAllocate(10000, i -> {
+      time.addTime(0.5);
+      looper.tick();
+    });
+  }
 }
@@ -0,0 +1,104 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.commands.DummyCommand;
+
+public class TestLooperProfiler {
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void bucketsArePowersOfTwo() {
+    assertEquals(0, LooperProfiler.getBucket(0));
+    assertEquals(1, LooperProfiler.getBucket(1));
+    assertEquals(2, LooperProfiler.getBucket(2));
+    assertEquals(2, LooperProfiler.getBucket(3));
+    assertEquals(3, LooperProfiler.getBucket(4));
+    assertEquals(11, LooperProfiler.getBucket(1024));
+    assertEquals(LooperProfiler.BUCKETS - 1, LooperProfiler.getBucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void recordsMinMaxMeanAndHistogram() {
+    LooperProfiler profiler = new LooperProfiler(4);
+    int            slot     = profiler.getSlot(ProfileSection.EVENT_CALLBACK, "tag");
+    profiler.record(slot, 10);
+    profiler.record(slot, 30);
+
+    assertEquals(2, profiler.getCount(ProfileSection.EVENT_CALLBACK, "tag"));
+    assertEquals(10, profiler.getMin(ProfileSection.EVENT_CALLBACK, "tag"));
+    assertEquals(30, profiler.getMax(ProfileSection.EVENT_CALLBACK, "tag"));
+    assertEquals(20, profiler.getMean(ProfileSection.EVENT_CALLBACK, "tag"), 0);
+    long[] histogram = profiler.getHistogram(ProfileSection.EVENT_CALLBACK, "tag");
+    assertEquals(1, histogram[LooperProfiler.getBucket(10)]);
+    assertEquals(1, histogram[LooperProfiler.getBucket(30)]);
+    assertEquals(0, profiler.getCount(ProfileSection.EVENT_CONDITION, "tag"));
+  }
+
+  @Test
+  public void fullProfilerIgnoresNewKeys() {
+    LooperProfiler profiler = new LooperProfiler(1);
+    assertEquals(0, profiler.getSlot(ProfileSection.EVENT_CALLBACK, "a"));
+    assertEquals(-1, profiler.getSlot(ProfileSection.EVENT_CALLBACK, "b"));
+    profiler.record(-1, 10);
+    assertEquals(0, profiler.getCount(ProfileSection.EVENT_CALLBACK, "b"));
+  }
+
+  @Test
+  public void looperProfilesEventsAndCommands() {
+    Looper         looper   = new Looper(new Time());
+    LooperProfiler profiler = new LooperProfiler(16);
+    looper.setProfiler(profiler);
+    looper.emitIf("slow", () -> true, (tag, from) -> sleep(2));
+    looper.emitIf("never", () -> false, (tag, from) -> {
+    });
+    DummyCommand command = new DummyCommand();
+    command.doneAfter = 2;
+    looper.scheduleCommand(command);
+
+    looper.tick();
+    looper.tick();
+
+    assertEquals(2, profiler.getCount(ProfileSection.EVENT_CONDITION, "slow"));
+    assertEquals(2, profiler.getCount(ProfileSection.EVENT_CALLBACK, "slow"));
+    assertTrue(profiler.getMin(ProfileSection.EVENT_CALLBACK, "slow") >= 2_000_000L);
+    assertEquals(2, profiler.getCount(ProfileSection.EVENT_CONDITION, "never"));
+    assertEquals(0, profiler.getCount(ProfileSection.EVENT_CALLBACK, "never"));
+    assertEquals(2, profiler.getCount(ProfileSection.COMMAND_EXECUTE, DummyCommand.class));
+  }
+
+  @Test
+  public void disablingProfilerStopsRecording() {
+    Looper         looper   = new Looper(new Time());
+    LooperProfiler profiler = new LooperProfiler(16);
+    looper.setProfiler(profiler);
+    looper.emitAlways("tag", (tag, from) -> {
+    });
+    looper.tick();
+    looper.setProfiler(null);
+    looper.tick();
+    assertEquals(1, profiler.getCount(ProfileSection.EVENT_CALLBACK, "tag"));
+  }
+
+  @Test
+  public void reportContainsProfiledKeys() {
+    LooperProfiler profiler = new LooperProfiler(4);
+    profiler.record(profiler.getSlot(ProfileSection.EVENT_CALLBACK, "tag"), 1000);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    profiler.writeReport(new PrintStream(output));
+    String report = output.toString();
+    assertTrue(report.contains("EVENT_CALLBACK,tag,1,1.0,1.0,1.0"));
+  }
+}
@@ -0,0 +1,68 @@
+package org.rocketproplab.marginalstability.flightcomputer.looper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestMpscQueue {
+
+  @Test
+  public void emptyQueuePollsNull() {
+    MpscQueue<Integer> queue = new MpscQueue<>();
+    assertTrue(queue.isEmpty());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void queueIsFirstInFirstOut() {
+    MpscQueue<Integer> queue = new MpscQueue<>();
+    queue.offer(1);
+    queue.offer(2);
+    queue.offer(3);
+    assertFalse(queue.isEmpty());
+    assertEquals(Integer.valueOf(1), queue.poll());
+    assertEquals(Integer.valueOf(2), queue.poll());
+    queue.offer(4);
+    assertEquals(Integer.valueOf(3), queue.poll());
+    assertEquals(Integer.valueOf(4), queue.poll());
+    assertNull(queue.poll());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void offerNullThrows() {
+    new MpscQueue<Integer>().offer(null);
+  }
+
+  @Test
+  public void multipleProducersKeepPerProducerOrder() throws InterruptedException {
+    final int          producers = 4;
+    final int          perThread = 10000;
+    MpscQueue<int[]>   queue     = new MpscQueue<>();
+    Thread[]           threads   = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < perThread; i++) {
+          queue.offer(new int[] { producer, i });
+        }
+      });
+      threads[p].start();
+    }
+
+    int[] nextExpected = new int[producers];
+    int   received     = 0;
+    while (received < producers * perThread) {
+      int[] value = queue.poll();
+      if (value == null) {
+        continue;
+      }
+      assertEquals(nextExpected[value[0]], value[1]);
+      nextExpected[value[0]]++;
+      received++;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(queue.poll());
+  }
+}
@@ -1,6 +1,11 @@
 package org.rocketproplab.marginalstability.flightcomputer.subsystems;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -9,12 +14,17 @@ import org.junit.Before;
 import org.junit.Test;
 import org.rocketproplab.marginalstability.flightcomputer.Errors;
 import org.rocketproplab.marginalstability.flightcomputer.Info;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketDirection;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRouter;
 import org.rocketproplab.marginalstability.flightcomputer.comm.PacketSources;
 import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
 import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
+import org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrame;
+import org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrameEncoder;
 import org.rocketproplab.marginalstability.flightcomputer.comm.DummyPacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.events.PacketListener;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
 
 public class TestTelemetry {
 
@@ -153,6 +163,174 @@ public class TestTelemetry {
     assertEquals(PacketDirection.SEND, this.testListener.lastDirection);
   }
 
+  private class TestTime extends Time {
+    public double time;
+
+    @Override
+    public double getSystemTime() {
+      return this.time;
+    }
+  }
+
+  @Test
+  public void telemetryDeadbandSuppressesSmallChanges() {
+    TestTime time = new TestTime();
+    this.telemetry = new Telemetry(logger, router, time);
+    this.telemetry.setDeadband(SCMPacketType.T0, 1, 10);
+
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 20.0);
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 20.5);
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 19.2);
+    assertEquals(1, this.testListener.packetCount);
+    assertEquals(2, this.telemetry.getSuppressedCount());
+    assertEquals("Thermocouple 0 is 19.2", this.logger.lastMessage);
+
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 21.5);
+    assertEquals(2, this.testListener.packetCount);
+    assertEquals(new SCMPacket(SCMPacketType.T0, "21.50"), this.testListener.lastPacket);
+  }
+
+  @Test
+  public void telemetryDeadbandSendsOnKeepalive() {
+    TestTime time = new TestTime();
+    this.telemetry = new Telemetry(logger, router, time);
+    this.telemetry.setDeadband(SCMPacketType.P0, 5, 1);
+
+    this.telemetry.reportTelemetry(SCMPacketType.P0, 100);
+    time.time = 0.5;
+    this.telemetry.reportTelemetry(SCMPacketType.P0, 101);
+    assertEquals(1, this.testListener.packetCount);
+    time.time = 1;
+    this.telemetry.reportTelemetry(SCMPacketType.P0, 101);
+    assertEquals(2, this.testListener.packetCount);
+    assertEquals(new SCMPacket(SCMPacketType.P0, "00101"), this.testListener.lastPacket);
+  }
+
+  @Test
+  public void telemetryDeadbandOnlyAffectsItsChannel() {
+    this.telemetry.setDeadband(SCMPacketType.T0, 1, 10);
+    this.telemetry.reportTelemetry(SCMPacketType.T1, 20.0);
+    this.telemetry.reportTelemetry(SCMPacketType.T1, 20.0);
+    assertEquals(2, this.testListener.packetCount);
+
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 20.0);
+    this.telemetry.clearDeadband(SCMPacketType.T0);
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 20.0);
+    assertEquals(4, this.testListener.packetCount);
+    assertEquals(0, this.telemetry.getSuppressedCount());
+  }
+
+  @Test
+  public void telemetryPacksValuesIntoFrames() {
+    DummyPacketListener<TelemetryFrame> frameListener = new DummyPacketListener<TelemetryFrame>();
+    router.addListener(frameListener, TelemetryFrame.class, PacketSources.CommandBox);
+    this.telemetry = new Telemetry(logger, router, new TestTime());
+    this.telemetry.setFrameEncoder(new TelemetryFrameEncoder());
+
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 35.5);
+    this.telemetry.reportTelemetry(SCMPacketType.P0, 100);
+    this.telemetry.reportError(Errors.UNKNOWN_ERROR);
+    assertEquals(0, frameListener.packetCount);
+    assertEquals(new SCMPacket(SCMPacketType.ER, "00000"), this.testListener.lastPacket);
+
+    this.telemetry.flushFrame();
+    assertEquals(1, frameListener.packetCount);
+    List<Double> values = new ArrayList<>();
+    assertTrue(frameListener.lastPacket.decode((time, type, value) -> values.add(value)));
+    assertEquals(Arrays.asList(35.5, 100.0), values);
+
+    this.telemetry.flushFrame();
+    assertEquals(1, frameListener.packetCount);
+  }
+
+  @Test
+  public void telemetrySendsFullFrames() {
+    DummyPacketListener<TelemetryFrame> frameListener = new DummyPacketListener<TelemetryFrame>();
+    router.addListener(frameListener, TelemetryFrame.class, PacketSources.CommandBox);
+    this.telemetry = new Telemetry(logger, router, new TestTime());
+    this.telemetry.setFrameEncoder(new TelemetryFrameEncoder());
+
+    for (int i = 0; i < 100; i++) {
+      this.telemetry.reportTelemetry(SCMPacketType.T0, i + 0.5);
+    }
+    assertEquals(2, frameListener.packetCount);
+    assertEquals(0, this.testListener.packetCount);
+  }
+
+  @Test
+  public void telemetryStartsNewFrameWhenTimeChanges() {
+    List<Double>                   times         = new ArrayList<>();
+    PacketListener<TelemetryFrame> frameListener = (direction, frame) -> frame
+            .decode((frameTime, type, value) -> times.add(frameTime));
+    router.addListener(frameListener, TelemetryFrame.class, PacketSources.CommandBox);
+    TestTime time = new TestTime();
+    this.telemetry = new Telemetry(logger, router, time);
+    this.telemetry.setFrameEncoder(new TelemetryFrameEncoder());
+
+    time.time = 1;
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 35.5);
+    time.time = 2;
+    this.telemetry.reportTelemetry(SCMPacketType.T1, 36.5);
+    this.telemetry.reportTelemetry(SCMPacketType.T2, 37.5);
+    assertEquals(Arrays.asList(1.0), times);
+
+    this.telemetry.flushFrame();
+    assertEquals(Arrays.asList(1.0, 2.0, 2.0), times);
+  }
+
+  @Test
+  public void telemetryFlushesPendingFrameEveryTick() {
+    DummyPacketListener<TelemetryFrame> frameListener = new DummyPacketListener<TelemetryFrame>();
+    router.addListener(frameListener, TelemetryFrame.class, PacketSources.CommandBox);
+    TestTime time   = new TestTime();
+    Looper   looper = new Looper(time);
+    this.telemetry = new Telemetry(logger, router, time);
+    this.telemetry.prepare(looper);
+
+    looper.tick();
+    assertEquals(0, frameListener.packetCount);
+
+    this.telemetry.setFrameEncoder(new TelemetryFrameEncoder());
+    this.telemetry.reportTelemetry(SCMPacketType.T0, 35.5);
+    looper.tick();
+    assertEquals(1, frameListener.packetCount);
+    looper.tick();
+    assertEquals(1, frameListener.packetCount);
+  }
+
+  private class SteppingTime extends Time {
+    public double time;
+
+    @Override
+    protected double readClock() {
+      this.time += 1;
+      return this.time;
+    }
+  }
+
+  @Test
+  public void telemetryOnLooperTimeFramesOneTick() {
+    DummyPacketListener<TelemetryFrame> frameListener = new DummyPacketListener<TelemetryFrame>();
+    router.addListener(frameListener, TelemetryFrame.class, PacketSources.CommandBox);
+    SteppingTime time   = new SteppingTime();
+    Looper       looper = new Looper(time);
+    this.telemetry = new Telemetry(logger, router);
+    this.telemetry.setTime(time);
+    this.telemetry.setFrameEncoder(new TelemetryFrameEncoder());
+    looper.emitAlways("report", (tag, from) -> {
+      this.telemetry.reportTelemetry(SCMPacketType.T0, 35.5);
+      this.telemetry.reportTelemetry(SCMPacketType.T1, 36.5);
+      this.telemetry.reportTelemetry(SCMPacketType.P0, 100);
+    });
+    this.telemetry.prepare(looper);
+
+    looper.tick();
+    assertEquals(1, frameListener.packetCount);
+    List<SCMPacketType> types = new ArrayList<>();
+    assertTrue(frameListener.lastPacket.decode((frameTime, type, value) -> types.add(type)));
+    assertEquals(Arrays.asList(SCMPacketType.T0, SCMPacketType.T1, SCMPacketType.P0), types);
+  }
+
   @Test
   public void telemetryLogsInfo() {
     this.telemetry.logInfo(Info.FINISH_SUBSYSTEM_START);
@@ -0,0 +1,120 @@
+package org.rocketproplab.marginalstability.flightcomputer.subsystems;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.AllocationAssert;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
+
+public class TestTelemetryFormatter {
+
+  private final char[] out = new char[SCMPacket.DATA_LENGTH];
+
+  /**
+   * The String.format based formatting Telemetry used before.
+   */
+  private static String formatDoubleReference(double data) {
+    String dataString = String.format("%05f", data).toUpperCase();
+    int    toPrint    = Math.min(dataString.length(), SCMPacket.DATA_LENGTH);
+    int    padLen     = (SCMPacket.DATA_LENGTH - toPrint);
+
+    dataString = dataString.substring(0, toPrint);
+    if (padLen > 0) {
+      dataString = String.format("%" + padLen + "s", dataString);
+    }
+    if (data > Telemetry.MAX_PACKET_BASE_10) {
+      dataString = Telemetry.INFINITY;
+    } else if (data < Telemetry.MIN_PACKET_BASE_10) {
+      dataString = Telemetry.NEG_INFINITY;
+    }
+    return dataString;
+  }
+
+  private static String formatDecimalReference(int data) {
+    if (data > Telemetry.MAX_PACKET_BASE_10) {
+      return Telemetry.INFINITY;
+    } else if (data < Telemetry.MIN_PACKET_BASE_10) {
+      return Telemetry.NEG_INFINITY;
+    }
+    return String.format("%05d", data);
+  }
+
+  private String formatDouble(double data) {
+    TelemetryFormatter.formatDouble(data, out, 0);
+    return new String(out);
+  }
+
+  private String formatDecimal(int data) {
+    TelemetryFormatter.formatDecimal(data, out, 0);
+    return new String(out);
+  }
+
+  private String formatHex(int data) {
+    TelemetryFormatter.formatHex(data, out, 0);
+    return new String(out);
+  }
+
+  @Test
+  public void doublesMatchStringFormat() {
+    double[] values = { 0, -0.0, 35.3, -1.23456, 123456.0, -10000.0, 99999, 99999.4, -9999,
+        -9999.5, 9.9999999, 0.0000004, -0.0000001, 1234.5678, 0.1, Double.NaN,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE };
+    for (double value : values) {
+      assertEquals(String.valueOf(value), formatDoubleReference(value), formatDouble(value));
+    }
+  }
+
+  @Test
+  public void randomDoublesMatchStringFormat() {
+    Random random = new Random(19);
+    for (int i = 0; i < 20000; i++) {
+      double scale = Math.pow(10, random.nextInt(11) - 5);
+      double value = (random.nextDouble() * 2 - 1) * scale;
+      assertEquals(String.valueOf(value), formatDoubleReference(value), formatDouble(value));
+    }
+  }
+
+  @Test
+  public void decimalsMatchStringFormat() {
+    int[] values = { 0, 1, -1, 100, 99999, 100000, -9999, -10000, Integer.MAX_VALUE,
+        Integer.MIN_VALUE };
+    for (int value : values) {
+      assertEquals(formatDecimalReference(value), formatDecimal(value));
+    }
+    Random random = new Random(19);
+    for (int i = 0; i < 20000; i++) {
+      int value = random.nextInt(200000) - 100000;
+      assertEquals(formatDecimalReference(value), formatDecimal(value));
+    }
+  }
+
+  @Test
+  public void hexIsUpperCaseAndPadded() {
+    assertEquals("000FF", formatHex(255));
+    assertEquals("FFFFF", formatHex(0xFFFFF));
+    assertEquals("INF  ", formatHex(0x100000));
+    assertEquals("-00FF", formatHex(-255));
+    assertEquals("-FFFF", formatHex(-0xFFFF));
+    assertEquals("-INF ", formatHex(-0x10000));
+  }
+
+  @Test
+  public void writesAtOffset() {
+    char[] wide = "XXXXXXXX".toCharArray();
+    TelemetryFormatter.formatDecimal(42, wide, 2);
+    assertEquals("XX00042X", new String(wide));
+  }
+
+  @Test
+  public void formatterDoesNotAllocate() {
+    AllocationAssert.assertDoesNotAllocate(10000, this::formatAll);
+  }
+
+  private void formatAll(int i) {
+    TelemetryFormatter.formatDouble(i * 0.37, out, 0);
+    TelemetryFormatter.formatDecimal(i, out, 0);
+    TelemetryFormatter.formatHex(-i, out, 0);
+  }
+}
@@ -0,0 +1,227 @@
+package org.rocketproplab.marginalstability.flightcomputer.subsystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocketproplab.marginalstability.flightcomputer.Time;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketRelay;
+import org.rocketproplab.marginalstability.flightcomputer.comm.PacketSources;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacket;
+import org.rocketproplab.marginalstability.flightcomputer.comm.SCMPacketType;
+import org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrame;
+import org.rocketproplab.marginalstability.flightcomputer.comm.TelemetryFrameEncoder;
+import org.rocketproplab.marginalstability.flightcomputer.looper.Looper;
+
+public class TestTelemetryScheduler {
+
+  private class TestTime extends Time {
+    public double time;
+
+    @Override
+    public double getSystemTime() {
+      return this.time;
+    }
+  }
+
+  private class TestRelay implements PacketRelay {
+    public List<Object>        packets = new ArrayList<>();
+    public List<PacketSources> sources = new ArrayList<>();
+
+    @Override
+    public void sendPacket(Object o, PacketSources source) {
+      this.packets.add(o);
+      this.sources.add(source);
+    }
+  }
+
+  private TestTime           time;
+  private TestRelay          relay;
+  private TelemetryScheduler scheduler;
+
+  @Before
+  public void before() {
+    this.time      = new TestTime();
+    this.relay     = new TestRelay();
+    // 120 bytes per second, two packets of burst
+    this.scheduler = new TelemetryScheduler(relay, time, 120, 24);
+  }
+
+  private static SCMPacket packet(SCMPacketType type, String data) {
+    return new SCMPacket(type, data);
+  }
+
+  @Test
+  public void packetsWithinBudgetAreSentImmediately() {
+    SCMPacket first  = packet(SCMPacketType.V0, "00000");
+    SCMPacket second = packet(SCMPacketType.V1, "00000");
+    scheduler.sendPacket(first, PacketSources.CommandBox);
+    scheduler.sendPacket(second, PacketSources.CommandBox);
+    assertEquals(2, relay.packets.size());
+    assertEquals(first, relay.packets.get(0));
+    assertEquals(PacketSources.CommandBox, relay.sources.get(0));
+    assertEquals(0, scheduler.getDeferredCount());
+  }
+
+  @Test
+  public void packetsOverBudgetAreDeferredUntilRefilled() {
+    for (int i = 0; i < 3; i++) {
+      scheduler.sendPacket(packet(SCMPacketType.XS, "0000" + i), PacketSources.CommandBox);
+    }
+    assertEquals(2, relay.packets.size());
+    assertEquals(1, scheduler.getDeferredCount());
+    assertTrue(scheduler.hasPending());
+
+    time.time = 0.05;
+    scheduler.flush();
+    assertEquals(2, relay.packets.size());
+
+    time.time = 0.1;
+    scheduler.flush();
+    assertEquals(3, relay.packets.size());
+    assertEquals(packet(SCMPacketType.XS, "00002"), relay.packets.get(2));
+    assertFalse(scheduler.hasPending());
+  }
+
+  @Test
+  public void highPriorityPacketsGoFirst() {
+    scheduler.sendPacket(packet(SCMPacketType.XS, "00000"), PacketSources.CommandBox);
+    scheduler.sendPacket(packet(SCMPacketType.XS, "00001"), PacketSources.CommandBox);
+    scheduler.sendPacket(packet(SCMPacketType.XS, "00002"), PacketSources.CommandBox);
+    scheduler.sendPacket(packet(SCMPacketType.HB, "00000"), PacketSources.CommandBox);
+
+    time.time = 0.1;
+    scheduler.flush();
+    assertEquals(packet(SCMPacketType.HB, "00000"), relay.packets.get(2));
+    time.time = 0.2;
+    scheduler.flush();
+    assertEquals(packet(SCMPacketType.XS, "00002"), relay.packets.get(3));
+  }
+
+  @Test
+  public void equalPriorityTypesShareOverloadedLink() {
+    SCMPacketType[] pressures = { SCMPacketType.P0, SCMPacketType.P1, SCMPacketType.P2,
+        SCMPacketType.P3, SCMPacketType.P4, SCMPacketType.P5, SCMPacketType.P6, SCMPacketType.P7,
+        SCMPacketType.P8, SCMPacketType.P9, SCMPacketType.PA, SCMPacketType.PB, SCMPacketType.PC,
+        SCMPacketType.PD, SCMPacketType.PE, SCMPacketType.PF };
+    // Every second 17 packets are reported but only 10 fit the link
+    for (int second = 0; second < 10; second++) {
+      time.time = second;
+      scheduler.sendPacket(packet(SCMPacketType.HB, "00000"), PacketSources.CommandBox);
+      for (SCMPacketType type : pressures) {
+        scheduler.sendPacket(packet(type, "00000"), PacketSources.CommandBox);
+      }
+      for (int tick = 1; tick < 10; tick++) {
+        time.time = second + tick * 0.1;
+        scheduler.flush();
+      }
+    }
+
+    int[] counts = new int[SCMPacketType.values().length];
+    for (Object sentPacket : relay.packets) {
+      counts[((SCMPacket) sentPacket).getID().ordinal()]++;
+    }
+    assertEquals(10, counts[SCMPacketType.HB.ordinal()]);
+    for (SCMPacketType type : pressures) {
+      assertTrue(type + " was sent " + counts[type.ordinal()] + " times",
+              counts[type.ordinal()] >= 5);
+    }
+  }
+
+  @Test
+  public void coalescedTypesOnlySendNewestValue() {
+    scheduler.sendPacket(packet(SCMPacketType.XS, "00000"), PacketSources.CommandBox);
+    scheduler.sendPacket(packet(SCMPacketType.XS, "00001"), PacketSources.CommandBox);
+    for (int i = 0; i < 5; i++) {
+      scheduler.sendPacket(packet(SCMPacketType.T0, "0000" + i), PacketSources.CommandBox);
+    }
+    assertEquals(1, scheduler.getPendingCount());
+    assertEquals(4, scheduler.getDroppedCount());
+    assertEquals(5, scheduler.getDeferredCount());
+
+    time.time = 1;
+    scheduler.flush();
+    assertEquals(packet(SCMPacketType.T0, "00004"), relay.packets.get(2));
+  }
+
+  @Test
+  public void fullQueueDropsOldest() {
+    scheduler.sendPacket(packet(SCMPacketType.V0, "00000"), PacketSources.CommandBox);
+    scheduler.sendPacket(packet(SCMPacketType.V0, "00000"), PacketSources.CommandBox);
+    for (int i = 0; i < TelemetryScheduler.QUEUE_LENGTH + 1; i++) {
+      scheduler.sendPacket(packet(SCMPacketType.XS, String.format("%05d", i)), PacketSources.CommandBox);
+    }
+    assertEquals(TelemetryScheduler.QUEUE_LENGTH, scheduler.getPendingCount());
+    assertEquals(1, scheduler.getDroppedCount());
+
+    time.time = 0.1;
+    scheduler.flush();
+    assertEquals(packet(SCMPacketType.XS, "00001"), relay.packets.get(2));
+  }
+
+  @Test
+  public void maxRateLimitsType() {
+    scheduler.setMaxRate(SCMPacketType.VS, 1);
+    scheduler.sendPacket(packet(SCMPacketType.VS, "00000"), PacketSources.CommandBox);
+    scheduler.sendPacket(packet(SCMPacketType.VS, "00001"), PacketSources.CommandBox);
+    assertEquals(1, relay.packets.size());
+
+    time.time = 0.5;
+    scheduler.flush();
+    assertEquals(1, relay.packets.size());
+
+    time.time = 1;
+    scheduler.flush();
+    assertEquals(2, relay.packets.size());
+  }
+
+  @Test
+  public void otherPacketsPassThrough() {
+    for (int i = 0; i < 5; i++) {
+      scheduler.sendPacket(packet(SCMPacketType.V0, "00000"), PacketSources.EngineControllerUnit);
+      scheduler.sendPacket("Not a packet", PacketSources.CommandBox);
+    }
+    assertEquals(10, relay.packets.size());
+    assertEquals(0, scheduler.getSentCount());
+  }
+
+  @Test
+  public void framesAreChargedAgainstBudget() {
+    TelemetryFrameEncoder encoder = new TelemetryFrameEncoder();
+    encoder.start(0);
+    encoder.addFloat(SCMPacketType.T0, 35.5f);
+    encoder.addShort(SCMPacketType.P0, (short) 100);
+    TelemetryFrame frame = encoder.finish();
+    assertEquals(22, frame.getBuffer().remaining());
+
+    scheduler.sendPacket(frame, PacketSources.CommandBox);
+    assertEquals(1, relay.packets.size());
+    assertEquals(frame, relay.packets.get(0));
+
+    scheduler.sendPacket(packet(SCMPacketType.V0, "00000"), PacketSources.CommandBox);
+    assertEquals(1, relay.packets.size());
+    assertEquals(1, scheduler.getDeferredCount());
+
+    time.time = 0.1;
+    scheduler.flush();
+    assertEquals(2, relay.packets.size());
+  }
+
+  @Test
+  public void looperFlushesPendingPackets() {
+    Looper looper = new Looper(time);
+    scheduler.prepare(looper);
+    for (int i = 0; i < 4; i++) {
+      scheduler.sendPacket(packet(SCMPacketType.XS, "0000" + i), PacketSources.CommandBox);
+    }
+    time.time = 0.2;
+    looper.tick();
+    assertEquals(4, relay.packets.size());
+    assertEquals(4, scheduler.getSentCount());
+  }
+}